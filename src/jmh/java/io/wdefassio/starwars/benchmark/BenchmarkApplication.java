@@ -0,0 +1,44 @@
+package io.wdefassio.starwars.benchmark;
+
+import io.wdefassio.starwars.StarwarsApplication;
+import io.wdefassio.starwars.application.service.PlanetBatchService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Boots the application against an in-memory H2 database so benchmarks run offline.
+ */
+public class BenchmarkApplication {
+
+    /**
+     * Properties are passed as command line arguments so they override {@code application.properties}.
+     */
+    public static ConfigurableApplicationContext start(Map<String, String> properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    public static ConfigurableApplicationContext start(WebApplicationType type, Map<String, String> properties, Class<?>... sources) {
+        Map<String, String> arguments = new LinkedHashMap<>(Map.of(
+                "spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "spring.datasource.username", "sa",
+                "spring.datasource.password", "",
+                "spring.main.banner-mode", "off",
+                "logging.level.root", "warn"));
+        arguments.putAll(properties);
+        return new SpringApplicationBuilder(StarwarsApplication.class)
+                .sources(sources)
+                .web(type)
+                .run(arguments.entrySet().stream()
+                        .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                        .toArray(String[]::new));
+    }
+
+    public static void seed(ConfigurableApplicationContext context, int planets) {
+        context.getBean(PlanetBatchService.class).createAll(PlanetGenerator.planets(0, planets));
+    }
+
+}
@@ -0,0 +1,52 @@
+package io.wdefassio.starwars.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+
+/**
+ * Adds {@code benchmark.latency-ms} to every statement so the in-memory database behaves like one across a network.
+ */
+@Configuration
+public class LatencyInjection {
+
+    @Bean
+    public static BeanPostProcessor latencyInjectingDataSourcePostProcessor(Environment environment) {
+        long latency = environment.getProperty("benchmark.latency-ms", Long.class, 0L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (latency <= 0 || !(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws java.sql.SQLException {
+                        return slow(super.getConnection(), latency);
+                    }
+                };
+            }
+        };
+    }
+
+    private static Connection slow(Connection connection, long latency) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            if (method.getName().startsWith("prepare")) {
+                Thread.sleep(latency);
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,27 @@
+package io.wdefassio.starwars.benchmark;
+
+import io.wdefassio.starwars.domain.Planet;
+
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic planets: ten climates times ten terrains, so every (terrain, climate) filter selects 1% of the rows.
+ */
+public class PlanetGenerator {
+    public static final String[] CLIMATES = {"arid", "temperate", "tropical", "frozen", "murky", "humid", "windy", "polluted", "artificial", "superheated"};
+    public static final String[] TERRAINS = {"desert", "grasslands", "jungle", "tundra", "swamp", "ocean", "mountains", "cityscape", "gas giant", "volcanoes"};
+
+    public static Planet planet(int index) {
+        return new Planet(null, name(index), CLIMATES[index % CLIMATES.length], TERRAINS[(index / CLIMATES.length) % TERRAINS.length]);
+    }
+
+    public static String name(int index) {
+        return String.format("Planet-%09d", index);
+    }
+
+    public static Iterator<Planet> planets(int from, int count) {
+        return IntStream.range(from, from + count).mapToObj(PlanetGenerator::planet).iterator();
+    }
+
+}
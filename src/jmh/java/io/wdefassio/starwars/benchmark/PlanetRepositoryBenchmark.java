@@ -0,0 +1,116 @@
+package io.wdefassio.starwars.benchmark;
+
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.infra.repository.PlanetBatchRepository;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hot queries of {@link PlanetRepository} with the {@code starwars.datasource} pool and statement settings on and off.
+ * The statement settings only reach Connector/J, so point the run at a scratch MySQL database, which it empties first:
+ * <p>
+ * mvn -Pbenchmarks -DskipTests package exec:exec
+ * -Djmh.args="PlanetRepositoryBenchmark -p url=jdbc:mysql://localhost/starwars?useSSL=false -p username=admin -p password=admin"
+ * <p>
+ * Without a url it runs on the in-memory H2, where only the pool size differs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PlanetRepositoryBenchmark {
+    private static final int LOOKUP_IDS = 100;
+    private static final int INSERT_BATCH = 100;
+
+    @Param({"10000"})
+    int planets;
+    @Param({"true", "false"})
+    String tuning;
+    @Param({""})
+    String url;
+    @Param({"sa"})
+    String username;
+    @Param({""})
+    String password;
+
+    private ConfigurableApplicationContext context;
+    private PlanetRepository planetRepository;
+    private PlanetBatchRepository planetBatchRepository;
+    private final AtomicInteger created = new AtomicInteger();
+    /**
+     * Ids keep counting after the delete on MySQL.
+     */
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, String> properties = new HashMap<>(Map.of("starwars.planets.cache.enabled", "false"));
+        if (!url.isEmpty()) {
+            properties.put("spring.datasource.url", url);
+            properties.put("spring.datasource.username", username);
+            properties.put("spring.datasource.password", password);
+        }
+        if (!Boolean.parseBoolean(tuning)) {
+            properties.put("starwars.datasource.pool.cores", "0");
+            properties.put("starwars.datasource.mysql.cache-prepared-statements", "false");
+            properties.put("starwars.datasource.mysql.server-prepared-statements", "false");
+            properties.put("starwars.datasource.mysql.rewrite-batched-statements", "false");
+            properties.put("starwars.datasource.mysql.cursor-fetch", "false");
+        }
+        context = BenchmarkApplication.start(properties);
+        context.getBean(JdbcTemplate.class).update("delete from planets");
+        BenchmarkApplication.seed(context, planets);
+        planetRepository = context.getBean(PlanetRepository.class);
+        planetBatchRepository = context.getBean(PlanetBatchRepository.class);
+        firstId = planetRepository.findByName(PlanetGenerator.name(0)).map(Planet::getId).orElseThrow();
+        created.set(planets);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Planet> findByName() {
+        return planetRepository.findByName(PlanetGenerator.name(ThreadLocalRandom.current().nextInt(planets)));
+    }
+
+    @Benchmark
+    public List<Planet> findFiltered() {
+        Planet sample = PlanetGenerator.planet(ThreadLocalRandom.current().nextInt(planets));
+        return planetRepository.findFiltered(sample.getTerrain(), sample.getClimate(), 0L, 100);
+    }
+
+    @Benchmark
+    public List<Planet> findAllById() {
+        List<Long> ids = new ArrayList<>(LOOKUP_IDS);
+        for (int i = 0; i < LOOKUP_IDS; i++) {
+            ids.add(firstId + ThreadLocalRandom.current().nextInt(planets));
+        }
+        return planetRepository.findAllById(ids);
+    }
+
+    @Benchmark
+    public void insertAll() {
+        int from = created.getAndAdd(INSERT_BATCH);
+        List<Planet> batch = new ArrayList<>(INSERT_BATCH);
+        PlanetGenerator.planets(from, INSERT_BATCH).forEachRemaining(batch::add);
+        planetBatchRepository.insertAll(batch);
+    }
+
+}
@@ -0,0 +1,48 @@
+package io.wdefassio.starwars.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.wdefassio.starwars.domain.Planet;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering a list response, with the same ObjectMapper defaults Spring Boot applies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanetSerializationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int planets;
+
+    private ObjectWriter writer;
+    private List<Planet> list;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Planet.class));
+        list = new ArrayList<>(planets);
+        for (int i = 0; i < planets; i++) {
+            Planet planet = PlanetGenerator.planet(i);
+            planet.setId((long) i + 1);
+            list.add(planet);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws IOException {
+        return writer.writeValueAsBytes(list);
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.wdefassio.starwars.benchmark;
+
+import io.wdefassio.starwars.application.service.PlanetService;
+import io.wdefassio.starwars.domain.Planet;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanetServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int planets;
+    /**
+     * Off by default to measure the database path, {@code -p cache=true} measures the cached front.
+     */
+    @Param({"false"})
+    String cache;
+    /**
+     * {@code -p index=true} measures the off-heap index instead of the database.
+     */
+    @Param({"false"})
+    String index;
+
+    private ConfigurableApplicationContext context;
+    private PlanetService planetService;
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of("starwars.planets.cache.enabled", cache, "starwars.planets.index.enabled", index));
+        BenchmarkApplication.seed(context, planets);
+        planetService = context.getBean(PlanetService.class);
+        created.set(planets);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Planet> getById() {
+        return planetService.get(ThreadLocalRandom.current().nextLong(1, planets + 1));
+    }
+
+    @Benchmark
+    public Optional<Planet> getByName() {
+        return planetService.getByName(PlanetGenerator.name(ThreadLocalRandom.current().nextInt(planets)));
+    }
+
+    @Benchmark
+    public List<Planet> listFiltered() {
+        int index = ThreadLocalRandom.current().nextInt(planets);
+        Planet sample = PlanetGenerator.planet(index);
+        return planetService.list(sample.getTerrain(), sample.getClimate());
+    }
+
+    @Benchmark
+    public Planet create() {
+        return planetService.create(PlanetGenerator.planet(created.getAndIncrement()));
+    }
+
+}
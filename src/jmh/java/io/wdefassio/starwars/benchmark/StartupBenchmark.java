@@ -0,0 +1,175 @@
+package io.wdefassio.starwars.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to first request and resident memory of the packaged application, each run in a fresh JVM: with the defaults,
+ * with the fast-start profile, and both again on the CDS archive when one was built. A run ends when GET /planets/1
+ * gets an answer from the service, so the time covers the JVM, the context, the migrations and the first query.
+ * <p>
+ * mvn -Pcds,benchmarks -DskipTests package exec:exec
+ * -Dbenchmark.main=io.wdefassio.starwars.benchmark.StartupBenchmark -Dbenchmark.args="runs=5"
+ * <p>
+ * Knobs, as key=value arguments: runs, timeout-seconds, jar, datasource-url, datasource-username, datasource-password.
+ * The jar defaults to the one extracted by the cds profile, else the packaged one, and the database to an in-memory
+ * H2. RSS is read from /proc, so it is only reported on Linux. Results go to target/startup-result.json, the output of
+ * the last run of each mode to target/startup-{mode}.log.
+ */
+public class StartupBenchmark {
+    private static final Path TARGET = Path.of("target");
+    private static final Path CDS = TARGET.resolve("cds");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> knobs = new LinkedHashMap<>(Map.of(
+                "runs", "5",
+                "timeout-seconds", "120",
+                "datasource-url", "jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1",
+                "datasource-username", "sa",
+                "datasource-password", ""));
+        for (String arg : args) {
+            String[] knob = arg.split("=", 2);
+            knobs.put(knob[0], knob[1]);
+        }
+        Path jar = knobs.containsKey("jar") ? Path.of(knobs.get("jar"))
+                : findJar(CDS).or(() -> findJar(TARGET)).orElseThrow(() -> new IllegalStateException("No jar under target, run package first"));
+        Optional<Path> archive = findFile(jar.getParent(), ".jsa");
+        List<String> application = List.of(
+                "--server.port=" + freePort(),
+                "--spring.datasource.url=" + knobs.get("datasource-url"),
+                "--spring.datasource.username=" + knobs.get("datasource-username"),
+                "--spring.datasource.password=" + knobs.get("datasource-password"));
+
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("default", List.of());
+        modes.put("fast-start", List.of("-Dspring.profiles.active=fast-start"));
+        archive.ifPresentOrElse(path -> {
+            modes.put("cds", List.of("-XX:SharedArchiveFile=" + path));
+            modes.put("fast-start+cds", List.of("-XX:SharedArchiveFile=" + path, "-Dspring.profiles.active=fast-start"));
+        }, () -> System.out.println("No CDS archive next to " + jar + ", build with -Pcds to compare with one"));
+
+        int runs = Integer.parseInt(knobs.get("runs"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(knobs.get("timeout-seconds")));
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("jar", jar.toString());
+        for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+            List<Long> times = new ArrayList<>();
+            List<Long> rss = new ArrayList<>();
+            for (int run = 0; run < runs; run++) {
+                long[] sample = start(jar, mode.getValue(), application, TARGET.resolve("startup-" + mode.getKey() + ".log"), timeout);
+                times.add(sample[0]);
+                if (sample[1] > 0) {
+                    rss.add(sample[1]);
+                }
+            }
+            Collections.sort(times);
+            Collections.sort(rss);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("runs", runs);
+            result.put("firstRequestMedianMs", median(times));
+            result.put("firstRequestMinMs", times.get(0));
+            result.put("firstRequestMaxMs", times.get(times.size() - 1));
+            result.put("rssMedianMb", rss.isEmpty() ? null : median(rss) / 1024);
+            results.put(mode.getKey(), result);
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        System.out.println(objectMapper.writeValueAsString(results));
+        objectMapper.writeValue(new File("target/startup-result.json"), results);
+    }
+
+    /**
+     * Milliseconds from launching the JVM to the first answer, and the RSS in kilobytes at that point.
+     */
+    private static long[] start(Path jar, List<String> jvm, List<String> application, Path log, Duration timeout) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(jvm);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(application);
+        String port = application.get(0).substring(application.get(0).indexOf('=') + 1);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/planets/1")).build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long deadline = started + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200 || response.statusCode() == 404) {
+                        return new long[]{TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), rss(process.pid())};
+                    }
+                } catch (IOException ex) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No answer within " + timeout + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static long rss(long pid) {
+        try (Stream<String> lines = Files.lines(Path.of("/proc", String.valueOf(pid), "status"))) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                    .findFirst().orElse(0L);
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    private static Optional<Path> findJar(Path directory) {
+        return findFile(directory, ".jar").filter(jar -> !jar.toString().endsWith(".original"));
+    }
+
+    private static Optional<Path> findFile(Path directory, String suffix) {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).findFirst();
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(List<Long> sorted) {
+        return sorted.get(sorted.size() / 2);
+    }
+}
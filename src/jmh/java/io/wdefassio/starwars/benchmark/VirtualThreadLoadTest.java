@@ -0,0 +1,131 @@
+package io.wdefassio.starwars.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test of GET /planets/{id} with platform threads and with virtual threads.
+ * Every statement gets an artificial latency and the pool is larger than Tomcat's 200 workers, so
+ * the platform mode is bound by threads while the virtual mode is bound by the concurrency limiter.
+ * <p>
+ * mvn -Pbenchmarks -DskipTests package exec:exec -Dbenchmark.java=/path/to/jdk-21/bin/java
+ * -Dbenchmark.main=io.wdefassio.starwars.benchmark.VirtualThreadLoadTest -Dbenchmark.args="clients=1000 seconds=20"
+ * <p>
+ * Knobs, as key=value arguments: clients, seconds, latency-ms, pool. Results go to target/load-test-result.json.
+ */
+public class VirtualThreadLoadTest {
+    private static final int PLANETS = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Integer> knobs = new LinkedHashMap<>(Map.of("clients", 1_000, "seconds", 20, "latency-ms", 20, "pool", 400));
+        for (String arg : args) {
+            String[] knob = arg.split("=", 2);
+            knobs.put(knob[0], Integer.valueOf(knob[1]));
+        }
+        int clients = knobs.get("clients");
+        int seconds = knobs.get("seconds");
+        int latency = knobs.get("latency-ms");
+        int pool = knobs.get("pool");
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("platform", run(false, clients, seconds, latency, pool));
+        if (Runtime.version().feature() >= 21) {
+            results.put("virtual", run(true, clients, seconds, latency, pool));
+        } else {
+            System.out.println("Virtual threads need JDK 21, running on " + Runtime.version() + ", skipping that mode");
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        System.out.println(objectMapper.writeValueAsString(results));
+        objectMapper.writeValue(new File("target/load-test-result.json"), results);
+        System.exit(0);
+    }
+
+    private static Map<String, Object> run(boolean virtual, int clients, int seconds, int latency, int pool) throws Exception {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("server.tomcat.threads.max", "200");
+        properties.put("spring.threads.virtual.enabled", String.valueOf(virtual));
+        properties.put("spring.datasource.hikari.maximum-pool-size", String.valueOf(pool));
+        properties.put("starwars.datasource.concurrency.enabled", "true");
+        properties.put("starwars.datasource.concurrency.acquire-timeout", "30s");
+        properties.put("starwars.planets.cache.enabled", "false");
+        properties.put("benchmark.latency-ms", String.valueOf(latency));
+
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start(WebApplicationType.SERVLET, properties, LatencyInjection.class)) {
+            BenchmarkApplication.seed(context, PLANETS);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(10)).build();
+
+            drive(client, port, clients, Math.max(2, seconds / 4), new LongAdder(), new LongAdder(), null);
+            LongAdder ok = new LongAdder();
+            LongAdder failed = new LongAdder();
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+            drive(client, port, clients, seconds, ok, failed, latencies);
+
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("clients", clients);
+            result.put("latencyMs", latency);
+            result.put("pool", pool);
+            result.put("requests", ok.sum());
+            result.put("errors", failed.sum());
+            result.put("throughputPerSecond", ok.sum() / (double) seconds);
+            result.put("p50Ms", percentile(sorted, 0.50));
+            result.put("p99Ms", percentile(sorted, 0.99));
+            return result;
+        }
+    }
+
+    private static void drive(HttpClient client, int port, int clients, int seconds, LongAdder ok, LongAdder failed, List<Long> latencies) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            executor.execute(() -> {
+                List<Long> own = new ArrayList<>();
+                while (System.nanoTime() < deadline) {
+                    long id = ThreadLocalRandom.current().nextLong(1, PLANETS + 1);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/planets/" + id)).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        (response.statusCode() == 200 ? ok : failed).increment();
+                        own.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    } catch (Exception ex) {
+                        failed.increment();
+                    }
+                }
+                if (latencies != null) {
+                    latencies.addAll(own);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        return sorted.isEmpty() ? 0 : sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1));
+    }
+}
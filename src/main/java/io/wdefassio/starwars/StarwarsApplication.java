@@ -2,8 +2,16 @@ package io.wdefassio.starwars;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@SpringBootApplication
+/**
+ * R2DBC auto-configuration stays off, the reactive profile builds its own connection factory (see ReactiveDataConfiguration)
+ * and an auto-configured one would push the JDBC datasource aside.
+ */
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
+@ConfigurationPropertiesScan
 public class StarwarsApplication {
 
     public static void main(String[] args) {
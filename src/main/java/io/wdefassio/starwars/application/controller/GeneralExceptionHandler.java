@@ -1,9 +1,15 @@
 package io.wdefassio.starwars.application.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -11,20 +17,53 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @ControllerAdvice
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GeneralExceptionHandler extends ResponseEntityExceptionHandler {
 
+    static final String ERRORS = "planets.errors";
+
+    private final MeterRegistry meterRegistry;
+
     @Override
-    protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatus status, WebRequest request) {
+    protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
+        count(HttpStatus.UNPROCESSABLE_ENTITY, ex);
+        ex.getBody().setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
         return super.handleMethodArgumentNotValid(ex, headers, HttpStatus.UNPROCESSABLE_ENTITY, request);
     }
 
     @ExceptionHandler(DataIntegrityViolationException.class)
     private ResponseEntity<Object> handleConflict(DataIntegrityViolationException ex){
-        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        return respond(HttpStatus.CONFLICT, ex);
     }
     @ExceptionHandler(EmptyResultDataAccessException.class)
     private ResponseEntity<Object> handleConflict(EmptyResultDataAccessException ex){
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        return respond(HttpStatus.NOT_FOUND, ex);
+    }
+    @ExceptionHandler({JsonProcessingException.class, RuntimeJsonMappingException.class})
+    private ResponseEntity<Object> handleUnreadable(Exception ex){
+        return respond(HttpStatus.BAD_REQUEST, ex);
+    }
+    @ExceptionHandler(IllegalArgumentException.class)
+    private ResponseEntity<Object> handleBadRequest(IllegalArgumentException ex){
+        return respond(HttpStatus.BAD_REQUEST, ex);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    private ResponseEntity<Object> handleOverload(RejectedExecutionException ex){
+        count(HttpStatus.SERVICE_UNAVAILABLE, ex);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(ex.getMessage());
+    }
+
+    private ResponseEntity<Object> respond(HttpStatus status, Exception ex) {
+        count(status, ex);
+        return ResponseEntity.status(status).body(ex.getMessage());
+    }
+
+    private void count(HttpStatus status, Exception ex) {
+        meterRegistry.counter(ERRORS, "status", String.valueOf(status.value()), "exception", ex.getClass().getSimpleName()).increment();
     }
 }
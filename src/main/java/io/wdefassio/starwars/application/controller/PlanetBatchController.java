@@ -0,0 +1,44 @@
+package io.wdefassio.starwars.application.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.wdefassio.starwars.application.service.PlanetBatchResult;
+import io.wdefassio.starwars.application.service.PlanetBatchService;
+import io.wdefassio.starwars.domain.Planet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Bulk endpoints, the body is either a JSON array or NDJSON and is read incrementally.
+ */
+@RestController
+@RequestMapping("/planets/batch")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PlanetBatchController {
+
+    private final PlanetBatchService planetBatchService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, PlanetController.NDJSON})
+    public ResponseEntity<List<PlanetBatchResult>> create(InputStream body) throws IOException {
+        try (MappingIterator<Planet> planets = objectMapper.readerFor(Planet.class).readValues(body)) {
+            return ResponseEntity.ok(planetBatchService.createAll(planets));
+        }
+    }
+
+    @DeleteMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, PlanetController.NDJSON})
+    public ResponseEntity<List<PlanetBatchResult>> remove(InputStream body) throws IOException {
+        try (MappingIterator<Long> ids = objectMapper.readerFor(Long.class).readValues(body)) {
+            return ResponseEntity.ok(planetBatchService.removeAll(ids));
+        }
+    }
+
+}
@@ -1,47 +1,185 @@
 package io.wdefassio.starwars.application.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.wdefassio.starwars.application.service.PlanetIngestService;
+import io.wdefassio.starwars.application.service.PlanetJob;
+import io.wdefassio.starwars.application.service.PlanetPage;
 import io.wdefassio.starwars.application.service.PlanetService;
+import io.wdefassio.starwars.application.service.PlanetViewPage;
 import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetRevision;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import javax.validation.Valid;
-import javax.websocket.server.PathParam;
+import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/planets")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class PlanetController {
 
+    static final String NDJSON = "application/x-ndjson";
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+    static final String SMILE = "application/x-jackson-smile";
+    /**
+     * Encodings the Jackson converters offer for the same resource, JSON first so wildcards resolve to it.
+     */
+    private static final List<MediaType> ENCODINGS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, MediaType.parseMediaType(SMILE));
+
     private final PlanetService planetService;
+    private final PlanetProperties planetProperties;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<PlanetIngestService> planetIngestService;
 
+    /**
+     * In write-behind mode the planet is only accepted, the response points at the job reporting the outcome.
+     */
     @PostMapping
-    public ResponseEntity<Planet> create(@Valid @RequestBody Planet planet) {
+    public ResponseEntity<?> create(@Valid @RequestBody Planet planet) {
+        PlanetIngestService ingest = planetIngestService.getIfAvailable();
+        if (ingest != null) {
+            PlanetJob job = ingest.submit(planet);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentContextPath().path("/planets/jobs/{id}").buildAndExpand(job.getId()).toUri())
+                    .body(job);
+        }
         Planet planetCreated = planetService.create(planet);
         return ResponseEntity.status(HttpStatus.CREATED).body(planetCreated);
     }
 
+    /**
+     * The validators let Spring answer {@code If-None-Match} and {@code If-Modified-Since} with a 304 before the
+     * body is written.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Planet> get(@PathVariable("id") Long id) {
+    public ResponseEntity<Planet> get(@PathVariable("id") Long id, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         return planetService.get(id)
-                .map(ResponseEntity::ok)
+                .map(planet -> cacheable(planet, accept))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping("/name/{name}")
-    public ResponseEntity<Planet> getByName(@PathVariable("name") String name) {
+    public ResponseEntity<Planet> getByName(@PathVariable("name") String name, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         return planetService.getByName(name)
-                .map(ResponseEntity::ok)
+                .map(planet -> cacheable(planet, accept))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Multi-get for clients that would otherwise fan out one request per id. Planets not found are left out, the
+     * others come in the order asked.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<Planet>> getAll(@RequestParam List<Long> ids) {
+        int maxIds = planetProperties.getLookup().getMaxIds();
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException("at most " + maxIds + " ids per request");
+        }
+        return ResponseEntity.ok()
+                .cacheControl(planetProperties.getHttp().cacheControl())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(planetService.getAll(ids));
+    }
+
+    /**
+     * Validated against the table-wide revision, read before the page so a 304 never needs the rows.
+     * With {@code fields} only the listed columns are selected and serialized.
+     */
     @GetMapping
-    public ResponseEntity<List<Planet>> list(@RequestParam(required = false) String terrain, @RequestParam(required = false) String climate) {
-        List<Planet> planets = planetService.list(terrain, climate);
-        return ResponseEntity.ok(planets);
+    public ResponseEntity<List<?>> list(@RequestParam(required = false) String terrain, @RequestParam(required = false) String climate,
+                                        @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size,
+                                        @RequestParam(required = false) String fields,
+                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest request) {
+        Set<PlanetField> selected = fields == null ? null : PlanetField.parse(fields);
+        PlanetRevision revision = planetService.revision();
+        String eTag = "\"r" + revision.getRevision() + encoding(accept) + "\"";
+        long lastModified = revision.getLastModified() == null ? -1 : revision.getLastModified();
+        if (request.checkNotModified(eTag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(planetProperties.getHttp().cacheControl())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(planetProperties.getHttp().cacheControl())
+                .varyBy(HttpHeaders.ACCEPT);
+        if (selected != null) {
+            PlanetViewPage page = planetService.page(terrain, climate, cursor, size, selected);
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR, page.getNextCursor());
+            }
+            return response.body(page.getPlanets());
+        }
+        PlanetPage page = planetService.page(terrain, climate, cursor, size);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR, page.getNextCursor());
+        }
+        return response.body(page.getPlanets());
+    }
+
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String terrain, @RequestParam(required = false) String climate) {
+        ObjectWriter writer = objectMapper.writerFor(Planet.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> planetService.stream(terrain, climate, planet -> {
+            try {
+                writer.writeValue(out, planet);
+                out.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        return ResponseEntity.ok().body(body);
+    }
+
+    private ResponseEntity<Planet> cacheable(Planet planet, String accept) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag("\"" + planet.getId() + "." + (planet.getVersion() == null ? 0 : planet.getVersion()) + encoding(accept) + "\"")
+                .cacheControl(planetProperties.getHttp().cacheControl())
+                .varyBy(HttpHeaders.ACCEPT);
+        if (planet.getLastModified() != null) {
+            response.lastModified(planet.getLastModified());
+        }
+        return response.body(planet);
+    }
+
+    /**
+     * ETag suffix for the encoding content negotiation will pick, so every encoding of a resource keeps its own strong
+     * validator. Accepted types are walked the way Spring orders them, by quality then specificity.
+     */
+    private static String encoding(String accept) {
+        if (accept == null) {
+            return "";
+        }
+        List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType type : accepted) {
+            for (MediaType encoding : ENCODINGS) {
+                if (type.includes(encoding)) {
+                    return encoding.equals(MediaType.APPLICATION_JSON) ? "" : "." + encoding.getSubtype();
+                }
+            }
+        }
+        return "";
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,134 @@
+package io.wdefassio.starwars.application.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import io.wdefassio.starwars.application.service.PlanetService;
+import io.wdefassio.starwars.domain.Planet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Full catalog export for offline consumers. Rows are written as the cursor hands them over, so memory stays flat
+ * whatever the table size, and {@code afterId} resumes an interrupted transfer from the last id received.
+ */
+@RestController
+@RequestMapping("/planets/export")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PlanetExportController {
+
+    static final String CSV = "text/csv";
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("name")
+            .addColumn("climate")
+            .addColumn("terrain")
+            .setUseHeader(true)
+            .build();
+
+    private final PlanetService planetService;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestParam(required = false) Long afterId,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean csv = switch (format.toLowerCase(Locale.ROOT)) {
+            case "csv" -> true;
+            case "ndjson" -> false;
+            default -> throw new IllegalArgumentException("unsupported export format " + format);
+        };
+        ObjectWriter writer = (csv ? csvMapper.writer(CSV_SCHEMA) : objectMapper.writerFor(Planet.class).withRootValueSeparator("\n"))
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = out -> {
+            AtomicLong exported = new AtomicLong();
+            // closing a GZIPOutputStream is what releases its native Deflater, the response stream itself stays open
+            try (OutputStream target = gzip ? new GZIPOutputStream(StreamUtils.nonClosing(out), 8192) : StreamUtils.nonClosing(out)) {
+                try (SequenceWriter rows = writer.writeValues(target)) {
+                    planetService.export(afterId, planet -> {
+                        try {
+                            rows.write(planet);
+                            exported.incrementAndGet();
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                }
+                if (!csv && exported.get() > 0) {
+                    target.write('\n');
+                }
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(csv ? CSV : PlanetController.NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=planets." + (csv ? "csv" : "ndjson"))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Whether {@code Accept-Encoding} lets gzip through: listed, or covered by {@code *}, with a non-zero q-value. An
+     * explicit gzip entry wins over {@code *}, and a q-value that does not parse counts as zero.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean accepted = quality(parts) > 0;
+            if (coding.equals("gzip")) {
+                return accepted;
+            }
+            wildcard = accepted;
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+}
@@ -0,0 +1,85 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.wdefassio.starwars.application.service.ReactivePlanetService;
+import io.wdefassio.starwars.domain.Planet;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Reactive counterpart of {@link PlanetController}, routed by {@link PlanetRouter}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class PlanetHandler {
+
+    private final ReactivePlanetService planetService;
+    private final Validator validator;
+
+    public Mono<ServerResponse> create(ServerRequest request) {
+        return request.bodyToMono(Planet.class)
+                .flatMap(planet -> {
+                    Set<ConstraintViolation<Planet>> violations = validator.validate(planet);
+                    if (!violations.isEmpty()) {
+                        return Mono.error(new ConstraintViolationException(violations));
+                    }
+                    return planetService.create(planet);
+                })
+                .flatMap(planetCreated -> ServerResponse.status(HttpStatus.CREATED).bodyValue(planetCreated));
+    }
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        return planetService.get(Long.valueOf(request.pathVariable("id")))
+                .flatMap(planet -> ServerResponse.ok().bodyValue(planet))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> getByName(ServerRequest request) {
+        return planetService.getByName(request.pathVariable("name"))
+                .flatMap(planet -> ServerResponse.ok().bodyValue(planet))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> list(ServerRequest request) {
+        Integer size = request.queryParam("size").map(Integer::valueOf).orElse(null);
+        return planetService.page(param(request, "terrain"), param(request, "climate"), param(request, "cursor"), size)
+                .flatMap(page -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.ok();
+                    if (page.getNextCursor() != null) {
+                        response.header(PlanetController.NEXT_CURSOR, page.getNextCursor());
+                    }
+                    return response.bodyValue(page.getPlanets());
+                });
+    }
+
+    /**
+     * Writes planets as the database hands them over, the client's demand drives how fast rows are read.
+     */
+    public Mono<ServerResponse> stream(ServerRequest request) {
+        MediaType mediaType = request.headers().accept().stream().anyMatch(type -> type.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM))
+                ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON;
+        return ServerResponse.ok()
+                .contentType(mediaType)
+                .body(planetService.stream(param(request, "terrain"), param(request, "climate")), Planet.class);
+    }
+
+    public Mono<ServerResponse> remove(ServerRequest request) {
+        return planetService.remove(Long.valueOf(request.pathVariable("id")))
+                .then(ServerResponse.noContent().build());
+    }
+
+    private static String param(ServerRequest request, String name) {
+        return request.queryParam(name).orElse(null);
+    }
+}
@@ -0,0 +1,84 @@
+package io.wdefassio.starwars.application.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import io.wdefassio.starwars.application.service.PlanetBatchResult;
+import io.wdefassio.starwars.application.service.PlanetBatchService;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Bulk load from an NDJSON or CSV upload of any size. The body is parsed while it arrives and the report is written
+ * back one line per input row as batches commit, so clients should keep reading the response while they upload.
+ */
+@RestController
+@RequestMapping("/planets/import")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PlanetImportController {
+
+    private final PlanetBatchService planetBatchService;
+    private final PlanetProperties planetProperties;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    @PostMapping(consumes = PlanetController.NDJSON, produces = PlanetController.NDJSON)
+    public ResponseEntity<StreamingResponseBody> importNdjson(InputStream body,
+                                                              @RequestParam(required = false) Integer writers,
+                                                              @RequestParam(required = false) Integer batchSize,
+                                                              @RequestParam(defaultValue = "false") boolean dryRun) {
+        return importAll(objectMapper.readerFor(Planet.class), body, writers, batchSize, dryRun);
+    }
+
+    @PostMapping(consumes = PlanetExportController.CSV, produces = PlanetController.NDJSON)
+    public ResponseEntity<StreamingResponseBody> importCsv(InputStream body,
+                                                           @RequestParam(required = false) Integer writers,
+                                                           @RequestParam(required = false) Integer batchSize,
+                                                           @RequestParam(defaultValue = "false") boolean dryRun) {
+        ObjectReader reader = csvMapper.readerFor(Planet.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return importAll(reader, body, writers, batchSize, dryRun);
+    }
+
+    private ResponseEntity<StreamingResponseBody> importAll(ObjectReader reader, InputStream body, Integer writers,
+                                                            Integer batchSize, boolean dryRun) {
+        int writerCount = planetProperties.getImports().resolveWriters(writers);
+        int rowsPerBatch = planetProperties.getImports().resolveBatchSize(batchSize);
+        ObjectWriter writer = objectMapper.writerFor(PlanetBatchResult.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        StreamingResponseBody report = out -> {
+            try (MappingIterator<Planet> planets = reader.readValues(body)) {
+                planetBatchService.importAll(planets, writerCount, rowsPerBatch, dryRun, result -> {
+                    try {
+                        writer.writeValue(out, result);
+                        out.write('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(PlanetController.NDJSON)).body(report);
+    }
+
+}
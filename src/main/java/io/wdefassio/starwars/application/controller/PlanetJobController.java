@@ -0,0 +1,31 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.wdefassio.starwars.application.service.PlanetIngestService;
+import io.wdefassio.starwars.application.service.PlanetJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Outcome of the planets accepted in write-behind mode, kept for {@code job-retention} after they finish.
+ */
+@RestController
+@RequestMapping("/planets/jobs")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "starwars.planets.write-behind", name = "enabled")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PlanetJobController {
+
+    private final PlanetIngestService planetIngestService;
+
+    @GetMapping("/{id}")
+    public ResponseEntity<PlanetJob> job(@PathVariable("id") String id) {
+        return ResponseEntity.of(planetIngestService.job(id));
+    }
+
+}
@@ -0,0 +1,62 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicate;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.util.function.BiFunction;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * The {@code /planets} routes of {@link PlanetController} for the reactive profile, with the status mapping of
+ * {@link GeneralExceptionHandler}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class PlanetRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> planetRoutes(PlanetHandler handler, MeterRegistry meterRegistry) {
+        return route()
+                .POST("/planets", handler::create)
+                .GET("/planets/name/{name}", handler::getByName)
+                .GET("/planets/{id}", handler::get)
+                .GET("/planets", streaming(), handler::stream)
+                .GET("/planets", handler::list)
+                .DELETE("/planets/{id}", handler::remove)
+                .onError(ConstraintViolationException.class, respond(HttpStatus.UNPROCESSABLE_ENTITY, meterRegistry))
+                .onError(DataIntegrityViolationException.class, respond(HttpStatus.CONFLICT, meterRegistry))
+                .onError(EmptyResultDataAccessException.class, respond(HttpStatus.NOT_FOUND, meterRegistry))
+                .onError(ServerWebInputException.class, respond(HttpStatus.BAD_REQUEST, meterRegistry))
+                .onError(IllegalArgumentException.class, respond(HttpStatus.BAD_REQUEST, meterRegistry))
+                .build();
+    }
+
+    /**
+     * Only an explicit streaming type selects the stream, a missing or wildcard {@code Accept} still gets the page.
+     */
+    private static RequestPredicate streaming() {
+        return request -> request.headers().accept().stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON) || type.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM));
+    }
+
+    private static BiFunction<Throwable, ServerRequest, Mono<ServerResponse>> respond(HttpStatus status, MeterRegistry meterRegistry) {
+        return (ex, request) -> {
+            meterRegistry.counter(GeneralExceptionHandler.ERRORS, "status", String.valueOf(status.value()), "exception", ex.getClass().getSimpleName()).increment();
+            return ServerResponse.status(status).bodyValue(String.valueOf(ex.getMessage()));
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.wdefassio.starwars.application.service.PlanetSearchHit;
+import io.wdefassio.starwars.application.service.PlanetSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Type-ahead over planet names: exact and prefix matches first, then word prefixes, substrings and near misses.
+ */
+@RestController
+@RequestMapping("/planets/search")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "starwars.planets.search", name = "enabled")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PlanetSearchController {
+
+    private final PlanetSearchService planetSearchService;
+
+    @GetMapping
+    public ResponseEntity<List<PlanetSearchHit>> search(@RequestParam String q,
+                                                        @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(planetSearchService.search(q, limit));
+    }
+
+}
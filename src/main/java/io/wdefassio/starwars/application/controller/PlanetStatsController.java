@@ -0,0 +1,34 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.wdefassio.starwars.application.service.PlanetStatsService;
+import io.wdefassio.starwars.domain.PlanetStats;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Planet counts for dashboards, answered from in-memory counters instead of a download of the whole list.
+ */
+@RestController
+@RequestMapping("/planets/stats")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PlanetStatsController {
+
+    private final PlanetStatsService planetStatsService;
+    private final PlanetProperties planetProperties;
+
+    @GetMapping
+    public ResponseEntity<PlanetStats> stats() {
+        return ResponseEntity.ok()
+                .cacheControl(planetProperties.getHttp().cacheControl())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(planetStatsService.stats());
+    }
+
+}
@@ -0,0 +1,206 @@
+package io.wdefassio.starwars.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.wdefassio.starwars.application.service.util.NameNormalizer;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.domain.PlanetRevision;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache in front of {@link PlanetServiceImp} for the single planet lookups.
+ * Misses are cached too (for a shorter time) so repeated lookups of missing planets stay off the database.
+ * Concurrent misses of the same key are already coalesced by the delegate, the caches are only written after a load.
+ */
+@Primary
+@Service
+@Timed("planets.service")
+@ConditionalOnProperty(prefix = "starwars.planets.cache", name = "enabled", matchIfMissing = true)
+@ConditionalOnProperty(prefix = "starwars.planets.index", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class CachingPlanetService implements PlanetService {
+    private final PlanetServiceImp delegate;
+    private final Cache<Long, Optional<Planet>> byId;
+    private final Cache<String, Optional<Planet>> byName;
+    /**
+     * Bumped by every write event before it touches the caches. A lookup stores what it loaded only if none ran while
+     * it was reading, else a planet removed or created meanwhile would be cached in its old state.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public CachingPlanetService(PlanetServiceImp delegate, PlanetProperties planetProperties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.byId = newCache(planetProperties.getCache());
+        this.byName = newCache(planetProperties.getCache());
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "planets.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byName, "planets.by-name");
+    }
+
+    @Override
+    public Planet create(Planet planet) {
+        return delegate.create(planet);
+    }
+
+    @Override
+    public Optional<Planet> get(Long id) {
+        Optional<Planet> cached = byId.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = generation.get();
+        Optional<Planet> planet = delegate.get(id);
+        putIfCurrent(byId, id, planet, seen);
+        planet.ifPresent(found -> putIfCurrent(byName, NameNormalizer.normalize(found.getName()), planet, seen));
+        return planet;
+    }
+
+    @Override
+    public Optional<Planet> getByName(String name) {
+        String key = NameNormalizer.normalize(name);
+        Optional<Planet> cached = byName.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = generation.get();
+        Optional<Planet> planet = delegate.getByName(name);
+        putIfCurrent(byName, key, planet, seen);
+        planet.ifPresent(found -> putIfCurrent(byId, found.getId(), planet, seen));
+        return planet;
+    }
+
+    /**
+     * Only the ids missing from the cache go to the database, those not found there are cached as misses.
+     */
+    @Override
+    public List<Planet> getAll(Collection<Long> ids) {
+        Map<Long, Optional<Planet>> planets = new LinkedHashMap<>(byId.getAllPresent(ids));
+        List<Long> missing = ids.stream().distinct().filter(id -> !planets.containsKey(id)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            long seen = generation.get();
+            Map<Long, Optional<Planet>> loaded = new HashMap<>();
+            missing.forEach(id -> loaded.put(id, Optional.empty()));
+            delegate.getAll(missing).forEach(planet -> loaded.put(planet.getId(), Optional.of(planet)));
+            loaded.forEach((id, planet) -> {
+                putIfCurrent(byId, id, planet, seen);
+                planet.ifPresent(found -> putIfCurrent(byName, NameNormalizer.normalize(found.getName()), planet, seen));
+            });
+            planets.putAll(loaded);
+        }
+        return ids.stream().distinct().map(planets::get).flatMap(Optional::stream).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Planet> list(String terrain, String climate) {
+        return delegate.list(terrain, climate);
+    }
+
+    @Override
+    public PlanetPage page(String terrain, String climate, String cursor, Integer size) {
+        return delegate.page(terrain, climate, cursor, size);
+    }
+
+    @Override
+    public PlanetViewPage page(String terrain, String climate, String cursor, Integer size, Set<PlanetField> fields) {
+        return delegate.page(terrain, climate, cursor, size, fields);
+    }
+
+    @Override
+    public PlanetRevision revision() {
+        return delegate.revision();
+    }
+
+    @Override
+    public void stream(String terrain, String climate, Consumer<Planet> consumer) {
+        delegate.stream(terrain, climate, consumer);
+    }
+
+    @Override
+    public void export(Long afterId, Consumer<Planet> consumer) {
+        delegate.export(afterId, consumer);
+    }
+
+    @Override
+    public void remove(Long id) {
+        delegate.remove(id);
+    }
+
+    /**
+     * Follows every committed write, including the batch ones that never pass through this service.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlanetEvent(PlanetEvent event) {
+        if (event.getType() == PlanetEvent.Type.CREATED) {
+            cache(event.getPlanet());
+        } else {
+            evict(event.getPlanet());
+        }
+    }
+
+    /**
+     * Drops every cached entry for the given planet.
+     */
+    public void evict(Planet planet) {
+        generation.incrementAndGet();
+        byId.invalidate(planet.getId());
+        byName.invalidate(NameNormalizer.normalize(planet.getName()));
+    }
+
+    private void cache(Planet planet) {
+        generation.incrementAndGet();
+        Optional<Planet> entry = Optional.of(planet);
+        byId.put(planet.getId(), entry);
+        byName.put(NameNormalizer.normalize(planet.getName()), entry);
+    }
+
+    /**
+     * Atomic with the invalidations of the same key, a write event either ran before and is seen here, or runs after.
+     */
+    private <K> void putIfCurrent(Cache<K, Optional<Planet>> cache, K key, Optional<Planet> planet, long seen) {
+        cache.asMap().compute(key, (k, current) -> generation.get() == seen ? planet : current);
+    }
+
+    private static <K> Cache<K, Optional<Planet>> newCache(PlanetProperties.Cache settings) {
+        long ttl = settings.getTtl().toNanos();
+        long negativeTtl = settings.getNegativeTtl().toNanos();
+        return Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfter(new Expiry<K, Optional<Planet>>() {
+                    @Override
+                    public long expireAfterCreate(K key, Optional<Planet> value, long currentTime) {
+                        return value.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(K key, Optional<Planet> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(K key, Optional<Planet> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+}
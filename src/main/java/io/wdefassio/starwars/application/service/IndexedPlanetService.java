@@ -0,0 +1,181 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.application.service.index.PlanetIndex;
+import io.wdefassio.starwars.application.service.snapshot.PlanetSnapshotStore;
+import io.wdefassio.starwars.application.service.util.PageCursor;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetRevision;
+import io.wdefassio.starwars.domain.PlanetView;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the reads from a {@link PlanetIndex} holding the whole table, writes still go through {@link PlanetServiceImp}
+ * and reach the index through their events. Until the index is warmed every call goes to the database.
+ */
+@Slf4j
+@Primary
+@Service
+@Timed("planets.service")
+@ConditionalOnProperty(prefix = "starwars.planets.index", name = "enabled")
+public class IndexedPlanetService implements PlanetService {
+    private final PlanetServiceImp delegate;
+    private final PlanetProperties planetProperties;
+    private final PlanetIndex index;
+    private final ObjectProvider<PlanetSnapshotStore> snapshots;
+    private final Set<Long> removedWhileWarming = ConcurrentHashMap.newKeySet();
+    private volatile boolean warming;
+    private volatile boolean ready;
+
+    public IndexedPlanetService(PlanetServiceImp delegate, PlanetProperties planetProperties, ObjectProvider<PlanetSnapshotStore> snapshots,
+                                MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.snapshots = snapshots;
+        this.planetProperties = planetProperties;
+        this.index = new PlanetIndex((int) planetProperties.getIndex().getSegmentSize().toBytes());
+        Gauge.builder("planets.index.size", index, PlanetIndex::size).register(meterRegistry);
+        Gauge.builder("planets.index.off-heap", index, PlanetIndex::offHeapBytes).baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Restores the index from the {@link PlanetSnapshotStore} when there is one to restore from, otherwise streams the
+     * table into it. Events arriving meanwhile are applied too, and planets they remove are not brought back by rows
+     * read before the removal.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        long start = System.nanoTime();
+        warming = true;
+        Consumer<Planet> put = planet -> {
+            if (!removedWhileWarming.contains(planet.getId())) {
+                index.put(planet);
+            }
+        };
+        PlanetSnapshotStore snapshot = snapshots.getIfAvailable();
+        boolean restored = snapshot != null && snapshot.restore(put, index::remove);
+        if (!restored) {
+            delegate.stream(null, null, put);
+        }
+        ready = true;
+        warming = false;
+        removedWhileWarming.clear();
+        log.info("Indexed {} planets from the {} in {} ms", index.size(), restored ? "snapshot" : "table", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public Planet create(Planet planet) {
+        return delegate.create(planet);
+    }
+
+    @Override
+    public Optional<Planet> get(Long id) {
+        return ready ? Optional.ofNullable(index.get(id)) : delegate.get(id);
+    }
+
+    @Override
+    public Optional<Planet> getByName(String name) {
+        return ready ? Optional.ofNullable(index.getByName(name)) : delegate.getByName(name);
+    }
+
+    @Override
+    public List<Planet> getAll(Collection<Long> ids) {
+        if (!ready) {
+            return delegate.getAll(ids);
+        }
+        return new LinkedHashSet<>(ids).stream().map(index::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Planet> list(String terrain, String climate) {
+        return ready ? index.page(terrain, climate, 0L, Integer.MAX_VALUE) : delegate.list(terrain, climate);
+    }
+
+    @Override
+    public PlanetPage page(String terrain, String climate, String cursor, Integer size) {
+        if (!ready) {
+            return delegate.page(terrain, climate, cursor, size);
+        }
+        int pageSize = planetProperties.getPage().resolve(size);
+        return PlanetPage.of(index.page(terrain, climate, PageCursor.decode(cursor), pageSize + 1), pageSize);
+    }
+
+    @Override
+    public PlanetViewPage page(String terrain, String climate, String cursor, Integer size, Set<PlanetField> fields) {
+        if (!ready) {
+            return delegate.page(terrain, climate, cursor, size, fields);
+        }
+        int pageSize = planetProperties.getPage().resolve(size);
+        return PlanetViewPage.of(index.page(terrain, climate, PageCursor.decode(cursor), pageSize + 1).stream()
+                .map(planet -> PlanetView.of(planet, fields))
+                .collect(Collectors.toList()), pageSize);
+    }
+
+    @Override
+    public PlanetRevision revision() {
+        return delegate.revision();
+    }
+
+    /**
+     * Walks the index a fetch size at a time so a slow consumer never holds it locked.
+     */
+    @Override
+    public void stream(String terrain, String climate, Consumer<Planet> consumer) {
+        if (!ready) {
+            delegate.stream(terrain, climate, consumer);
+            return;
+        }
+        int fetchSize = planetProperties.getStream().getFetchSize();
+        List<Planet> chunk = index.page(terrain, climate, 0L, fetchSize);
+        while (!chunk.isEmpty()) {
+            chunk.forEach(consumer);
+            chunk = chunk.size() < fetchSize ? List.of() : index.page(terrain, climate, chunk.get(chunk.size() - 1).getId(), fetchSize);
+        }
+    }
+
+    /**
+     * Exports read the database, the source of truth, rather than the index.
+     */
+    @Override
+    public void export(Long afterId, Consumer<Planet> consumer) {
+        delegate.export(afterId, consumer);
+    }
+
+    @Override
+    public void remove(Long id) {
+        delegate.remove(id);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlanetEvent(PlanetEvent event) {
+        if (event.getType() == PlanetEvent.Type.CREATED) {
+            index.put(event.getPlanet());
+        } else {
+            if (warming) {
+                removedWhileWarming.add(event.getPlanet().getId());
+            }
+            index.remove(event.getPlanet().getId());
+        }
+    }
+}
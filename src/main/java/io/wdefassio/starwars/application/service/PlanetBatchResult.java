@@ -0,0 +1,20 @@
+package io.wdefassio.starwars.application.service;
+
+import lombok.Value;
+
+/**
+ * Outcome of one item of a batch request, {@code index} is its position in the request body.
+ * {@code ACCEPTED} is only reported by dry runs, for items that would have been created. {@code FAILED} is a row the
+ * database refused for anything but its name being taken, {@code message} then carries the database's reason.
+ */
+@Value
+public class PlanetBatchResult {
+
+    public enum Status {CREATED, DELETED, CONFLICT, INVALID, NOT_FOUND, ACCEPTED, FAILED}
+
+    int index;
+    Long id;
+    String name;
+    Status status;
+    String message;
+}
@@ -0,0 +1,339 @@
+package io.wdefassio.starwars.application.service;
+
+import io.wdefassio.starwars.application.service.util.NameNormalizer;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetBatchRepository;
+import io.wdefassio.starwars.infra.repository.PlanetRevisionRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static io.wdefassio.starwars.application.service.PlanetBatchResult.Status.*;
+
+/**
+ * Bulk create and delete. Items are consumed from the iterator as they arrive and written in chunks,
+ * each chunk in its own transaction, so neither memory nor lock time grows with the request size.
+ */
+@Service
+@Timed("planets.service")
+public class PlanetBatchService implements DisposableBean {
+    private final PlanetBatchRepository batchRepository;
+    private final PlanetRevisionRepository revisionRepository;
+    private final PlanetProperties planetProperties;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    /**
+     * Writer threads of every import, {@code starwars.planets.imports.max-writers} of them whatever the number of
+     * imports running.
+     */
+    private final ThreadPoolExecutor importWriters;
+
+    public PlanetBatchService(PlanetBatchRepository batchRepository, PlanetRevisionRepository revisionRepository,
+                              PlanetProperties planetProperties, Validator validator, TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher) {
+        this.batchRepository = batchRepository;
+        this.revisionRepository = revisionRepository;
+        this.planetProperties = planetProperties;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        int maxWriters = planetProperties.getImports().getMaxWriters();
+        AtomicInteger threads = new AtomicInteger();
+        this.importWriters = new ThreadPoolExecutor(maxWriters, maxWriters, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "planet-import-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.importWriters.allowCoreThreadTimeOut(true);
+    }
+
+    public List<PlanetBatchResult> createAll(Iterator<Planet> planets) {
+        int chunkSize = planetProperties.getBatch().getChunkSize();
+        List<PlanetBatchResult> results = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        List<Item<Planet>> chunk = new ArrayList<>(chunkSize);
+        for (int index = 0; planets.hasNext(); index++) {
+            Planet planet = planets.next();
+            Set<ConstraintViolation<Planet>> violations = validator.validate(planet);
+            if (!violations.isEmpty()) {
+                results.add(new PlanetBatchResult(index, null, planet.getName(), INVALID, describe(violations)));
+            } else if (!names.add(NameNormalizer.normalize(planet.getName()))) {
+                results.add(new PlanetBatchResult(index, null, planet.getName(), CONFLICT, "duplicated name in request"));
+            } else {
+                planet.setId(null);
+                chunk.add(new Item<>(index, planet));
+            }
+            if (chunk.size() == chunkSize) {
+                results.addAll(insertChunk(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(insertChunk(chunk));
+        }
+        results.sort(Comparator.comparingInt(PlanetBatchResult::getIndex));
+        return results;
+    }
+
+    /**
+     * Streams an upload of any size into the table. Rows are validated as they are read and handed in batches to
+     * {@code writers} of the shared import threads; once every writer is busy and has a batch waiting, reading blocks,
+     * so a slow database slows the upload down instead of filling the heap. Results reach {@code report} as batches finish, one call at
+     * a time but not in input order. Names repeated across batches are left to the unique index, a dry run only
+     * checks them against the table and within each batch.
+     */
+    public void importAll(Iterator<Planet> planets, int writers, int batchSize, boolean dryRun, Consumer<PlanetBatchResult> report) {
+        Consumer<PlanetBatchResult> sink = result -> {
+            synchronized (report) {
+                report.accept(result);
+            }
+        };
+        ImportRun run = new ImportRun(writers, dryRun, sink);
+        try {
+            List<Item<Planet>> chunk = new ArrayList<>(batchSize);
+            Set<String> names = new HashSet<>();
+            for (int index = 0; run.failure.get() == null; index++) {
+                Planet planet;
+                try {
+                    if (!planets.hasNext()) {
+                        break;
+                    }
+                    planet = planets.next();
+                } catch (RuntimeException ex) {
+                    // the parser cannot resynchronise reliably, stop at the first unreadable line
+                    sink.accept(new PlanetBatchResult(index, null, null, INVALID, "unreadable input: " + ex.getMessage()));
+                    break;
+                }
+                Set<ConstraintViolation<Planet>> violations = validator.validate(planet);
+                if (!violations.isEmpty()) {
+                    sink.accept(new PlanetBatchResult(index, null, planet.getName(), INVALID, describe(violations)));
+                } else if (!names.add(NameNormalizer.normalize(planet.getName()))) {
+                    sink.accept(new PlanetBatchResult(index, null, planet.getName(), CONFLICT, "duplicated name in request"));
+                } else {
+                    planet.setId(null);
+                    chunk.add(new Item<>(index, planet));
+                }
+                if (chunk.size() == batchSize) {
+                    run.submit(chunk);
+                    chunk = new ArrayList<>(batchSize);
+                    names.clear();
+                }
+            }
+            if (!chunk.isEmpty() && run.failure.get() == null) {
+                run.submit(chunk);
+            }
+        } finally {
+            run.await();
+        }
+        if (run.failure.get() != null) {
+            throw run.failure.get();
+        }
+    }
+
+    public List<PlanetBatchResult> removeAll(Iterator<Long> ids) {
+        int chunkSize = planetProperties.getBatch().getChunkSize();
+        List<PlanetBatchResult> results = new ArrayList<>();
+        List<Item<Long>> chunk = new ArrayList<>(chunkSize);
+        for (int index = 0; ids.hasNext(); index++) {
+            chunk.add(new Item<>(index, ids.next()));
+            if (chunk.size() == chunkSize) {
+                results.addAll(deleteChunk(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(deleteChunk(chunk));
+        }
+        return results;
+    }
+
+    private List<PlanetBatchResult> checkChunk(List<Item<Planet>> chunk) {
+        Set<String> existing = existingNames(chunk);
+        return chunk.stream().map(item -> existing.contains(NameNormalizer.normalize(item.value.getName()))
+                ? new PlanetBatchResult(item.index, null, item.value.getName(), CONFLICT, "name already exists")
+                : new PlanetBatchResult(item.index, null, item.value.getName(), ACCEPTED, null)).collect(Collectors.toList());
+    }
+
+    private Set<String> existingNames(List<Item<Planet>> chunk) {
+        return batchRepository.findExistingNames(chunk.stream().map(item -> item.value.getName()).collect(Collectors.toList()))
+                .stream().map(NameNormalizer::normalize).collect(Collectors.toSet());
+    }
+
+    private List<PlanetBatchResult> insertChunk(List<Item<Planet>> chunk) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Set<String> existing = existingNames(chunk);
+                List<PlanetBatchResult> results = new ArrayList<>(chunk.size());
+                List<Item<Planet>> fresh = new ArrayList<>(chunk.size());
+                for (Item<Planet> item : chunk) {
+                    if (existing.contains(NameNormalizer.normalize(item.value.getName()))) {
+                        results.add(new PlanetBatchResult(item.index, null, item.value.getName(), CONFLICT, "name already exists"));
+                    } else {
+                        fresh.add(item);
+                    }
+                }
+                if (!fresh.isEmpty()) {
+                    batchRepository.insertAll(fresh.stream().map(item -> item.value).collect(Collectors.toList()));
+                    revisionRepository.bump();
+                }
+                fresh.forEach(item -> {
+                    eventPublisher.publishEvent(PlanetEvent.created(item.value));
+                    results.add(new PlanetBatchResult(item.index, item.value.getId(), item.value.getName(), CREATED, null));
+                });
+                return results;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // a concurrent writer took one of the names between the check and the insert, or a row is bad, isolate it
+            chunk.forEach(item -> item.value.setId(null));
+            return chunk.stream().map(this::insertOne).collect(Collectors.toList());
+        }
+    }
+
+    private PlanetBatchResult insertOne(Item<Planet> item) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batchRepository.insertAll(List.of(item.value));
+                revisionRepository.bump();
+                eventPublisher.publishEvent(PlanetEvent.created(item.value));
+            });
+            return new PlanetBatchResult(item.index, item.value.getId(), item.value.getName(), CREATED, null);
+        } catch (DuplicateKeyException ex) {
+            // the id is generated, so the name is the only unique key a new row can collide on
+            return new PlanetBatchResult(item.index, null, item.value.getName(), CONFLICT, "name already exists");
+        } catch (DataIntegrityViolationException ex) {
+            return new PlanetBatchResult(item.index, null, item.value.getName(), FAILED, ex.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private List<PlanetBatchResult> deleteChunk(List<Item<Long>> chunk) {
+        return transactionTemplate.execute(status -> {
+            Map<Long, Planet> existing = batchRepository.findAllByIds(chunk.stream().map(item -> item.value).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(Planet::getId, Function.identity()));
+            if (!existing.isEmpty()) {
+                batchRepository.deleteAllByIds(existing.keySet());
+                revisionRepository.bump();
+                existing.values().forEach(planet -> eventPublisher.publishEvent(PlanetEvent.removed(planet)));
+            }
+            return chunk.stream().map(item -> {
+                Planet planet = existing.get(item.value);
+                return planet == null
+                        ? new PlanetBatchResult(item.index, item.value, null, NOT_FOUND, null)
+                        : new PlanetBatchResult(item.index, item.value, planet.getName(), DELETED, null);
+            }).collect(Collectors.toList());
+        });
+    }
+
+    @Override
+    public void destroy() {
+        importWriters.shutdownNow();
+    }
+
+    private static String describe(Set<ConstraintViolation<Planet>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * The batches of one import, written by at most {@code writers} of the shared threads at a time. Up to twice as many
+     * batches wait, past that {@link #submit} blocks the reader.
+     */
+    private class ImportRun {
+        private final int writers;
+        private final boolean dryRun;
+        private final Consumer<PlanetBatchResult> report;
+        private final Semaphore inFlight;
+        private final Queue<List<Item<Planet>>> batches = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        ImportRun(int writers, boolean dryRun, Consumer<PlanetBatchResult> report) {
+            this.writers = writers;
+            this.dryRun = dryRun;
+            this.report = report;
+            this.inFlight = new Semaphore(writers * 2);
+        }
+
+        void submit(List<Item<Planet>> chunk) {
+            inFlight.acquireUninterruptibly();
+            batches.add(chunk);
+            dispatch();
+        }
+
+        /**
+         * Waits until every submitted batch is written.
+         */
+        void await() {
+            inFlight.acquireUninterruptibly(writers * 2);
+        }
+
+        private void dispatch() {
+            for (int current = running.get(); current < writers && !batches.isEmpty(); current = running.get()) {
+                if (running.compareAndSet(current, current + 1)) {
+                    try {
+                        importWriters.execute(this::drain);
+                    } catch (RejectedExecutionException ex) {
+                        running.decrementAndGet();
+                        failure.compareAndSet(null, ex);
+                        while (batches.poll() != null) {
+                            inFlight.release();
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void drain() {
+            for (List<Item<Planet>> chunk = batches.poll(); chunk != null; chunk = batches.poll()) {
+                try {
+                    (dryRun ? checkChunk(chunk) : insertChunk(chunk)).forEach(report);
+                } catch (RuntimeException ex) {
+                    failure.compareAndSet(null, ex);
+                } finally {
+                    inFlight.release();
+                }
+            }
+            running.decrementAndGet();
+            // a batch added after the last poll saw this writer still running
+            dispatch();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Item<T> {
+        private final int index;
+        private final T value;
+    }
+}
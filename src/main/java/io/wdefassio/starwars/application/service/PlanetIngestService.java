@@ -0,0 +1,246 @@
+package io.wdefassio.starwars.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.application.service.ingest.PlanetIngestLog;
+import io.wdefassio.starwars.application.service.util.NameNormalizer;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind creation of planets. A request reserves the name in memory, appends the planet to the
+ * {@link PlanetIngestLog} and is answered right away; a single writer thread drains the queue in batches through
+ * {@link PlanetBatchService#createAll}, so request threads never wait for a connection or a commit.
+ * <p>
+ * A name stays reserved until its planet is written, so there is never more than one creation of a name in flight
+ * and they reach the table in the order they were accepted. Names already in the table are only found by the writer
+ * and end the job as {@code CONFLICT}.
+ * <p>
+ * After a restart the planets the log holds are queued again. Some of them may have been written just before the
+ * stop, a conflict with an identical planet then counts as created.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "starwars.planets.write-behind", name = "enabled")
+public class PlanetIngestService implements DisposableBean {
+    private final PlanetBatchService planetBatchService;
+    private final PlanetRepository planetRepository;
+    private final PlanetProperties.WriteBehind settings;
+    private final TransactionTemplate readOnly;
+    private final PlanetIngestLog journal;
+    private final Queue<Accepted> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<String, String> reserved = new ConcurrentHashMap<>();
+    private final Map<String, PlanetJob> pending = new ConcurrentHashMap<>();
+    private final Cache<String, PlanetJob> finished;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public PlanetIngestService(PlanetBatchService planetBatchService, PlanetRepository planetRepository, PlanetProperties planetProperties,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) throws IOException {
+        this.planetBatchService = planetBatchService;
+        this.planetRepository = planetRepository;
+        this.settings = planetProperties.getWriteBehind();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.finished = Caffeine.newBuilder().expireAfterWrite(settings.getJobRetention()).build();
+        this.journal = new PlanetIngestLog(settings.getLog(), settings.isSync());
+        for (PlanetIngestLog.Entry entry : journal.recovered()) {
+            reserved.put(NameNormalizer.normalize(entry.getPlanet().getName()), entry.getJob());
+            pending.put(entry.getJob(), PlanetJob.pending(entry.getJob(), entry.getPlanet().getName()));
+            queue.add(new Accepted(entry.getSequence(), entry.getJob(), entry.getPlanet(), true));
+            queued.incrementAndGet();
+        }
+        if (!journal.recovered().isEmpty()) {
+            log.info("Recovered {} planets accepted before the restart from {}", journal.recovered().size(), settings.getLog());
+        }
+        Gauge.builder("planets.write-behind.queue", queued, AtomicInteger::get)
+                .description("Planets accepted but not yet written")
+                .register(meterRegistry);
+        this.writer = new Thread(this::drain, "planet-ingest");
+        this.writer.setDaemon(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * @throws DataIntegrityViolationException when a planet of the same name is still waiting to be written
+     * @throws RejectedExecutionException      when the queue is full or the service is stopping
+     */
+    public PlanetJob submit(Planet planet) {
+        String name = NameNormalizer.normalize(planet.getName());
+        String id = UUID.randomUUID().toString();
+        if (reserved.putIfAbsent(name, id) != null) {
+            throw new DataIntegrityViolationException("planet " + planet.getName() + " is already being created");
+        }
+        if (closed || !reserveSlot()) {
+            reserved.remove(name, id);
+            throw new RejectedExecutionException(closed ? "planet creation is stopping" : "too many planets waiting to be written");
+        }
+        Planet copy = new Planet(null, planet.getName(), planet.getClimate(), planet.getTerrain());
+        PlanetJob job = PlanetJob.pending(id, copy.getName());
+        try {
+            long sequence = journal.append(id, copy);
+            pending.put(id, job);
+            queue.add(new Accepted(sequence, id, copy, false));
+        } catch (IOException ex) {
+            queued.decrementAndGet();
+            reserved.remove(name, id);
+            throw new UncheckedIOException("could not log the planet", ex);
+        }
+        LockSupport.unpark(writer);
+        return job;
+    }
+
+    public Optional<PlanetJob> job(String id) {
+        PlanetJob job = pending.get(id);
+        return Optional.ofNullable(job != null ? job : finished.getIfPresent(id));
+    }
+
+    /**
+     * Stops the writer after its current batch, planets still queued stay in the log for the next start.
+     */
+    @Override
+    public void destroy() throws Exception {
+        closed = true;
+        LockSupport.unpark(writer);
+        if (writer.isAlive()) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        journal.close();
+    }
+
+    private boolean reserveSlot() {
+        for (;;) {
+            int current = queued.get();
+            if (current >= settings.getCapacity()) {
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void drain() {
+        List<Accepted> batch = new ArrayList<>(settings.getBatchSize());
+        while (!closed) {
+            for (Accepted next = queue.peek(); next != null && batch.size() < settings.getBatchSize(); next = queue.peek()) {
+                batch.add(queue.poll());
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                continue;
+            }
+            if (write(batch)) {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * @return false when the service stopped before the batch could be written
+     */
+    private boolean write(List<Accepted> batch) {
+        for (boolean retried = false; !closed; retried = true) {
+            try {
+                List<PlanetBatchResult> results = planetBatchService.createAll(batch.stream()
+                        .map(accepted -> new Planet(null, accepted.planet.getName(), accepted.planet.getClimate(), accepted.planet.getTerrain()))
+                        .iterator());
+                for (PlanetBatchResult result : results) {
+                    Accepted accepted = batch.get(result.getIndex());
+                    finish(accepted, outcome(accepted, result, retried || accepted.recovered));
+                }
+                commit(batch);
+                return true;
+            } catch (RuntimeException ex) {
+                log.warn("Could not write {} accepted planets, retrying in {}", batch.size(), settings.getRetryDelay(), ex);
+                LockSupport.parkNanos(this, settings.getRetryDelay().toNanos());
+            }
+        }
+        return false;
+    }
+
+    private PlanetJob outcome(Accepted accepted, PlanetBatchResult result, boolean redelivered) {
+        Planet planet = accepted.planet;
+        switch (result.getStatus()) {
+            case CREATED:
+                return new PlanetJob(accepted.job, PlanetJob.Status.CREATED, result.getId(), planet.getName(), null);
+            case CONFLICT:
+                if (redelivered) {
+                    Optional<Planet> existing = readOnly.execute(status -> planetRepository.findByName(planet.getName()));
+                    if (existing.isPresent() && Objects.equals(existing.get().getName(), planet.getName())
+                            && Objects.equals(existing.get().getClimate(), planet.getClimate())
+                            && Objects.equals(existing.get().getTerrain(), planet.getTerrain())) {
+                        return new PlanetJob(accepted.job, PlanetJob.Status.CREATED, existing.get().getId(), planet.getName(), null);
+                    }
+                }
+                return new PlanetJob(accepted.job, PlanetJob.Status.CONFLICT, null, planet.getName(), result.getMessage());
+            default:
+                return new PlanetJob(accepted.job, PlanetJob.Status.FAILED, null, planet.getName(), result.getMessage());
+        }
+    }
+
+    /**
+     * Only the first call for a job counts, a batch retried after a partial failure finishes some of them again.
+     */
+    private void finish(Accepted accepted, PlanetJob job) {
+        if (!pending.containsKey(accepted.job)) {
+            return;
+        }
+        finished.put(accepted.job, job);
+        pending.remove(accepted.job);
+        reserved.remove(NameNormalizer.normalize(accepted.planet.getName()), accepted.job);
+        queued.decrementAndGet();
+    }
+
+    private void commit(List<Accepted> batch) {
+        try {
+            journal.commit(batch.stream().map(accepted -> accepted.sequence).collect(Collectors.toList()));
+        } catch (IOException ex) {
+            // the planets are written, replaying them after a restart finds them as identical conflicts
+            log.warn("Could not mark {} planets as written", batch.size(), ex);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Accepted {
+        private final long sequence;
+        private final String job;
+        private final Planet planet;
+        private final boolean recovered;
+    }
+}
@@ -0,0 +1,22 @@
+package io.wdefassio.starwars.application.service;
+
+import lombok.Value;
+
+/**
+ * State of a planet accepted by the write-behind mode, {@code planetId} is set once it is {@code CREATED}.
+ */
+@Value
+public class PlanetJob {
+
+    public enum Status {PENDING, CREATED, CONFLICT, FAILED}
+
+    String id;
+    Status status;
+    Long planetId;
+    String name;
+    String message;
+
+    static PlanetJob pending(String id, String name) {
+        return new PlanetJob(id, Status.PENDING, null, name, null);
+    }
+}
@@ -0,0 +1,162 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.datasource.ReplicaRoutingDataSource;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Gathers concurrent lookups by id and resolves them with one {@code IN} query. A dispatcher thread takes the first
+ * waiting lookup, collects whatever else arrives within {@code window} up to {@code max-batch-size} ids, and runs the
+ * query in its own read-only transaction. While it runs the next batch fills up, so batches grow with the load.
+ * <p>
+ * Lookups that must see the caller's own writes, inside a write transaction or after one in the same request, are not
+ * batched: the dispatcher could read from a replica or before the caller commits.
+ */
+@Slf4j
+@Component
+public class PlanetLookupBatcher implements DisposableBean {
+    private final PlanetRepository planetRepository;
+    private final PlanetProperties.Lookup settings;
+    private final TransactionTemplate readOnly;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<Lookup> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    public PlanetLookupBatcher(PlanetRepository planetRepository, PlanetProperties planetProperties,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.planetRepository = planetRepository;
+        this.settings = planetProperties.getLookup();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.batchSizes = DistributionSummary.builder("planets.lookup.batch")
+                .description("Lookups by id resolved by one query")
+                .register(meterRegistry);
+        this.dispatcher = new Thread(this::dispatch, "planet-lookup-batcher");
+        this.dispatcher.setDaemon(true);
+        if (settings.isBatching()) {
+            dispatcher.start();
+        }
+    }
+
+    /**
+     * Whether a lookup on the current thread may be batched.
+     */
+    public boolean canBatch() {
+        if (!settings.isBatching() || closed || ReplicaRoutingDataSource.isPinned()) {
+            return false;
+        }
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * Waits up to {@code timeout} for the batch, then cancels the lookup and reads the planet on the calling thread so
+     * a stalled dispatcher cannot hold up its callers.
+     */
+    public Optional<Planet> find(Long id) {
+        Lookup lookup = new Lookup(id, new CompletableFuture<>());
+        queue.add(lookup);
+        if (closed) {
+            lookup.result.cancel(false);
+        }
+        try {
+            return lookup.result.get(settings.getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            lookup.result.cancel(false);
+            log.debug("Batched lookup of planet {} timed out, reading it directly", id);
+            return readOnly.execute(status -> planetRepository.findById(id));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for a batched planet lookup");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private void dispatch() {
+        long window = settings.getWindow().toNanos();
+        int maxBatchSize = settings.getMaxBatchSize();
+        List<Lookup> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + window;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Lookup next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                resolve(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            batch.forEach(lookup -> lookup.result.cancel(false));
+        }
+    }
+
+    private void resolve(List<Lookup> batch) {
+        Set<Long> ids = batch.stream().map(lookup -> lookup.id).collect(Collectors.toCollection(LinkedHashSet::new));
+        batchSizes.record(batch.size());
+        try {
+            Map<Long, Planet> found = readOnly.execute(status -> planetRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Planet::getId, Function.identity())));
+            batch.forEach(lookup -> lookup.result.complete(Optional.ofNullable(found.get(lookup.id))));
+        } catch (RuntimeException ex) {
+            log.debug("Batched lookup of {} planets failed", ids.size(), ex);
+            batch.forEach(lookup -> lookup.result.completeExceptionally(ex));
+        }
+    }
+
+    /**
+     * Stops the dispatcher, lookups still waiting fail with a {@link CancellationException}.
+     */
+    @Override
+    public void destroy() {
+        closed = true;
+        dispatcher.interrupt();
+        for (Lookup lookup = queue.poll(); lookup != null; lookup = queue.poll()) {
+            lookup.result.cancel(false);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Lookup {
+        private final Long id;
+        private final CompletableFuture<Optional<Planet>> result;
+    }
+}
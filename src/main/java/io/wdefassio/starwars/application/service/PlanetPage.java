@@ -0,0 +1,27 @@
+package io.wdefassio.starwars.application.service;
+
+import io.wdefassio.starwars.application.service.util.PageCursor;
+import io.wdefassio.starwars.domain.Planet;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class PlanetPage {
+    List<Planet> planets;
+    /**
+     * Token for the next page, {@code null} when this is the last one.
+     */
+    String nextCursor;
+
+    /**
+     * Builds a page from a keyset query that fetched one row more than {@code pageSize}.
+     */
+    public static PlanetPage of(List<Planet> planets, int pageSize) {
+        if (planets.size() <= pageSize) {
+            return new PlanetPage(planets, null);
+        }
+        List<Planet> content = planets.subList(0, pageSize);
+        return new PlanetPage(content, PageCursor.encode(content.get(pageSize - 1).getId()));
+    }
+}
@@ -0,0 +1,17 @@
+package io.wdefassio.starwars.application.service;
+
+import lombok.Value;
+
+/**
+ * One search result. Results come ranked by {@code match}, in declaration order, and within a match kind by how close
+ * the name is to the query.
+ */
+@Value
+public class PlanetSearchHit {
+
+    public enum Match {EXACT, PREFIX, WORD_PREFIX, INFIX, FUZZY}
+
+    Long id;
+    String name;
+    Match match;
+}
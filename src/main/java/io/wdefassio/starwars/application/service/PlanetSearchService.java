@@ -0,0 +1,104 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.application.service.index.PlanetNameIndex;
+import io.wdefassio.starwars.application.service.snapshot.PlanetSnapshotStore;
+import io.wdefassio.starwars.application.service.util.NameNormalizer;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Name search backed by a {@link PlanetNameIndex} of the whole table, kept current by the planet events of this node and,
+ * with the change feed on, of the others. Until the index is warmed only prefix matches are served, from the database.
+ */
+@Slf4j
+@Service
+@Timed("planets.service")
+@ConditionalOnProperty(prefix = "starwars.planets.search", name = "enabled")
+public class PlanetSearchService {
+    private final PlanetServiceImp planetService;
+    private final PlanetRepository planetRepository;
+    private final PlanetProperties planetProperties;
+    private final PlanetNameIndex index = new PlanetNameIndex();
+    private final ObjectProvider<PlanetSnapshotStore> snapshots;
+    private final Set<Long> removedWhileWarming = ConcurrentHashMap.newKeySet();
+    private volatile boolean warming;
+    private volatile boolean ready;
+
+    public PlanetSearchService(PlanetServiceImp planetService, PlanetRepository planetRepository, PlanetProperties planetProperties,
+                               ObjectProvider<PlanetSnapshotStore> snapshots, MeterRegistry meterRegistry) {
+        this.planetService = planetService;
+        this.snapshots = snapshots;
+        this.planetRepository = planetRepository;
+        this.planetProperties = planetProperties;
+        Gauge.builder("planets.search.size", index, PlanetNameIndex::size).register(meterRegistry);
+    }
+
+    /**
+     * Same warm-up as {@link IndexedPlanetService#warm()}: removals seen meanwhile win over the rows read.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        long start = System.nanoTime();
+        warming = true;
+        Consumer<Planet> put = planet -> {
+            if (!removedWhileWarming.contains(planet.getId())) {
+                index.put(planet);
+            }
+        };
+        PlanetSnapshotStore snapshot = snapshots.getIfAvailable();
+        boolean restored = snapshot != null && snapshot.restore(put, index::remove);
+        if (!restored) {
+            planetService.stream(null, null, put);
+        }
+        ready = true;
+        warming = false;
+        removedWhileWarming.clear();
+        log.info("Indexed {} planet names for search from the {} in {} ms", index.size(), restored ? "snapshot" : "table", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public List<PlanetSearchHit> search(String query, Integer limit) {
+        int resolved = planetProperties.getSearch().resolve(limit);
+        String key = NameNormalizer.normalize(query);
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("search query must not be blank");
+        }
+        if (ready) {
+            return index.search(key, resolved);
+        }
+        return planetRepository.findByNameStartingWithIgnoreCaseOrderByName(query.trim(), Limit.of(resolved)).stream()
+                .map(planet -> new PlanetSearchHit(planet.getId(), planet.getName(),
+                        NameNormalizer.normalize(planet.getName()).equals(key) ? PlanetSearchHit.Match.EXACT : PlanetSearchHit.Match.PREFIX))
+                .collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlanetEvent(PlanetEvent event) {
+        if (event.getType() == PlanetEvent.Type.CREATED) {
+            index.put(event.getPlanet());
+        } else {
+            if (warming) {
+                removedWhileWarming.add(event.getPlanet().getId());
+            }
+            index.remove(event.getPlanet().getId());
+        }
+    }
+}
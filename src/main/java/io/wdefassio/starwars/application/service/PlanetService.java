@@ -1,12 +1,16 @@
 package io.wdefassio.starwars.application.service;
 
 import io.wdefassio.starwars.domain.Planet;
-import net.bytebuddy.jar.asm.commons.Remapper;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetRevision;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 
 public interface PlanetService {
@@ -14,6 +18,12 @@ public interface PlanetService {
     Planet create(Planet planet);
     Optional<Planet> get(Long id);
     Optional<Planet> getByName(String name);
+    List<Planet> getAll(Collection<Long> ids);
     List<Planet> list(String terrain, String climate);
+    PlanetPage page(String terrain, String climate, String cursor, Integer size);
+    PlanetViewPage page(String terrain, String climate, String cursor, Integer size, Set<PlanetField> fields);
+    PlanetRevision revision();
+    void stream(String terrain, String climate, Consumer<Planet> consumer);
+    void export(Long afterId, Consumer<Planet> consumer);
     void remove(Long id);
 }
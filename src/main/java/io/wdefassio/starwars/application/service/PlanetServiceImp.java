@@ -1,45 +1,198 @@
 package io.wdefassio.starwars.application.service;
 
-import io.wdefassio.starwars.application.service.util.QueryBuilder;
+import io.wdefassio.starwars.application.service.util.NameNormalizer;
+import io.wdefassio.starwars.application.service.util.PageCursor;
+import io.wdefassio.starwars.application.service.util.SingleFlight;
 import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.domain.PlanetRevision;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
 import io.wdefassio.starwars.infra.repository.PlanetRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import io.wdefassio.starwars.infra.repository.PlanetRevisionRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Concurrent lookups of the same id, name or filter share one query, see {@link SingleFlight}. Those lookups open
+ * their read-only transaction only around the query, a caller waiting for someone else's never holds a connection.
+ * Timed apart from {@code planets.service}, which the cache or index in front records, so it only counts what got
+ * past them. With both turned off this is all there is.
+ */
 @Service
-@RequiredArgsConstructor
+@Timed("planets.service.loads")
 public class PlanetServiceImp implements PlanetService {
     private final PlanetRepository planetRepository;
+    private final PlanetRevisionRepository revisionRepository;
+    private final PlanetProperties planetProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlanetLookupBatcher lookupBatcher;
+    private final TransactionTemplate readOnly;
+    private final SingleFlight<Long, Optional<Planet>> byId;
+    private final SingleFlight<String, Optional<Planet>> byName;
+    private final SingleFlight<Filter, List<Planet>> byFilter;
+
+    public PlanetServiceImp(PlanetRepository planetRepository, PlanetRevisionRepository revisionRepository,
+                            PlanetProperties planetProperties, ApplicationEventPublisher eventPublisher,
+                            PlanetLookupBatcher lookupBatcher, PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.planetRepository = planetRepository;
+        this.revisionRepository = revisionRepository;
+        this.planetProperties = planetProperties;
+        this.eventPublisher = eventPublisher;
+        this.lookupBatcher = lookupBatcher;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.byId = new SingleFlight<>(coalesced(meterRegistry, "id"));
+        this.byName = new SingleFlight<>(coalesced(meterRegistry, "name"));
+        this.byFilter = new SingleFlight<>(coalesced(meterRegistry, "filter"));
+    }
 
     @Override
+    @Transactional
     public Planet create(Planet planet) {
-        return planetRepository.save(planet);
+        Planet created = planetRepository.save(planet);
+        revisionRepository.bump();
+        eventPublisher.publishEvent(PlanetEvent.created(created));
+        return created;
     }
 
     @Override
     public Optional<Planet> get(Long id) {
-        return planetRepository.findById(id);
+        return byId.run(id, () -> lookupBatcher.canBatch()
+                ? lookupBatcher.find(id)
+                : readOnly.execute(status -> planetRepository.findById(id)));
     }
 
     @Override
     public Optional<Planet> getByName(String name) {
-        return planetRepository.findByName(name);
+        return byName.run(NameNormalizer.normalize(name), () -> readOnly.execute(status -> planetRepository.findByName(name)));
     }
 
+    /**
+     * The planets found, in the order of {@code ids} without repeats, one {@code IN} query per batch of ids.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Planet> getAll(Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        int batchSize = planetProperties.getLookup().getMaxBatchSize();
+        Map<Long, Planet> found = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += batchSize) {
+            planetRepository.findAllById(distinct.subList(from, Math.min(from + batchSize, distinct.size())))
+                    .forEach(planet -> found.put(planet.getId(), planet));
+        }
+        return distinct.stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Callers joining a running query share its list, it must not be modified.
+     */
     @Override
     public List<Planet> list(String terrain, String climate) {
-        Planet findPlanet = new Planet(null, null, climate, terrain);
-        Example<Planet> planetExample = QueryBuilder.makeQuery(findPlanet);
-        return planetRepository.findAll(planetExample);
+        return byFilter.run(new Filter(terrain, climate), () -> readOnly.execute(status -> planetRepository.findFiltered(terrain, climate)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PlanetPage page(String terrain, String climate, String cursor, Integer size) {
+        int pageSize = planetProperties.getPage().resolve(size);
+        List<Planet> planets = planetRepository.findFiltered(terrain, climate, PageCursor.decode(cursor), pageSize + 1);
+        return PlanetPage.of(planets, pageSize);
+    }
+
+    /**
+     * Keyset page selecting only the requested columns.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PlanetViewPage page(String terrain, String climate, String cursor, Integer size, Set<PlanetField> fields) {
+        int pageSize = planetProperties.getPage().resolve(size);
+        return PlanetViewPage.of(planetRepository.findFiltered(terrain, climate, PageCursor.decode(cursor), pageSize + 1, fields), pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PlanetRevision revision() {
+        return revisionRepository.current();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void stream(String terrain, String climate, Consumer<Planet> consumer) {
+        stream(terrain, climate, 0L, consumer);
+    }
+
+    /**
+     * The whole table in id order from a forward-only cursor, each planet is detached once read so the
+     * persistence context stays empty however many rows go by.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void export(Long afterId, Consumer<Planet> consumer) {
+        stream(null, null, afterId == null ? 0L : afterId, consumer);
+    }
+
+    private void stream(String terrain, String climate, long afterId, Consumer<Planet> consumer) {
+        int fetchSize = planetProperties.getStream().getFetchSize();
+        try (Stream<Planet> planets = planetRepository.streamFiltered(terrain, climate, afterId, fetchSize)) {
+            planets.forEach(consumer);
+        }
+    }
+
+    @Override
+    @Transactional
     public void remove(Long id) {
-        planetRepository.deleteById(id);
+        Planet planet = planetRepository.findById(id)
+                .orElseThrow(() -> new EmptyResultDataAccessException(String.format("No planet with id %s exists!", id), 1));
+        planetRepository.delete(planet);
+        planetRepository.flush();
+        revisionRepository.bump();
+        eventPublisher.publishEvent(PlanetEvent.removed(planet));
+    }
+
+    /**
+     * Lookups started before a write may return what it replaced, later ones must not join them.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlanetEvent(PlanetEvent event) {
+        byId.forget(event.getPlanet().getId());
+        byName.forget(NameNormalizer.normalize(event.getPlanet().getName()));
+        byFilter.forgetAll();
+    }
+
+    private static Counter coalesced(MeterRegistry meterRegistry, String lookup) {
+        return Counter.builder("planets.coalesced")
+                .description("Lookups answered by joining an identical query already running")
+                .tag("lookup", lookup)
+                .register(meterRegistry);
+    }
+
+    @Value
+    private static class Filter {
+        String terrain;
+        String climate;
     }
 }
@@ -0,0 +1,172 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.application.service.util.NameNormalizer;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.domain.PlanetStats;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Planet counts kept in memory, one counter per climate and terrain pair, so reading them costs the number of
+ * distinct pairs rather than a scan. Counters follow the writes of this node through their events and are replaced
+ * periodically by a {@code GROUP BY}, which also brings in the writes of other nodes. Replicated events are not
+ * counted since the change feed replays this node's own writes as well.
+ * <p>
+ * Writes landing while the query runs are counted again on top of its result, one that committed just before the
+ * query started is then counted twice until the next reconciliation.
+ */
+@Slf4j
+@Service
+public class PlanetStatsService implements DisposableBean {
+    private final PlanetRepository planetRepository;
+    private final PlanetProperties planetProperties;
+    private final TransactionTemplate readOnly;
+    private final DistributionSummary drift;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService scheduler;
+    private Map<Pair, LongAdder> counts = new ConcurrentHashMap<>();
+    private Map<Pair, LongAdder> pending;
+    private volatile boolean ready;
+
+    public PlanetStatsService(PlanetRepository planetRepository, PlanetProperties planetProperties,
+                              PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.planetRepository = planetRepository;
+        this.planetProperties = planetProperties;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.drift = DistributionSummary.builder("planets.stats.drift")
+                .description("Planets the counters were off by when reconciled")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "planet-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reconcile();
+        long interval = planetProperties.getStats().getReconcileInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Straight from the table until the first reconciliation has loaded the counters.
+     */
+    public PlanetStats stats() {
+        if (!ready) {
+            return PlanetStats.of(readOnly.execute(status -> planetRepository.countGroups()));
+        }
+        lock.readLock().lock();
+        try {
+            return PlanetStats.of(counts.entrySet().stream()
+                    .map(entry -> new PlanetStats.Group(entry.getKey().climate, entry.getKey().terrain, entry.getValue().sum()))
+                    .collect(Collectors.toList()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public synchronized void reconcile() {
+        lock.writeLock().lock();
+        try {
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Map<Pair, LongAdder> fresh = null;
+        try {
+            Map<Pair, LongAdder> counted = new ConcurrentHashMap<>();
+            readOnly.execute(status -> planetRepository.countGroups())
+                    .forEach(group -> add(counted, new Pair(group.getClimate(), group.getTerrain()), group.getCount()));
+            fresh = counted;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (fresh != null) {
+                    for (Map.Entry<Pair, LongAdder> delta : pending.entrySet()) {
+                        add(fresh, delta.getKey(), delta.getValue().sum());
+                    }
+                    if (ready) {
+                        drift.record(difference(counts, fresh));
+                    }
+                    counts = fresh;
+                    ready = true;
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlanetEvent(PlanetEvent event) {
+        if (event.isReplicated()) {
+            return;
+        }
+        Pair pair = new Pair(NameNormalizer.normalize(event.getPlanet().getClimate()), NameNormalizer.normalize(event.getPlanet().getTerrain()));
+        long delta = event.getType() == PlanetEvent.Type.CREATED ? 1 : -1;
+        lock.readLock().lock();
+        try {
+            add(counts, pair, delta);
+            if (pending != null) {
+                add(pending, pair, delta);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException ex) {
+            log.warn("Could not reconcile the planet counters", ex);
+        }
+    }
+
+    private static void add(Map<Pair, LongAdder> counts, Pair pair, long delta) {
+        counts.computeIfAbsent(pair, ignored -> new LongAdder()).add(delta);
+    }
+
+    private static long difference(Map<Pair, LongAdder> before, Map<Pair, LongAdder> after) {
+        Map<Pair, Long> delta = new HashMap<>();
+        before.forEach((pair, count) -> delta.merge(pair, count.sum(), Long::sum));
+        after.forEach((pair, count) -> delta.merge(pair, -count.sum(), Long::sum));
+        return delta.values().stream().mapToLong(Math::abs).sum();
+    }
+
+    @Value
+    private static class Pair {
+        String climate;
+        String terrain;
+    }
+}
@@ -0,0 +1,27 @@
+package io.wdefassio.starwars.application.service;
+
+import io.wdefassio.starwars.application.service.util.PageCursor;
+import io.wdefassio.starwars.domain.PlanetView;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * {@link PlanetPage} for sparse fieldsets.
+ */
+@Value
+public class PlanetViewPage {
+    List<PlanetView> planets;
+    String nextCursor;
+
+    /**
+     * Builds a page from a keyset query that fetched one row more than {@code pageSize}.
+     */
+    public static PlanetViewPage of(List<PlanetView> planets, int pageSize) {
+        if (planets.size() <= pageSize) {
+            return new PlanetViewPage(planets, null);
+        }
+        List<PlanetView> content = planets.subList(0, pageSize);
+        return new PlanetViewPage(content, PageCursor.encode(content.get(pageSize - 1).getId()));
+    }
+}
@@ -0,0 +1,22 @@
+package io.wdefassio.starwars.application.service;
+
+import io.wdefassio.starwars.domain.Planet;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variant of {@link PlanetService}, an absent planet is an empty {@link Mono}.
+ */
+public interface ReactivePlanetService {
+    Mono<Planet> create(Planet planet);
+
+    Mono<Planet> get(Long id);
+
+    Mono<Planet> getByName(String name);
+
+    Mono<PlanetPage> page(String terrain, String climate, String cursor, Integer size);
+
+    Flux<Planet> stream(String terrain, String climate);
+
+    Mono<Void> remove(Long id);
+}
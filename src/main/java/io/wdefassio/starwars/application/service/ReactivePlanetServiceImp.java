@@ -0,0 +1,66 @@
+package io.wdefassio.starwars.application.service;
+
+import io.wdefassio.starwars.application.service.util.PageCursor;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.ReactivePlanetRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePlanetServiceImp implements ReactivePlanetService {
+    private final ReactivePlanetRepository planetRepository;
+    private final PlanetProperties planetProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public Mono<Planet> create(Planet planet) {
+        return planetRepository.insert(planet)
+                .flatMap(created -> planetRepository.bumpRevision().thenReturn(created))
+                .doOnNext(created -> eventPublisher.publishEvent(PlanetEvent.created(created)));
+    }
+
+    @Override
+    public Mono<Planet> get(Long id) {
+        return planetRepository.findById(id);
+    }
+
+    @Override
+    public Mono<Planet> getByName(String name) {
+        return planetRepository.findByName(name);
+    }
+
+    @Override
+    public Mono<PlanetPage> page(String terrain, String climate, String cursor, Integer size) {
+        return Mono.defer(() -> {
+            int pageSize = planetProperties.getPage().resolve(size);
+            return planetRepository.findFiltered(terrain, climate, PageCursor.decode(cursor), pageSize + 1)
+                    .collectList()
+                    .map(planets -> PlanetPage.of(planets, pageSize));
+        });
+    }
+
+    @Override
+    public Flux<Planet> stream(String terrain, String climate) {
+        return planetRepository.streamFiltered(terrain, climate, 0L, planetProperties.getStream().getFetchSize());
+    }
+
+    @Override
+    public Mono<Void> remove(Long id) {
+        return planetRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new EmptyResultDataAccessException(String.format("No planet with id %s exists!", id), 1)))
+                .flatMap(planet -> planetRepository.deleteById(id)
+                        .filter(deleted -> deleted > 0)
+                        .flatMap(deleted -> planetRepository.bumpRevision().thenReturn(deleted))
+                        .doOnNext(deleted -> eventPublisher.publishEvent(PlanetEvent.removed(planet))))
+                .then();
+    }
+}
@@ -0,0 +1,106 @@
+package io.wdefassio.starwars.application.service.index;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from {@code long} to non-negative {@code int} with linear probing, no boxing and no per-entry
+ * objects. Removal shifts the following run back instead of leaving tombstones, so lookups never degrade.
+ */
+class LongIntMap {
+    static final int MISSING = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongIntMap(int expected) {
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(1, (int) (expected / LOAD_FACTOR)) - 1) << 1));
+    }
+
+    int get(long key) {
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            if (values[i] == MISSING) {
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("values must not be negative");
+        }
+        int i = index(key);
+        while (values[i] != MISSING) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size >= resizeAt) {
+            resize();
+        }
+    }
+
+    void remove(long key) {
+        int i = index(key);
+        while (keys[i] != key || values[i] == MISSING) {
+            if (values[i] == MISSING) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        for (int j = (i + 1) & mask; values[j] != MISSING; j = (j + 1) & mask) {
+            int home = index(keys[j]);
+            boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!between) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = MISSING;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long heapBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private int index(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length << 1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+}
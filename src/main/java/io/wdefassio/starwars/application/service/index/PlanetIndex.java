@@ -0,0 +1,380 @@
+package io.wdefassio.starwars.application.service.index;
+
+import io.wdefassio.starwars.application.service.util.NameNormalizer;
+import io.wdefassio.starwars.domain.Planet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-process copy of the planets table laid out for lookups. Records are UTF-8 encoded into direct buffers off the
+ * heap and found through primitive tables (slot to offset, id to slot, name hash to slot) plus one bitmap of slots per
+ * climate and terrain value, so the heap holds a few arrays no matter how many planets there are and nothing per row
+ * for the collector to trace. A {@link Planet} is only decoded for rows that are returned.
+ * <p>
+ * Slots are appended in id order, which lets a cursor start with a binary search and a filtered scan walk the bitmaps
+ * in id order. A planet whose id is below one already indexed (two creates committing out of order) is kept aside as
+ * late and merged into scans until the next compaction, which also drops the space of removed planets.
+ */
+public class PlanetIndex {
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int LATE_LIMIT = 4096;
+    private static final int MIN_COMPACTION_GARBAGE = 1024;
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int segmentSize;
+    private Store store;
+
+    public PlanetIndex(int segmentSize) {
+        this.segmentSize = segmentSize;
+        this.store = new Store(INITIAL_SLOTS);
+    }
+
+    /**
+     * Adds the planet, replacing any entry with the same id.
+     */
+    public void put(Planet planet) {
+        lock.writeLock().lock();
+        try {
+            store.remove(planet.getId());
+            store.append(planet);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            store.remove(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Planet get(Long id) {
+        lock.readLock().lock();
+        try {
+            int slot = store.byId.get(id);
+            return slot == LongIntMap.MISSING ? null : store.decode(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Planet getByName(String name) {
+        String key = NameNormalizer.normalize(name);
+        lock.readLock().lock();
+        try {
+            int slot = store.findName(key);
+            return slot == LongIntMap.MISSING ? null : store.decode(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Planets matching the filters with an id above {@code afterId}, in id order, at most {@code limit} of them.
+     */
+    public List<Planet> page(String terrain, String climate, long afterId, int limit) {
+        List<Planet> planets = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            store.scan(terrain, climate, afterId, limit, planets::add);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return planets;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return store.byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) store.segments.size() * segmentSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        int live = store.byId.size();
+        int garbage = store.slots - live;
+        if (store.lateById.size() > LATE_LIMIT || (garbage > MIN_COMPACTION_GARBAGE && garbage > live)) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the live records in id order into fresh segments.
+     */
+    void compact() {
+        Store compacted = new Store(Math.max(INITIAL_SLOTS, store.byId.size()));
+        store.scan(null, null, Long.MIN_VALUE, Integer.MAX_VALUE,
+                compacted::append);
+        store = compacted;
+    }
+
+    private class Store {
+        private final List<ByteBuffer> segments = new ArrayList<>();
+        private final LongIntMap byId;
+        private final LongIntMap byNameHash;
+        private final Map<String, Integer> nameCollisions = new HashMap<>();
+        private final Map<String, BitSet> byClimate = new HashMap<>();
+        private final Map<String, BitSet> byTerrain = new HashMap<>();
+        private final BitSet live = new BitSet();
+        private final BitSet late = new BitSet();
+        private final TreeMap<Long, Integer> lateById = new TreeMap<>();
+        /**
+         * Id of each slot for the cursor search, late slots repeat the previous id so the array stays sorted.
+         */
+        private long[] ids;
+        private long[] offsets;
+        private int slots;
+        private long maxId = Long.MIN_VALUE;
+
+        Store(int expected) {
+            ids = new long[expected];
+            offsets = new long[expected];
+            byId = new LongIntMap(expected);
+            byNameHash = new LongIntMap(expected);
+        }
+
+        void append(Planet planet) {
+            long id = planet.getId();
+            String name = planet.getName();
+            byte[] nameBytes = bytes(name);
+            byte[] climateBytes = bytes(planet.getClimate());
+            byte[] terrainBytes = bytes(planet.getTerrain());
+            int length = 3 * Long.BYTES + 3 * Short.BYTES + length(nameBytes) + length(climateBytes) + length(terrainBytes);
+            if (length > segmentSize) {
+                throw new IllegalArgumentException("planet " + id + " does not fit in an index segment");
+            }
+            ByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.remaining() < length) {
+                segment = ByteBuffer.allocateDirect(segmentSize);
+                segments.add(segment);
+            }
+            long offset = ((long) (segments.size() - 1) << 32) | segment.position();
+            segment.putLong(id);
+            segment.putLong(planet.getVersion() == null ? NONE : planet.getVersion());
+            segment.putLong(planet.getLastModified() == null ? NONE : planet.getLastModified());
+            write(segment, nameBytes);
+            write(segment, climateBytes);
+            write(segment, terrainBytes);
+
+            int slot = slots++;
+            if (slot == ids.length) {
+                ids = Arrays.copyOf(ids, slot * 2);
+                offsets = Arrays.copyOf(offsets, slot * 2);
+            }
+            offsets[slot] = offset;
+            if (id > maxId) {
+                maxId = id;
+                ids[slot] = id;
+            } else {
+                ids[slot] = maxId;
+                late.set(slot);
+                lateById.put(id, slot);
+            }
+            live.set(slot);
+            byId.put(id, slot);
+            String nameKey = NameNormalizer.normalize(name);
+            long hash = hash(nameKey);
+            int existing = byNameHash.get(hash);
+            if (existing == LongIntMap.MISSING || !live.get(existing)) {
+                byNameHash.put(hash, slot);
+            } else {
+                nameCollisions.put(nameKey, slot);
+            }
+            byClimate.computeIfAbsent(NameNormalizer.normalize(planet.getClimate()), key -> new BitSet()).set(slot);
+            byTerrain.computeIfAbsent(NameNormalizer.normalize(planet.getTerrain()), key -> new BitSet()).set(slot);
+        }
+
+        void remove(long id) {
+            int slot = byId.get(id);
+            if (slot == LongIntMap.MISSING) {
+                return;
+            }
+            Planet planet = decode(slot);
+            String nameKey = NameNormalizer.normalize(planet.getName());
+            long hash = hash(nameKey);
+            if (byNameHash.get(hash) == slot) {
+                byNameHash.remove(hash);
+            } else {
+                nameCollisions.remove(nameKey, slot);
+            }
+            clear(byClimate, NameNormalizer.normalize(planet.getClimate()), slot);
+            clear(byTerrain, NameNormalizer.normalize(planet.getTerrain()), slot);
+            byId.remove(id);
+            live.clear(slot);
+            if (late.get(slot)) {
+                lateById.remove(id);
+            }
+        }
+
+        int findName(String nameKey) {
+            int slot = byNameHash.get(hash(nameKey));
+            if (slot != LongIntMap.MISSING && NameNormalizer.normalize(decode(slot).getName()).equals(nameKey)) {
+                return slot;
+            }
+            return nameCollisions.getOrDefault(nameKey, LongIntMap.MISSING);
+        }
+
+        /**
+         * Merges the in-order slots with the late ones, both filtered through the bitmaps.
+         */
+        void scan(String terrain, String climate, long afterId, int limit, Consumer<Planet> consumer) {
+            BitSet terrainBits = terrain == null ? null : byTerrain.get(NameNormalizer.normalize(terrain));
+            BitSet climateBits = climate == null ? null : byClimate.get(NameNormalizer.normalize(climate));
+            if ((terrain != null && terrainBits == null) || (climate != null && climateBits == null)) {
+                return;
+            }
+            BitSet driver = terrainBits == null ? (climateBits == null ? live : climateBits)
+                    : (climateBits == null || terrainBits.cardinality() <= climateBits.cardinality() ? terrainBits : climateBits);
+            Iterator<Map.Entry<Long, Integer>> lateSlots = lateById.tailMap(afterId, false).entrySet().iterator();
+            Map.Entry<Long, Integer> nextLate = nextLate(lateSlots, terrainBits, climateBits);
+            int slot = nextSlot(driver, terrainBits, climateBits, upperBound(afterId));
+            int emitted = 0;
+            while (emitted < limit && (slot >= 0 || nextLate != null)) {
+                if (nextLate == null || (slot >= 0 && ids[slot] < nextLate.getKey())) {
+                    consumer.accept(decode(slot));
+                    slot = nextSlot(driver, terrainBits, climateBits, slot + 1);
+                } else {
+                    consumer.accept(decode(nextLate.getValue()));
+                    nextLate = nextLate(lateSlots, terrainBits, climateBits);
+                }
+                emitted++;
+            }
+        }
+
+        private int nextSlot(BitSet driver, BitSet terrainBits, BitSet climateBits, int from) {
+            for (int slot = driver.nextSetBit(from); slot >= 0; slot = driver.nextSetBit(slot + 1)) {
+                if (live.get(slot) && !late.get(slot) && matches(slot, terrainBits, climateBits)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private Map.Entry<Long, Integer> nextLate(Iterator<Map.Entry<Long, Integer>> lateSlots, BitSet terrainBits, BitSet climateBits) {
+            while (lateSlots.hasNext()) {
+                Map.Entry<Long, Integer> entry = lateSlots.next();
+                if (matches(entry.getValue(), terrainBits, climateBits)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private boolean matches(int slot, BitSet terrainBits, BitSet climateBits) {
+            return (terrainBits == null || terrainBits.get(slot)) && (climateBits == null || climateBits.get(slot));
+        }
+
+        /**
+         * First slot whose id is above {@code afterId}.
+         */
+        private int upperBound(long afterId) {
+            int low = 0;
+            int high = slots;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ids[middle] <= afterId) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        Planet decode(int slot) {
+            long offset = offsets[slot];
+            ByteBuffer segment = segments.get((int) (offset >>> 32));
+            int position = (int) offset;
+            long id = segment.getLong(position);
+            long version = segment.getLong(position + Long.BYTES);
+            long lastModified = segment.getLong(position + 2 * Long.BYTES);
+            position += 3 * Long.BYTES;
+            String[] values = new String[3];
+            for (int i = 0; i < values.length; i++) {
+                int length = segment.getShort(position);
+                position += Short.BYTES;
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    segment.get(position, bytes);
+                    values[i] = new String(bytes, StandardCharsets.UTF_8);
+                    position += length;
+                }
+            }
+            Planet planet = new Planet(id, values[0], values[1], values[2]);
+            planet.setVersion(version == NONE ? null : version);
+            planet.setLastModified(lastModified == NONE ? null : lastModified);
+            return planet;
+        }
+
+        private void clear(Map<String, BitSet> bitmaps, String key, int slot) {
+            BitSet bits = bitmaps.get(key);
+            if (bits != null) {
+                bits.clear(slot);
+                if (bits.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            }
+        }
+    }
+
+    private static void write(ByteBuffer segment, byte[] bytes) {
+        if (bytes == null) {
+            segment.putShort((short) -1);
+        } else {
+            segment.putShort((short) bytes.length);
+            segment.put(bytes);
+        }
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("value longer than " + Short.MAX_VALUE + " bytes");
+        }
+        return bytes;
+    }
+
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,412 @@
+package io.wdefassio.starwars.application.service.index;
+
+import io.wdefassio.starwars.application.service.PlanetSearchHit;
+import io.wdefassio.starwars.application.service.util.NameNormalizer;
+import io.wdefassio.starwars.domain.Planet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead search over planet names, maintained one planet at a time. Matching runs in rounds that stop as soon as
+ * the limit is reached, each round ranking below the previous one:
+ * <ol>
+ * <li>names starting with the query, found by a range scan of a sorted map so only the returned entries are read,</li>
+ * <li>names with a later word starting with the query, from a second sorted map keyed by each word onwards,</li>
+ * <li>names containing the query, candidates are the intersection of the trigram posting lists of the query,</li>
+ * <li>names with a word starting within a few edits of the query, candidates share enough trigrams with it
+ *     (each edit breaks at most three) and are checked with a bounded edit distance.</li>
+ * </ol>
+ * Every word is indexed with two padded trigrams for its first letters, which is what lets a misspelt first letter
+ * still match. Removed planets leave their postings behind until garbage outweighs live names and the index is rebuilt.
+ */
+public class PlanetNameIndex {
+    private static final char PAD = '\u0001';
+    private static final char SEPARATOR = '\u0000';
+    private static final int INITIAL_DOCS = 1024;
+    private static final int MIN_COMPACTION_GARBAGE = 1024;
+    private static final Postings EMPTY = new Postings();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Store store = new Store(INITIAL_DOCS);
+
+    /**
+     * Adds the planet, replacing any entry with the same id.
+     */
+    public void put(Planet planet) {
+        lock.writeLock().lock();
+        try {
+            store.remove(planet.getId());
+            store.add(planet.getId(), planet.getName());
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            store.remove(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return store.byPlanet.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<PlanetSearchHit> search(String query, int limit) {
+        String key = NameNormalizer.normalize(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return store.search(key, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        int live = store.byPlanet.size();
+        int garbage = store.docs - live;
+        if (garbage > MIN_COMPACTION_GARBAGE && garbage > live) {
+            Store compacted = new Store(Math.max(INITIAL_DOCS, live));
+            for (int doc = store.live.nextSetBit(0); doc >= 0; doc = store.live.nextSetBit(doc + 1)) {
+                compacted.add(store.planetIds[doc], store.names[doc]);
+            }
+            store = compacted;
+        }
+    }
+
+    /**
+     * Edits tolerated for a query of the given length, none for short ones where almost everything is one edit away.
+     */
+    static int maxEdits(int length) {
+        return length <= 4 ? 0 : length <= 8 ? 1 : 2;
+    }
+
+    /**
+     * Smallest edit distance between {@code query} and any prefix of {@code text}, or {@code max + 1} when above {@code max}.
+     */
+    static int prefixDistance(String query, String text, int max) {
+        int[] previous = new int[query.length() + 1];
+        int[] current = new int[query.length() + 1];
+        for (int j = 0; j < previous.length; j++) {
+            previous[j] = j;
+        }
+        int best = previous[query.length()];
+        for (int i = 1; i <= Math.min(text.length(), query.length() + max); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j < current.length; j++) {
+                int cost = text.charAt(i - 1) == query.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            best = Math.min(best, current[query.length()]);
+            if (rowMin > max) {
+                break;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(best, max + 1);
+    }
+
+    private static long gram(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    private static int[] wordStarts(String key) {
+        int[] starts = new int[4];
+        int count = 0;
+        for (int i = 0; i < key.length(); i++) {
+            if (Character.isLetterOrDigit(key.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1)))) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i;
+            }
+        }
+        return count == 0 ? new int[]{0} : Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Padded trigrams for the start of every word plus every trigram of the text.
+     */
+    private static Set<Long> grams(String key) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int start : wordStarts(key)) {
+            grams.add(gram(PAD, PAD, key.charAt(start)));
+            if (start + 1 < key.length()) {
+                grams.add(gram(PAD, key.charAt(start), key.charAt(start + 1)));
+            }
+        }
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            grams.add(gram(key.charAt(i), key.charAt(i + 1), key.charAt(i + 2)));
+        }
+        return grams;
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+
+    private static final class Candidate {
+        private final int doc;
+        private final int rank;
+
+        Candidate(int doc, int rank) {
+            this.doc = doc;
+            this.rank = rank;
+        }
+    }
+
+    private static final class Store {
+        private final LongIntMap byPlanet;
+        private final BitSet live = new BitSet();
+        private final NavigableMap<String, Integer> starts = new TreeMap<>();
+        private final NavigableMap<String, Integer> words = new TreeMap<>();
+        private final Map<Long, Postings> postings = new HashMap<>();
+        private long[] planetIds;
+        private String[] names;
+        private String[] keys;
+        private int docs;
+
+        Store(int expected) {
+            byPlanet = new LongIntMap(expected);
+            planetIds = new long[expected];
+            names = new String[expected];
+            keys = new String[expected];
+        }
+
+        void add(long id, String name) {
+            String key = NameNormalizer.normalize(name);
+            int doc = docs++;
+            if (doc == planetIds.length) {
+                planetIds = Arrays.copyOf(planetIds, doc * 2);
+                names = Arrays.copyOf(names, doc * 2);
+                keys = Arrays.copyOf(keys, doc * 2);
+            }
+            planetIds[doc] = id;
+            names[doc] = name;
+            keys[doc] = key;
+            live.set(doc);
+            byPlanet.put(id, doc);
+            starts.put(key + SEPARATOR + doc, doc);
+            for (int start : wordStarts(key)) {
+                if (start > 0) {
+                    words.put(key.substring(start) + SEPARATOR + doc, doc);
+                }
+            }
+            for (long gram : grams(key)) {
+                postings.computeIfAbsent(gram, ignored -> new Postings()).add(doc);
+            }
+        }
+
+        void remove(long id) {
+            int doc = byPlanet.get(id);
+            if (doc == LongIntMap.MISSING) {
+                return;
+            }
+            byPlanet.remove(id);
+            live.clear(doc);
+            String key = keys[doc];
+            starts.remove(key + SEPARATOR + doc);
+            for (int start : wordStarts(key)) {
+                if (start > 0) {
+                    words.remove(key.substring(start) + SEPARATOR + doc);
+                }
+            }
+        }
+
+        List<PlanetSearchHit> search(String query, int limit) {
+            List<PlanetSearchHit> hits = new ArrayList<>(limit);
+            BitSet seen = new BitSet();
+            for (int doc : starts.subMap(query, true, query + Character.MAX_VALUE, true).values()) {
+                if (hits.size() == limit) {
+                    return hits;
+                }
+                seen.set(doc);
+                hits.add(hit(doc, keys[doc].equals(query) ? PlanetSearchHit.Match.EXACT : PlanetSearchHit.Match.PREFIX));
+            }
+            for (int doc : words.subMap(query, true, query + Character.MAX_VALUE, true).values()) {
+                if (hits.size() == limit) {
+                    return hits;
+                }
+                if (!seen.get(doc)) {
+                    seen.set(doc);
+                    hits.add(hit(doc, PlanetSearchHit.Match.WORD_PREFIX));
+                }
+            }
+            if (hits.size() < limit && query.length() >= 3) {
+                addRanked(hits, seen, limit, infix(query, seen), PlanetSearchHit.Match.INFIX);
+            }
+            // Fewer edits rank first and keep more trigrams in common, so the tighter pass is cheaper and often enough.
+            for (int edits = 1; edits <= maxEdits(query.length()) && hits.size() < limit; edits++) {
+                addRanked(hits, seen, limit, fuzzy(query, edits, seen), PlanetSearchHit.Match.FUZZY);
+            }
+            return hits;
+        }
+
+        /**
+         * Live names containing the query, ranked by where the query starts in them.
+         */
+        private List<Candidate> infix(String query, BitSet seen) {
+            List<Postings> lists = new ArrayList<>();
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                Postings list = postings.get(gram(query.charAt(i), query.charAt(i + 1), query.charAt(i + 2)));
+                if (list == null) {
+                    return new ArrayList<>();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            List<Candidate> candidates = new ArrayList<>();
+            Postings smallest = lists.get(0);
+            int[] cursors = new int[lists.size()];
+            next:
+            for (int i = 0; i < smallest.size; i++) {
+                int doc = smallest.docs[i];
+                if (!live.get(doc) || seen.get(doc)) {
+                    continue;
+                }
+                for (int l = 1; l < lists.size(); l++) {
+                    Postings list = lists.get(l);
+                    int position = Arrays.binarySearch(list.docs, cursors[l], list.size, doc);
+                    if (position < 0) {
+                        cursors[l] = -position - 1;
+                        continue next;
+                    }
+                    cursors[l] = position;
+                }
+                int at = keys[doc].indexOf(query);
+                if (at >= 0) {
+                    candidates.add(new Candidate(doc, at));
+                }
+            }
+            return candidates;
+        }
+
+        /**
+         * Live names with a word starting within {@code maxEdits} of the query, ranked by distance. A name sharing
+         * {@code threshold} of the query's trigrams must appear in one of the rarest {@code grams - threshold + 1}
+         * posting lists, so only those are merged and the others are probed for the remaining count.
+         */
+        private List<Candidate> fuzzy(String query, int maxEdits, BitSet seen) {
+            Set<Long> grams = new LinkedHashSet<>();
+            grams.add(gram(PAD, PAD, query.charAt(0)));
+            grams.add(gram(PAD, query.charAt(0), query.charAt(1)));
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                grams.add(gram(query.charAt(i), query.charAt(i + 1), query.charAt(i + 2)));
+            }
+            int threshold = grams.size() - 3 * maxEdits;
+            List<Candidate> candidates = new ArrayList<>();
+            if (threshold < 1) {
+                return candidates;
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (long gram : grams) {
+                lists.add(postings.getOrDefault(gram, EMPTY));
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            int merged = lists.size() - threshold + 1;
+            int[] cursors = new int[lists.size()];
+            PriorityQueue<Integer> heads = new PriorityQueue<>(Comparator.comparingInt(l -> lists.get(l).docs[cursors[l]]));
+            for (int l = 0; l < merged; l++) {
+                if (lists.get(l).size > 0) {
+                    heads.add(l);
+                }
+            }
+            int current = -1;
+            int count = 0;
+            while (!heads.isEmpty()) {
+                int l = heads.poll();
+                int doc = lists.get(l).docs[cursors[l]++];
+                if (cursors[l] < lists.get(l).size) {
+                    heads.add(l);
+                }
+                if (doc != current) {
+                    verify(query, maxEdits, seen, current, count, threshold, lists, merged, cursors, candidates);
+                    current = doc;
+                    count = 0;
+                }
+                count++;
+            }
+            verify(query, maxEdits, seen, current, count, threshold, lists, merged, cursors, candidates);
+            return candidates;
+        }
+
+        private void verify(String query, int maxEdits, BitSet seen, int doc, int count, int threshold,
+                            List<Postings> lists, int merged, int[] cursors, List<Candidate> candidates) {
+            if (doc < 0 || !live.get(doc) || seen.get(doc)) {
+                return;
+            }
+            for (int l = merged; l < lists.size() && count < threshold && count + lists.size() - l >= threshold; l++) {
+                Postings list = lists.get(l);
+                int position = Arrays.binarySearch(list.docs, cursors[l], list.size, doc);
+                cursors[l] = position < 0 ? -position - 1 : position;
+                if (position >= 0) {
+                    count++;
+                }
+            }
+            if (count < threshold) {
+                return;
+            }
+            String key = keys[doc];
+            int best = maxEdits + 1;
+            for (int start : wordStarts(key)) {
+                best = Math.min(best, prefixDistance(query, key.substring(start), maxEdits));
+            }
+            if (best <= maxEdits) {
+                candidates.add(new Candidate(doc, best));
+            }
+        }
+
+        private void addRanked(List<PlanetSearchHit> hits, BitSet seen, int limit, List<Candidate> candidates, PlanetSearchHit.Match match) {
+            candidates.sort(Comparator.<Candidate>comparingInt(candidate -> candidate.rank)
+                    .thenComparing(candidate -> keys[candidate.doc]));
+            for (Candidate candidate : candidates) {
+                if (hits.size() == limit) {
+                    return;
+                }
+                seen.set(candidate.doc);
+                hits.add(hit(candidate.doc, match));
+            }
+        }
+
+        private PlanetSearchHit hit(int doc, PlanetSearchHit.Match match) {
+            return new PlanetSearchHit(planetIds[doc], names[doc], match);
+        }
+    }
+}
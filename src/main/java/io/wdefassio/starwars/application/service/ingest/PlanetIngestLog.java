@@ -0,0 +1,189 @@
+package io.wdefassio.starwars.application.service.ingest;
+
+import io.wdefassio.starwars.domain.Planet;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of accepted planets, appended before a creation is acknowledged and read back after a restart.
+ * Records are {@code length, crc32, payload}: either an accepted planet with its sequence number, or a commit mark
+ * saying every planet up to a sequence number reached the table. Planets are not always written in sequence order,
+ * a mark only covers sequence numbers below the oldest planet still waiting. A record cut short by a crash fails its checksum and
+ * the file is truncated there. Once every appended planet is committed the file is emptied, so it stays as small as
+ * the backlog.
+ */
+@Slf4j
+public class PlanetIngestLog implements Closeable {
+    private static final byte ACCEPTED = 1;
+    private static final byte COMMITTED = 2;
+
+    private final FileChannel channel;
+    private final boolean sync;
+    private final List<Entry> recovered;
+    /**
+     * Sequence numbers appended and not yet written to the table.
+     */
+    private final NavigableSet<Long> outstanding = new TreeSet<>();
+    private long sequence;
+    private long committed;
+
+    /**
+     * @param sync force every record to the device before returning, otherwise a crash of the machine, not only of
+     *             the process, can lose the last records
+     */
+    public PlanetIngestLog(Path file, boolean sync) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.sync = sync;
+        this.recovered = Collections.unmodifiableList(recover(file));
+        recovered.forEach(entry -> outstanding.add(entry.getSequence()));
+    }
+
+    /**
+     * Planets appended but not committed when the log was opened, in order.
+     */
+    public List<Entry> recovered() {
+        return recovered;
+    }
+
+    public synchronized long append(String job, Planet planet) throws IOException {
+        long next = sequence + 1;
+        write(record(ACCEPTED, next, job, planet));
+        sequence = next;
+        outstanding.add(next);
+        return next;
+    }
+
+    /**
+     * Marks the given planets as written to the table. The mark written covers every planet below the oldest one
+     * still outstanding, planets written ahead of it are replayed after a crash.
+     */
+    public synchronized void commit(Collection<Long> written) throws IOException {
+        outstanding.removeAll(written);
+        if (outstanding.isEmpty()) {
+            committed = sequence;
+            channel.truncate(0);
+            channel.position(0);
+            if (sync) {
+                channel.force(true);
+            }
+            return;
+        }
+        long upTo = outstanding.first() - 1;
+        if (upTo > committed) {
+            committed = upTo;
+            write(record(COMMITTED, upTo, null, null));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    private List<Entry> recover(Path file) throws IOException {
+        Map<Long, Entry> accepted = new LinkedHashMap<>();
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            for (;;) {
+                byte[] payload;
+                long checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt() & 0xffffffffL;
+                    if (length <= 0 || length > channel.size()) {
+                        break;
+                    }
+                    payload = in.readNBytes(length);
+                    if (payload.length < length) {
+                        break;
+                    }
+                } catch (EOFException ex) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = record.readByte();
+                long seq = record.readLong();
+                if (type == ACCEPTED) {
+                    accepted.put(seq, new Entry(seq, record.readUTF(),
+                            new Planet(null, record.readUTF(), record.readUTF(), record.readUTF())));
+                    sequence = Math.max(sequence, seq);
+                } else {
+                    accepted.keySet().removeIf(accept -> accept <= seq);
+                    committed = Math.max(committed, seq);
+                }
+                valid += 8 + payload.length;
+            }
+        }
+        if (valid < channel.size()) {
+            log.warn("Truncating {} at {} of {} bytes, the tail is incomplete or corrupt", file, valid, channel.size());
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        return new ArrayList<>(accepted.values());
+    }
+
+    private static ByteBuffer record(byte type, long seq, String job, Planet planet) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeLong(seq);
+        if (type == ACCEPTED) {
+            out.writeUTF(job);
+            out.writeUTF(planet.getName());
+            out.writeUTF(planet.getClimate());
+            out.writeUTF(planet.getTerrain());
+        }
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        return buffer;
+    }
+
+    @Value
+    public static class Entry {
+        long sequence;
+        String job;
+        Planet planet;
+    }
+}
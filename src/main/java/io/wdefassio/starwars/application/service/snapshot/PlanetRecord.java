@@ -0,0 +1,125 @@
+package io.wdefassio.starwars.application.service.snapshot;
+
+import io.wdefassio.starwars.domain.Planet;
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * One entry of the snapshot and change log files: {@code length, crc32, payload}, the payload starting with the type
+ * and the time it was written. Snapshots hold {@code PUT}s closed by an {@code END} with their count, logs hold
+ * {@code PUT}s and {@code REMOVE}s in the order they were applied plus a {@code MARK} with the table revision on a
+ * clean shutdown. A length of 0 is the unwritten, zero filled end of a mapped log.
+ */
+@Value
+class PlanetRecord {
+    static final int HEADER = 8;
+    static final int MAX_LENGTH = 1 << 20;
+    private static final long NONE = -1;
+
+    enum Type {PUT, REMOVE, MARK, END}
+
+    Type type;
+    long at;
+    long id;
+    Planet planet;
+    /**
+     * The revision of a {@code MARK}, the count of an {@code END}.
+     */
+    long value;
+
+    static PlanetRecord put(Planet planet, long at) {
+        return new PlanetRecord(Type.PUT, at, planet.getId(), planet, 0);
+    }
+
+    static PlanetRecord remove(long id, long at) {
+        return new PlanetRecord(Type.REMOVE, at, id, null, 0);
+    }
+
+    static PlanetRecord mark(long revision, long at) {
+        return new PlanetRecord(Type.MARK, at, 0, null, revision);
+    }
+
+    static PlanetRecord end(long count, long at) {
+        return new PlanetRecord(Type.END, at, 0, null, count);
+    }
+
+    byte[] encode() {
+        byte[] name = null;
+        byte[] climate = null;
+        byte[] terrain = null;
+        int length = 1 + 8 + 8;
+        if (type == Type.PUT) {
+            name = bytes(planet.getName());
+            climate = bytes(planet.getClimate());
+            terrain = bytes(planet.getTerrain());
+            length += 8 + 8 + 2 + name.length + 2 + climate.length + 2 + terrain.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + length);
+        buffer.putInt(length).putInt(0).put((byte) type.ordinal()).putLong(at);
+        if (type == Type.PUT) {
+            buffer.putLong(id)
+                    .putLong(planet.getVersion() == null ? NONE : planet.getVersion())
+                    .putLong(planet.getLastModified() == null ? NONE : planet.getLastModified());
+            put(buffer, name);
+            put(buffer, climate);
+            put(buffer, terrain);
+        } else {
+            buffer.putLong(type == Type.REMOVE ? id : value);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER, length);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Reads the record at the position of {@code buffer}, which must hold all of it, and moves past it.
+     *
+     * @return null when the checksum does not match, the position is then left unchanged
+     */
+    static PlanetRecord decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        int checksum = buffer.getInt(start + 4);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(start + HEADER, length));
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        buffer.position(start + HEADER);
+        Type type = Type.values()[buffer.get()];
+        long at = buffer.getLong();
+        PlanetRecord record;
+        if (type == Type.PUT) {
+            long id = buffer.getLong();
+            long version = buffer.getLong();
+            long lastModified = buffer.getLong();
+            Planet planet = new Planet(id, string(buffer), string(buffer), string(buffer));
+            planet.setVersion(version == NONE ? null : version);
+            planet.setLastModified(lastModified == NONE ? null : lastModified);
+            record = put(planet, at);
+        } else {
+            long value = buffer.getLong();
+            record = type == Type.REMOVE ? remove(value, at) : new PlanetRecord(type, at, 0, null, value);
+        }
+        buffer.position(start + HEADER + length);
+        return record;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void put(ByteBuffer buffer, byte[] value) {
+        buffer.putShort((short) value.length).put(value);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] value = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+package io.wdefassio.starwars.application.service.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads and appends {@link PlanetRecord}s through memory mapped windows of the file, so neither side copies records
+ * through the heap in between or makes a system call per record.
+ */
+final class PlanetRecordFiles {
+
+    private PlanetRecordFiles() {
+    }
+
+    /**
+     * Hands every valid record to {@code visitor} in file order, stopping at the first one that is incomplete, fails
+     * its checksum or was never written, or at {@code limit}.
+     *
+     * @return the length of the valid prefix
+     */
+    static long read(Path file, int window, long limit, Consumer<PlanetRecord> visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = Math.min(limit, channel.size());
+            long base = 0;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(window, size));
+            for (;;) {
+                long position = base + map.position();
+                if (map.remaining() < PlanetRecord.HEADER) {
+                    if (position + PlanetRecord.HEADER > size) {
+                        return position;
+                    }
+                    base = position;
+                    map = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(window, size - base));
+                    continue;
+                }
+                int length = map.getInt(map.position());
+                if (length <= 0 || length > PlanetRecord.MAX_LENGTH) {
+                    return position;
+                }
+                if (map.remaining() < PlanetRecord.HEADER + length) {
+                    if (position + PlanetRecord.HEADER + length > size) {
+                        return position;
+                    }
+                    base = position;
+                    map = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(Math.max(window, PlanetRecord.HEADER + length), size - base));
+                    continue;
+                }
+                PlanetRecord record = PlanetRecord.decode(map);
+                if (record == null) {
+                    return position;
+                }
+                visitor.accept(record);
+            }
+        }
+    }
+
+    /**
+     * Appends records into a mapped window that moves along the file as it fills. Records reach the page cache as
+     * they are written and survive a crash of the process, {@link #force()} makes them survive one of the machine.
+     * The file grows a window at a time and is cut back to its content on {@link #close()}.
+     */
+    static class Appender implements Closeable {
+        private final FileChannel channel;
+        private final int window;
+        private MappedByteBuffer map;
+        private long base;
+
+        Appender(Path file, long position, int window) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.window = window;
+            remap(position, window);
+        }
+
+        void append(PlanetRecord record) throws IOException {
+            byte[] bytes = record.encode();
+            if (map.remaining() < bytes.length) {
+                remap(position(), Math.max(window, bytes.length));
+            }
+            map.put(bytes);
+        }
+
+        long position() {
+            return base + map.position();
+        }
+
+        void force() {
+            map.force();
+        }
+
+        @Override
+        public void close() throws IOException {
+            long end = position();
+            map.force();
+            map = null;
+            channel.truncate(end);
+            channel.close();
+        }
+
+        private void remap(long position, int size) throws IOException {
+            base = position;
+            map = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package io.wdefassio.starwars.application.service.snapshot;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetServiceImp;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetChange;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetChangeRepository;
+import io.wdefassio.starwars.infra.repository.PlanetRevisionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Local copy of the planets table for the in-memory indexes to start from: a snapshot of every planet plus a log of
+ * the planet events applied since, both checksummed {@link PlanetRecord} files written through memory maps. Files of
+ * one generation belong together, {@code snapshot-N} holds the table as of the start of {@code changes-N}.
+ * <p>
+ * On startup the files are verified and brought up to date without scanning the table: from the change feed outbox
+ * when it is on, otherwise they are only trusted when the log ends with the mark of a clean shutdown whose revision
+ * is still the table's. When they cannot be trusted they are dropped and a new snapshot is taken from a scan once the
+ * application is ready, the indexes then warm from the table as they would without this store.
+ * <p>
+ * Once the log outgrows {@code compact-after} the next generation starts and the old snapshot and log are merged
+ * into a new snapshot in the background, holding only the planets the log touched in memory.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "starwars.planets.snapshot", name = "enabled")
+public class PlanetSnapshotStore implements DisposableBean {
+    private static final String SNAPSHOT = "snapshot-";
+    private static final String LOG = "changes-";
+    private static final int WRITE_BUFFER = 1 << 20;
+
+    private final PlanetServiceImp planetService;
+    private final PlanetChangeRepository changeRepository;
+    private final PlanetRevisionRepository revisionRepository;
+    private final PlanetProperties planetProperties;
+    private final PlanetProperties.Snapshot settings;
+    private final TransactionTemplate readOnly;
+    private final int window;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * Held to read files that compaction may delete, compaction takes it exclusively to delete them.
+     */
+    private final ReentrantReadWriteLock files = new ReentrantReadWriteLock();
+    private final AtomicLong logSize = new AtomicLong();
+    private PlanetRecordFiles.Appender journal;
+    private long generation;
+    private volatile long snapshotGeneration = -1;
+    /**
+     * Files and lengths recovered at startup, what {@link #restore} replays. Cleared once a new snapshot replaces them.
+     */
+    private volatile Map<Path, Long> recovered;
+    /**
+     * Id of the last outbox change the startup catch-up applied, -1 when it did not catch up from the outbox.
+     */
+    private volatile long caughtUpTo = -1;
+
+    public PlanetSnapshotStore(PlanetServiceImp planetService, PlanetChangeRepository changeRepository,
+                               PlanetRevisionRepository revisionRepository, PlanetProperties planetProperties,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) throws IOException {
+        this.planetService = planetService;
+        this.changeRepository = changeRepository;
+        this.revisionRepository = revisionRepository;
+        this.planetProperties = planetProperties;
+        this.settings = planetProperties.getSnapshot();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.window = (int) Math.min(Integer.MAX_VALUE, settings.getMapSize().toBytes());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "planet-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("planets.snapshot.log", logSize, AtomicLong::get)
+                .description("Bytes of the change log since the last snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Files.createDirectories(settings.getDirectory());
+        long start = System.nanoTime();
+        if (recover()) {
+            log.info("Recovered the planet snapshot {} and {} log bytes in {} ms", snapshotGeneration, logSize.get(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } else {
+            discard();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = settings.getCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::maintain, snapshotGeneration < 0 ? 0 : interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replays the recovered state into an index. Planets come in no particular order and removals may follow the
+     * planet they remove.
+     *
+     * @return false when there is nothing to restore from and the caller has to read the table
+     */
+    public boolean restore(Consumer<Planet> put, LongConsumer remove) {
+        files.readLock().lock();
+        try {
+            Map<Path, Long> sources = recovered;
+            if (sources == null) {
+                return false;
+            }
+            for (Map.Entry<Path, Long> source : sources.entrySet()) {
+                PlanetRecordFiles.read(source.getKey(), window, source.getValue(), record -> {
+                    if (record.getType() == PlanetRecord.Type.PUT) {
+                        put.accept(record.getPlanet());
+                    } else if (record.getType() == PlanetRecord.Type.REMOVE) {
+                        remove.accept(record.getId());
+                    }
+                });
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("could not restore the planet snapshot", ex);
+        } finally {
+            files.readLock().unlock();
+        }
+    }
+
+    /**
+     * Where the change feed has to resume for the recovered state to miss nothing: the last outbox change applied
+     * while catching up, empty when the state did not come from the outbox.
+     */
+    public OptionalLong changeFeedPosition() {
+        return caughtUpTo < 0 ? OptionalLong.empty() : OptionalLong.of(caughtUpTo);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlanetEvent(PlanetEvent event) {
+        long now = System.currentTimeMillis();
+        append(event.getType() == PlanetEvent.Type.CREATED
+                ? PlanetRecord.put(event.getPlanet(), now)
+                : PlanetRecord.remove(event.getPlanet().getId(), now));
+    }
+
+    /**
+     * Marks the log with the current revision, which lets the next start trust it without the change feed.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        synchronized (this) {
+            if (journal == null) {
+                return;
+            }
+            try {
+                long revision = readOnly.execute(status -> revisionRepository.current()).getRevision();
+                journal.append(PlanetRecord.mark(revision, System.currentTimeMillis()));
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Could not mark the planet change log, the next start will rebuild the snapshot", ex);
+            }
+            try {
+                journal.close();
+            } catch (IOException ex) {
+                log.warn("Could not close the planet change log", ex);
+            }
+            journal = null;
+        }
+    }
+
+    private synchronized void append(PlanetRecord record) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(record);
+            logSize.set(journal.position());
+        } catch (IOException ex) {
+            // a gap in the log would be replayed as truth, stop here and start over from the table
+            log.error("Could not append to the planet change log, dropping the snapshot", ex);
+            recovered = null;
+            snapshotGeneration = -1;
+            closeQuietly();
+        }
+    }
+
+    private boolean recover() throws IOException {
+        TreeMap<Long, Path> snapshots = generations(SNAPSHOT);
+        TreeMap<Long, Path> logs = generations(LOG);
+        generation = Math.max(snapshots.isEmpty() ? -1 : snapshots.lastKey(), logs.isEmpty() ? -1 : logs.lastKey());
+        Map.Entry<Long, Path> snapshot = snapshots.lastEntry();
+        if (snapshot == null) {
+            return false;
+        }
+        AtomicReference<PlanetRecord> last = new AtomicReference<>();
+        AtomicLong count = new AtomicLong();
+        long length = PlanetRecordFiles.read(snapshot.getValue(), window, Long.MAX_VALUE, record -> {
+            last.set(record);
+            if (record.getType() == PlanetRecord.Type.PUT) {
+                count.incrementAndGet();
+            }
+        });
+        PlanetRecord end = last.get();
+        if (end == null || end.getType() != PlanetRecord.Type.END || end.getValue() != count.get() || length != Files.size(snapshot.getValue())) {
+            log.warn("Planet snapshot {} is incomplete", snapshot.getValue());
+            return false;
+        }
+        Map<Path, Long> sources = new LinkedHashMap<>();
+        sources.put(snapshot.getValue(), length);
+        long lastAt = end.getAt();
+        Map<Long, Path> tail = logs.tailMap(snapshot.getKey());
+        long expected = snapshot.getKey();
+        for (Map.Entry<Long, Path> entry : tail.entrySet()) {
+            if (entry.getKey() != expected++) {
+                return false;
+            }
+            long valid = PlanetRecordFiles.read(entry.getValue(), window, Long.MAX_VALUE, last::set);
+            boolean newest = entry.getKey() == generation;
+            if (valid < Files.size(entry.getValue()) && !newest) {
+                log.warn("Planet change log {} is corrupt", entry.getValue());
+                return false;
+            }
+            sources.put(entry.getValue(), valid);
+            if (last.get() != null) {
+                lastAt = Math.max(lastAt, last.get().getAt());
+            }
+        }
+        Long mark = last.get().getType() == PlanetRecord.Type.MARK ? last.get().getValue() : null;
+        snapshotGeneration = snapshot.getKey();
+        generation = Math.max(generation, snapshotGeneration);
+        long position = sources.getOrDefault(logFile(generation), 0L);
+        journal = new PlanetRecordFiles.Appender(logFile(generation), position, window);
+        if (!catchUp(lastAt, mark)) {
+            closeQuietly();
+            return false;
+        }
+        sources.put(logFile(generation), journal.position());
+        logSize.set(journal.position());
+        recovered = sources;
+        return true;
+    }
+
+    /**
+     * Applies the writes made while this node was down.
+     */
+    private boolean catchUp(long lastAt, Long mark) throws IOException {
+        PlanetProperties.Changes changes = planetProperties.getChanges();
+        if (!changes.isEnabled()) {
+            return mark != null && mark == readOnly.execute(status -> revisionRepository.current()).getRevision();
+        }
+        long from = lastAt - changes.getGapTimeout().toMillis();
+        if (System.currentTimeMillis() - from >= changes.getRetention().toMillis()) {
+            log.info("Planet snapshot is older than the change feed retention");
+            return false;
+        }
+        // read first, a change committed after it is either found below or past the position handed to the feed
+        long max = readOnly.execute(status -> changeRepository.findMaxId());
+        Long first = readOnly.execute(status -> changeRepository.findFirstIdSince(from));
+        if (first == null) {
+            caughtUpTo = max;
+            return true;
+        }
+        long after = first - 1;
+        int caughtUp = 0;
+        List<PlanetChange> page;
+        do {
+            long afterId = after;
+            page = readOnly.execute(status -> changeRepository.findAfter(afterId, changes.getBatchSize()));
+            for (PlanetChange change : page) {
+                journal.append(change.getType() == PlanetEvent.Type.CREATED
+                        ? PlanetRecord.put(change.toEvent().getPlanet(), change.getCreatedAt())
+                        : PlanetRecord.remove(change.getPlanetId(), change.getCreatedAt()));
+                after = change.getId();
+                caughtUp++;
+            }
+        } while (page.size() == changes.getBatchSize());
+        caughtUpTo = Math.max(max, after);
+        log.info("Caught the planet snapshot up with {} changes", caughtUp);
+        return true;
+    }
+
+    /**
+     * Drops every file and starts a new generation, {@link #maintain} then takes a snapshot from the table.
+     */
+    private void discard() throws IOException {
+        try (Stream<Path> stale = Files.list(settings.getDirectory())) {
+            for (Path file : (Iterable<Path>) stale::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SNAPSHOT) || name.startsWith(LOG)) {
+                    Files.delete(file);
+                }
+            }
+        }
+        generation++;
+        snapshotGeneration = -1;
+        journal = new PlanetRecordFiles.Appender(logFile(generation), 0, window);
+    }
+
+    void maintain() {
+        try {
+            if (snapshotGeneration < 0) {
+                rebuild();
+            } else if (logSize.get() > settings.getCompactAfter().toBytes()) {
+                compact();
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not write a planet snapshot", ex);
+        }
+    }
+
+    /**
+     * Snapshot from a scan of the table. Events applied during the scan go to the new log, which is replayed over
+     * the snapshot, so it does not matter whether the scan saw them.
+     */
+    private void rebuild() throws IOException {
+        long target = roll();
+        if (target < 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (SnapshotWriter writer = new SnapshotWriter(target)) {
+            planetService.export(null, planet -> writer.write(PlanetRecord.put(planet, System.currentTimeMillis())));
+            writer.commit();
+        }
+        replace(target);
+        log.info("Took planet snapshot {} from the table in {} ms", target, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Merges the last snapshot with the logs written since into the snapshot of a new generation.
+     */
+    private void compact() throws IOException {
+        long base = snapshotGeneration;
+        long target = roll();
+        if (target < 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<Long, PlanetRecord> changed = new HashMap<>();
+        for (long logGeneration = base; logGeneration < target; logGeneration++) {
+            PlanetRecordFiles.read(logFile(logGeneration), window, Long.MAX_VALUE, record -> {
+                if (record.getType() == PlanetRecord.Type.PUT || record.getType() == PlanetRecord.Type.REMOVE) {
+                    changed.put(record.getId(), record);
+                }
+            });
+        }
+        try (SnapshotWriter writer = new SnapshotWriter(target)) {
+            PlanetRecordFiles.read(snapshotFile(base), window, Long.MAX_VALUE, record -> {
+                if (record.getType() == PlanetRecord.Type.PUT) {
+                    PlanetRecord change = changed.remove(record.getId());
+                    if (change == null) {
+                        writer.write(record);
+                    } else if (change.getType() == PlanetRecord.Type.PUT) {
+                        writer.write(change);
+                    }
+                }
+            });
+            for (PlanetRecord change : changed.values()) {
+                if (change.getType() == PlanetRecord.Type.PUT) {
+                    writer.write(change);
+                }
+            }
+            writer.commit();
+        }
+        replace(target);
+        log.info("Compacted planet snapshot {} with {} changes in {} ms", target, changed.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Starts the log of the next generation.
+     *
+     * @return the new generation, or -1 when the store is closed
+     */
+    private synchronized long roll() throws IOException {
+        if (journal == null) {
+            return -1;
+        }
+        journal.close();
+        generation++;
+        journal = new PlanetRecordFiles.Appender(logFile(generation), 0, window);
+        logSize.set(0);
+        return generation;
+    }
+
+    private void replace(long target) throws IOException {
+        files.writeLock().lock();
+        try {
+            recovered = null;
+            snapshotGeneration = target;
+            for (Map.Entry<Long, Path> old : generations(SNAPSHOT).headMap(target).entrySet()) {
+                Files.deleteIfExists(old.getValue());
+            }
+            for (Map.Entry<Long, Path> old : generations(LOG).headMap(target).entrySet()) {
+                Files.deleteIfExists(old.getValue());
+            }
+        } finally {
+            files.writeLock().unlock();
+        }
+    }
+
+    private TreeMap<Long, Path> generations(String prefix) throws IOException {
+        TreeMap<Long, Path> generations = new TreeMap<>();
+        try (Stream<Path> found = Files.list(settings.getDirectory())) {
+            found.forEach(file -> {
+                String name = file.getFileName().toString();
+                String suffix = prefix.equals(SNAPSHOT) ? ".bin" : ".log";
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    parse(name.substring(prefix.length(), name.length() - suffix.length()))
+                            .ifPresent(generation -> generations.put(generation, file));
+                }
+            });
+        }
+        return generations;
+    }
+
+    private void closeQuietly() {
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            log.warn("Could not close the planet change log", ex);
+        }
+        journal = null;
+    }
+
+    private Path snapshotFile(long generation) {
+        return settings.getDirectory().resolve(SNAPSHOT + name(generation) + ".bin");
+    }
+
+    private Path logFile(long generation) {
+        return settings.getDirectory().resolve(LOG + name(generation) + ".log");
+    }
+
+    private static Optional<Long> parse(String generation) {
+        try {
+            return Optional.of(Long.parseLong(generation));
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static String name(long generation) {
+        return String.format("%016d", generation);
+    }
+
+    /**
+     * Writes a snapshot to a temporary file through one direct buffer and moves it in place once complete.
+     */
+    private class SnapshotWriter implements AutoCloseable {
+        private final Path target;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER);
+        private long count;
+        private boolean committed;
+
+        SnapshotWriter(long generation) throws IOException {
+            this.target = snapshotFile(generation);
+            this.temporary = settings.getDirectory().resolve(SNAPSHOT + name(generation) + ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        void write(PlanetRecord record) {
+            try {
+                byte[] bytes = record.encode();
+                if (buffer.remaining() < bytes.length) {
+                    flush();
+                }
+                if (bytes.length > buffer.capacity()) {
+                    channel.write(ByteBuffer.wrap(bytes));
+                } else {
+                    buffer.put(bytes);
+                }
+                if (record.getType() == PlanetRecord.Type.PUT) {
+                    count++;
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        void commit() throws IOException {
+            write(PlanetRecord.end(count, System.currentTimeMillis()));
+            flush();
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
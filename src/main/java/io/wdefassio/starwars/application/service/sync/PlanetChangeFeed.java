@@ -0,0 +1,145 @@
+package io.wdefassio.starwars.application.service.sync;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.wdefassio.starwars.application.service.snapshot.PlanetSnapshotStore;
+import io.wdefassio.starwars.domain.PlanetChange;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails the outbox written by {@link PlanetChangeOutbox} on every node and replays each change as a replicated
+ * {@link io.wdefassio.starwars.domain.PlanetEvent}, which the caches and the index apply like a local write.
+ * <p>
+ * Outbox ids are handed out before commit, so a smaller id can become visible after a larger one. Skipped ids are kept
+ * as gaps and looked up again until they show up or {@code gap-timeout} passes (a rolled back write never will).
+ * A late change is therefore delivered out of order, and it is dropped when a newer change of the same planet was
+ * already applied. Changes this node wrote come back too and are applied again, which is harmless.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "starwars.planets.changes", name = "enabled")
+public class PlanetChangeFeed implements DisposableBean {
+    private static final int MAX_GAPS = 1000;
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+
+    private final PlanetChangeRepository changeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlanetProperties.Changes settings;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Long, Long> gaps = new ConcurrentHashMap<>();
+    /**
+     * Planet id to the id of the last change applied for it, kept long enough to outlive any gap.
+     */
+    private final Cache<Long, Long> applied;
+    private final Timer lag;
+    private volatile long lastId;
+
+    /**
+     * Reads the end of the outbox here rather than when the application is ready, so the position is taken before any
+     * cache, index or counter runs its warm-up scan on {@link ApplicationReadyEvent}. A change committed while those
+     * scans run is then past the position and delivered once polling starts.
+     * <p>
+     * When the snapshot store caught up from the outbox it resumes where the store stopped instead, the indexes
+     * restore from the store and would otherwise miss what was committed between its catch-up and this read.
+     */
+    public PlanetChangeFeed(PlanetChangeRepository changeRepository, ApplicationEventPublisher eventPublisher,
+                            ObjectProvider<PlanetSnapshotStore> snapshotStore, PlanetProperties planetProperties,
+                            MeterRegistry meterRegistry) {
+        this.changeRepository = changeRepository;
+        this.eventPublisher = eventPublisher;
+        this.settings = planetProperties.getChanges();
+        PlanetSnapshotStore store = snapshotStore.getIfAvailable();
+        OptionalLong resume = store == null ? OptionalLong.empty() : store.changeFeedPosition();
+        this.lastId = resume.isPresent() ? resume.getAsLong() : changeRepository.findMaxId();
+        this.applied = Caffeine.newBuilder().expireAfterWrite(settings.getGapTimeout().multipliedBy(2)).build();
+        this.lag = Timer.builder("planets.changes.lag")
+                .description("Time from a write on any node to its change being applied here")
+                .register(meterRegistry);
+        Gauge.builder("planets.changes.gaps", gaps, Map::size).register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "planet-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Polls from the position read at construction, changes older than it are already in any warm-up scan.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = settings.getPollInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::purge, PURGE_INTERVAL.toMillis(), PURGE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void poll() {
+        try {
+            long now = System.currentTimeMillis();
+            if (!gaps.isEmpty()) {
+                for (PlanetChange change : changeRepository.findAllByIds(gaps.keySet())) {
+                    gaps.remove(change.getId());
+                    apply(change);
+                }
+                gaps.values().removeIf(deadline -> deadline < now);
+            }
+            List<PlanetChange> changes;
+            do {
+                changes = changeRepository.findAfter(lastId, settings.getBatchSize());
+                for (PlanetChange change : changes) {
+                    for (long missing = lastId + 1; missing < change.getId() && gaps.size() < MAX_GAPS; missing++) {
+                        gaps.put(missing, now + settings.getGapTimeout().toMillis());
+                    }
+                    lastId = change.getId();
+                    apply(change);
+                }
+            } while (changes.size() == settings.getBatchSize());
+        } catch (RuntimeException ex) {
+            log.warn("Could not read the planet change feed", ex);
+        }
+    }
+
+    private void apply(PlanetChange change) {
+        Long newest = applied.getIfPresent(change.getPlanetId());
+        if (newest != null && newest > change.getId()) {
+            return;
+        }
+        applied.put(change.getPlanetId(), change.getId());
+        eventPublisher.publishEvent(change.toEvent());
+        lag.record(Math.max(0, System.currentTimeMillis() - change.getCreatedAt()), TimeUnit.MILLISECONDS);
+    }
+
+    private void purge() {
+        try {
+            changeRepository.deleteOlderThan(System.currentTimeMillis() - settings.getRetention().toMillis());
+        } catch (RuntimeException ex) {
+            log.warn("Could not purge the planet change feed", ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,61 @@
+package io.wdefassio.starwars.application.service.sync;
+
+import io.wdefassio.starwars.domain.PlanetChange;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.repository.PlanetChangeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every local {@link PlanetEvent} in the outbox as part of the transaction that published it. Changes are
+ * collected while the transaction runs and inserted in one batch just before it commits, so a chunk of a bulk write
+ * costs one extra statement and a rolled back write leaves nothing behind.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "starwars.planets.changes", name = "enabled")
+public class PlanetChangeOutbox {
+    private final PlanetChangeRepository changeRepository;
+
+    @EventListener
+    public void onPlanetEvent(PlanetEvent event) {
+        if (event.isReplicated()) {
+            return;
+        }
+        PlanetChange change = PlanetChange.of(event, System.currentTimeMillis());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changeRepository.insertAll(List.of(change));
+            return;
+        }
+        pending().add(change);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PlanetChange> pending() {
+        List<PlanetChange> pending = (List<PlanetChange>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<PlanetChange> changes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    changeRepository.insertAll(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PlanetChangeOutbox.this);
+                }
+            });
+            pending = changes;
+        }
+        return pending;
+    }
+}
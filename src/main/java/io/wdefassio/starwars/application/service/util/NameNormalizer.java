@@ -0,0 +1,13 @@
+package io.wdefassio.starwars.application.service.util;
+
+import java.util.Locale;
+
+public class NameNormalizer {
+    /**
+     * Names are unique under MySQL's case-insensitive collation, in memory lookups follow the same rule.
+     */
+    public static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,67 @@
+package io.wdefassio.starwars.application.service.util;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers asking for the same key share one call: the first runs it on its own thread, the others
+ * wait and get its result or its exception. Calls are tracked in a {@link ConcurrentHashMap}, which only locks the bin
+ * of the key, and dropped as soon as they return, so nothing outlives the call.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final Counter merged;
+
+    public SingleFlight(Counter merged) {
+        this.merged = merged;
+    }
+
+    public V run(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            merged.increment();
+            return await(running);
+        }
+        try {
+            V value = call.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Callers arriving after this start a new call instead of joining the running one, which may have read the
+     * data before the write that prompted this.
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    public void forgetAll() {
+        flights.clear();
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -1,19 +1,34 @@
 package io.wdefassio.starwars.domain;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
-import javax.persistence.*;
-import javax.validation.constraints.NotEmpty;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotEmpty;
 
 @Data
 @Entity
-@Table(name = "planets")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Planet.CACHE_REGION)
+@Table(name = "planets", indexes = {
+        @Index(name = "idx_planets_name_key", columnList = "name_key"),
+        @Index(name = "idx_planets_climate_key", columnList = "climate_key"),
+        @Index(name = "idx_planets_terrain_climate_key", columnList = "terrain_key, climate_key")
+})
 @NoArgsConstructor
-@AllArgsConstructor
 public class Planet {
 
+    /**
+     * Second-level cache regions, only used when {@code starwars.planets.second-level-cache.enabled} is set.
+     */
+    public static final String CACHE_REGION = "planets";
+    public static final String QUERY_CACHE_REGION = "planets.queries";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -25,4 +40,54 @@ public class Planet {
     @NotEmpty
     private String terrain;
 
+    /**
+     * Normalized copies maintained by the database so the case-insensitive lookups and filters can use an index.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "name_key", insertable = false, updatable = false,
+            columnDefinition = "varchar(255) generated always as (lower(trim(name)))")
+    private String nameKey;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "climate_key", insertable = false, updatable = false,
+            columnDefinition = "varchar(255) generated always as (lower(trim(climate)))")
+    private String climateKey;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "terrain_key", insertable = false, updatable = false,
+            columnDefinition = "varchar(255) generated always as (lower(trim(terrain)))")
+    private String terrainKey;
+
+    /**
+     * Validators for HTTP caching, sent as {@code ETag} and {@code Last-Modified} rather than in the body.
+     * The timestamp is kept as epoch milliseconds so JPA, JDBC and R2DBC agree on it whatever the session time zone.
+     */
+    @Version
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Long version;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "last_modified")
+    private Long lastModified;
+
+    public Planet(Long id, String name, String climate, String terrain) {
+        this.id = id;
+        this.name = name;
+        this.climate = climate;
+        this.terrain = terrain;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = System.currentTimeMillis();
+    }
+
 }
@@ -0,0 +1,60 @@
+package io.wdefassio.starwars.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Outbox row for a {@link PlanetEvent}, inserted in the transaction of the write it describes. The id orders changes
+ * across nodes, the planet columns are a snapshot so readers never need to look the planet up.
+ */
+@Data
+@Entity
+@Table(name = "planet_changes", indexes = @Index(name = "idx_planet_changes_created_at", columnList = "created_at"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanetChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private PlanetEvent.Type type;
+    @Column(name = "planet_id", nullable = false)
+    private Long planetId;
+    private String name;
+    private String climate;
+    private String terrain;
+    private Long version;
+    @Column(name = "last_modified")
+    private Long lastModified;
+    /**
+     * Epoch milliseconds of the write.
+     */
+    @Column(name = "created_at", nullable = false)
+    private long createdAt;
+
+    public static PlanetChange of(PlanetEvent event, long createdAt) {
+        Planet planet = event.getPlanet();
+        return new PlanetChange(null, event.getType(), planet.getId(), planet.getName(), planet.getClimate(), planet.getTerrain(),
+                planet.getVersion(), planet.getLastModified(), createdAt);
+    }
+
+    public PlanetEvent toEvent() {
+        Planet planet = new Planet(planetId, name, climate, terrain);
+        planet.setVersion(version);
+        planet.setLastModified(lastModified);
+        return PlanetEvent.replicated(type, planet);
+    }
+}
@@ -0,0 +1,29 @@
+package io.wdefassio.starwars.domain;
+
+import lombok.Value;
+
+/**
+ * Published whenever planets are written so derived state (caches, indexes) can follow the table.
+ * {@code replicated} events were written by another node and replayed here from the change feed.
+ */
+@Value
+public class PlanetEvent {
+
+    public enum Type {CREATED, REMOVED}
+
+    Type type;
+    Planet planet;
+    boolean replicated;
+
+    public static PlanetEvent created(Planet planet) {
+        return new PlanetEvent(Type.CREATED, planet, false);
+    }
+
+    public static PlanetEvent removed(Planet planet) {
+        return new PlanetEvent(Type.REMOVED, planet, false);
+    }
+
+    public static PlanetEvent replicated(Type type, Planet planet) {
+        return new PlanetEvent(type, planet, true);
+    }
+}
@@ -0,0 +1,39 @@
+package io.wdefassio.starwars.domain;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.EnumSet;
+import java.util.Locale;
+
+/**
+ * Planet attributes a client can ask for in a sparse fieldset. The id is always part of the selection since
+ * cursors are built from it.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PlanetField {
+    ID("id"),
+    NAME("name"),
+    CLIMATE("climate"),
+    TERRAIN("terrain");
+
+    private final String property;
+
+    /**
+     * Parses a comma separated list such as {@code name,climate}, unknown names are rejected.
+     */
+    public static EnumSet<PlanetField> parse(String fields) {
+        EnumSet<PlanetField> selected = EnumSet.of(ID);
+        for (String field : fields.split(",")) {
+            String property = field.trim().toLowerCase(Locale.ROOT);
+            if (!property.isEmpty()) {
+                selected.add(EnumSet.allOf(PlanetField.class).stream()
+                        .filter(candidate -> candidate.property.equals(property))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalArgumentException("unknown planet field " + field.trim())));
+            }
+        }
+        return selected;
+    }
+}
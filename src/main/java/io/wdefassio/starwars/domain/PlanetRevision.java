@@ -0,0 +1,35 @@
+package io.wdefassio.starwars.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Table-wide change counter, a single row bumped by every transaction that writes planets. Collection responses are
+ * validated against it, so a client polling an unchanged list costs one primary key lookup instead of a query.
+ */
+@Data
+@Entity
+@Table(name = "planet_revisions")
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanetRevision {
+
+    public static final int ID = 1;
+    public static final PlanetRevision INITIAL = new PlanetRevision(ID, 0L, null);
+
+    @Id
+    private Integer id;
+    @Column(nullable = false)
+    private long revision;
+    /**
+     * Epoch milliseconds of the last bump.
+     */
+    @Column(name = "last_modified")
+    private Long lastModified;
+}
@@ -0,0 +1,47 @@
+package io.wdefassio.starwars.domain;
+
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Planet counts by climate, terrain and both, keyed by the normalized values the filters compare against.
+ */
+@Value
+public class PlanetStats {
+    long total;
+    Map<String, Long> climates;
+    Map<String, Long> terrains;
+    List<Group> groups;
+
+    @Value
+    public static class Group {
+        String climate;
+        String terrain;
+        long count;
+    }
+
+    /**
+     * Rolls the per pair counts up, empty groups are left out.
+     */
+    public static PlanetStats of(Collection<Group> groups) {
+        List<Group> counted = groups.stream()
+                .filter(group -> group.getCount() > 0)
+                .sorted(Comparator.comparing(Group::getClimate).thenComparing(Group::getTerrain))
+                .collect(Collectors.toList());
+        Map<String, Long> climates = new TreeMap<>();
+        Map<String, Long> terrains = new TreeMap<>();
+        long total = 0;
+        for (Group group : counted) {
+            climates.merge(group.getClimate(), group.getCount(), Long::sum);
+            terrains.merge(group.getTerrain(), group.getCount(), Long::sum);
+            total += group.getCount();
+        }
+        return new PlanetStats(total, climates, terrains, counted);
+    }
+}
@@ -0,0 +1,25 @@
+package io.wdefassio.starwars.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * A planet reduced to the fields a client selected, the others stay {@code null} and are left out of the body.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlanetView {
+    Long id;
+    String name;
+    String climate;
+    String terrain;
+
+    public static PlanetView of(Planet planet, Set<PlanetField> fields) {
+        return new PlanetView(planet.getId(),
+                fields.contains(PlanetField.NAME) ? planet.getName() : null,
+                fields.contains(PlanetField.CLIMATE) ? planet.getClimate() : null,
+                fields.contains(PlanetField.TERRAIN) ? planet.getTerrain() : null);
+    }
+}
@@ -0,0 +1,27 @@
+package io.wdefassio.starwars.infra.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdmissionConfiguration {
+
+    /**
+     * Runs right after the observation filter, so refused requests still show up in {@code http.server.requests}
+     * but skip everything else.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "starwars.planets.admission", name = "enabled")
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(PlanetProperties planetProperties, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(new AdmissionFilter(planetProperties, meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
@@ -0,0 +1,196 @@
+package io.wdefassio.starwars.infra.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for {@code /planets}, checked in order of cost so a refused request is answered before it takes
+ * a thread from the pool or a connection:
+ * <ol>
+ *     <li>the client's token bucket, paid with the endpoint weight, refusing with 429,</li>
+ *     <li>the endpoint's concurrency limit, refusing with 503,</li>
+ *     <li>the adaptive limit shared by all endpoints, shedding with 503 once latency rises.</li>
+ * </ol>
+ * Tokens are not given back when a later check refuses, a client retrying against an overloaded node slows down.
+ * Streamed responses hold their slots until the stream ends but are not sampled, their duration follows the size of
+ * the body rather than the load.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+    static final String PREFIX = "/planets";
+
+    private final PlanetProperties.Admission settings;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, TokenBucket> buckets;
+    private final Map<PlanetEndpoint, AtomicInteger> running = new EnumMap<>(PlanetEndpoint.class);
+    private final GradientLimiter limiter;
+
+    public AdmissionFilter(PlanetProperties planetProperties, MeterRegistry meterRegistry) {
+        this.settings = planetProperties.getAdmission();
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder().maximumSize(settings.getMaxClients()).build();
+        for (PlanetEndpoint endpoint : PlanetEndpoint.values()) {
+            AtomicInteger count = new AtomicInteger();
+            running.put(endpoint, count);
+            Gauge.builder("planets.admission.running", count, AtomicInteger::get)
+                    .description("Requests running per endpoint")
+                    .tag("endpoint", name(endpoint))
+                    .register(meterRegistry);
+        }
+        this.limiter = settings.getAdaptive().isEnabled() ? new GradientLimiter(settings.getAdaptive(), System.nanoTime()) : null;
+        if (limiter != null) {
+            Gauge.builder("planets.admission.limit", limiter, GradientLimiter::getLimit)
+                    .description("Weight the adaptive limit lets in at once")
+                    .register(meterRegistry);
+            Gauge.builder("planets.admission.in-flight", limiter, GradientLimiter::getInFlight)
+                    .description("Weight of the requests admitted by the adaptive limit")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !path.equals(PREFIX) && !path.startsWith(PREFIX + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        PlanetEndpoint endpoint = PlanetEndpoint.of(request.getMethod(), path(request).substring(PREFIX.length()), request.getParameter("ids") != null);
+        PlanetProperties.EndpointLimits limits = settings.limits(endpoint);
+        long start = System.nanoTime();
+        long wait = buckets.get(client(request), key -> new TokenBucket(settings.getRate(), settings.getBurst(), start))
+                .tryAcquire(limits.getWeight(), start);
+        if (wait > 0) {
+            reject(response, endpoint, HttpStatus.TOO_MANY_REQUESTS, "rate", Duration.ofNanos(wait));
+            return;
+        }
+        AtomicInteger count = running.get(endpoint);
+        if (!acquire(count, limits.getMaxConcurrency())) {
+            reject(response, endpoint, HttpStatus.SERVICE_UNAVAILABLE, "concurrency", settings.getRetryAfter());
+            return;
+        }
+        int inFlight = limiter == null ? 0 : limiter.tryAcquire(limits.getWeight());
+        if (inFlight < 0) {
+            count.decrementAndGet();
+            reject(response, endpoint, HttpStatus.SERVICE_UNAVAILABLE, "shed", settings.getRetryAfter());
+            return;
+        }
+        Permit permit = new Permit(count, limits.getWeight(), inFlight, start);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (completed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release(completed);
+            }
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        String client = StringUtils.hasText(settings.getClientHeader()) ? request.getHeader(settings.getClientHeader()) : null;
+        return StringUtils.hasText(client) ? client : request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, PlanetEndpoint endpoint, HttpStatus status, String reason, Duration retryAfter) throws IOException {
+        meterRegistry.counter("planets.admission.rejected", "endpoint", name(endpoint), "reason", reason).increment();
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfter.toNanos() + 999_999_999))));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(status.getReasonPhrase());
+    }
+
+    private static boolean acquire(AtomicInteger count, int max) {
+        for (;;) {
+            int current = count.get();
+            if (max > 0 && current >= max) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String name(PlanetEndpoint endpoint) {
+        return endpoint.name().toLowerCase(Locale.ROOT);
+    }
+
+    private class Permit implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final AtomicInteger count;
+        private final int weight;
+        private final int inFlight;
+        private final long start;
+
+        Permit(AtomicInteger count, int weight, int inFlight, long start) {
+            this.count = count;
+            this.weight = weight;
+            this.inFlight = inFlight;
+            this.start = start;
+        }
+
+        void release(boolean sample) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            count.decrementAndGet();
+            if (limiter != null) {
+                limiter.release(weight);
+                if (sample) {
+                    long now = System.nanoTime();
+                    limiter.sample(now - start, inFlight, now);
+                }
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
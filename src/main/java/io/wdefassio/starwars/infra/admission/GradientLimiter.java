@@ -0,0 +1,93 @@
+package io.wdefassio.starwars.infra.admission;
+
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit that follows the latency of the requests it lets through. Each sample is compared with the
+ * lowest latency seen recently: within {@code tolerance} times of it the limit grows by its square root, beyond
+ * that it shrinks by the ratio, at most by half. Growth needs the limit to be in use, a mostly idle node has no
+ * evidence that more would be fine.
+ * <p>
+ * Slots are counted in request weights. Acquiring and updating are compare-and-set loops, nothing blocks.
+ */
+public class GradientLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final long probeInterval;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limit;
+    private final AtomicLong minRtt = new AtomicLong(Long.MAX_VALUE);
+    private volatile long minRttSince;
+
+    public GradientLimiter(PlanetProperties.Adaptive settings, long now) {
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.tolerance = settings.getTolerance();
+        this.smoothing = settings.getSmoothing();
+        this.probeInterval = settings.getProbeInterval().toNanos();
+        this.limit = new AtomicLong(Double.doubleToLongBits(settings.getInitialLimit()));
+        this.minRttSince = now;
+    }
+
+    /**
+     * Takes {@code weight} slots. A request heavier than the whole limit is still let through when nothing else runs.
+     *
+     * @return the slots in use including these, or -1 when they were refused
+     */
+    public int tryAcquire(int weight) {
+        int current = getLimit();
+        for (;;) {
+            int running = inFlight.get();
+            if (running > 0 && running + weight > current) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(running, running + weight)) {
+                return running + weight;
+            }
+        }
+    }
+
+    public void release(int weight) {
+        inFlight.addAndGet(-weight);
+    }
+
+    /**
+     * @param rtt      latency of a request that completed normally
+     * @param inFlight slots in use when it was admitted
+     */
+    public void sample(long rtt, int inFlight, long now) {
+        rtt = Math.max(1, rtt);
+        if (now - minRttSince > probeInterval) {
+            minRttSince = now;
+            minRtt.set(rtt);
+        } else {
+            minRtt.accumulateAndGet(rtt, Math::min);
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * minRtt.get() / rtt));
+        for (;;) {
+            long bits = limit.get();
+            double current = Double.longBitsToDouble(bits);
+            double target = current * gradient + Math.sqrt(current);
+            if (target > current && inFlight < current / 2) {
+                return;
+            }
+            double next = Math.max(minLimit, Math.min(maxLimit, current * (1 - smoothing) + target * smoothing));
+            if (limit.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
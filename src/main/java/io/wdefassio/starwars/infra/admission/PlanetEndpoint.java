@@ -0,0 +1,40 @@
+package io.wdefassio.starwars.infra.admission;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * The endpoints under {@code /planets}, as far as admission control tells them apart.
+ */
+public enum PlanetEndpoint {
+    LIST, GET, SEARCH, STATS, EXPORT, IMPORT, BATCH, CREATE, DELETE, OTHER;
+
+    /**
+     * @param path the request path below {@code /planets}, empty for the collection itself
+     * @param ids  whether the {@code ids} parameter of the multi-get was sent
+     */
+    public static PlanetEndpoint of(String method, String path, boolean ids) {
+        HttpMethod httpMethod = HttpMethod.valueOf(method);
+        switch (path) {
+            case "", "/":
+                if (HttpMethod.GET.equals(httpMethod)) {
+                    return ids ? GET : LIST;
+                }
+                return HttpMethod.POST.equals(httpMethod) ? CREATE : OTHER;
+            case "/search":
+                return SEARCH;
+            case "/stats":
+                return STATS;
+            case "/export":
+                return EXPORT;
+            case "/import":
+                return IMPORT;
+            case "/batch":
+                return BATCH;
+            default:
+                if (HttpMethod.GET.equals(httpMethod)) {
+                    return GET;
+                }
+                return HttpMethod.DELETE.equals(httpMethod) ? DELETE : OTHER;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.wdefassio.starwars.infra.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single timestamp, the time at which the bucket would be full again (the generic cell rate
+ * algorithm). Taking tokens moves it forward by their cost, so a request is one compare-and-set and an idle bucket
+ * needs no refill.
+ */
+public class TokenBucket {
+    private final long interval;
+    private final long capacity;
+    private final int burst;
+    private final AtomicLong full;
+
+    /**
+     * @param rate  tokens earned per second
+     * @param burst tokens that can be saved up, the bucket starts full
+     * @param now   the current {@link System#nanoTime()}
+     */
+    public TokenBucket(double rate, int burst, long now) {
+        this.interval = Math.max(1, (long) (1_000_000_000L / rate));
+        this.burst = burst;
+        this.capacity = burst * interval;
+        this.full = new AtomicLong(now);
+    }
+
+    /**
+     * Takes {@code tokens}, capped at the burst so heavy requests are not refused forever.
+     *
+     * @return 0 when the tokens were taken, otherwise the nanoseconds until they would be
+     */
+    public long tryAcquire(int tokens, long now) {
+        long cost = Math.min(tokens, burst) * interval;
+        for (;;) {
+            long current = full.get();
+            long next = Math.max(current, now) + cost;
+            long wait = next - now - capacity;
+            if (wait > 0) {
+                return wait;
+            }
+            if (full.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
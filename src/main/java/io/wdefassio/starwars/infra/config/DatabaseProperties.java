@@ -0,0 +1,135 @@
+package io.wdefassio.starwars.infra.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starwars.datasource")
+public class DatabaseProperties {
+
+    private final Concurrency concurrency = new Concurrency();
+    private final R2dbc r2dbc = new R2dbc();
+    private final Replicas replicas = new Replicas();
+    private final Pool pool = new Pool();
+    private final Mysql mysql = new Mysql();
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    @Getter
+    @Setter
+    public static class Concurrency {
+        /**
+         * Queue callers in front of the pool instead of inside it, meant for virtual thread mode
+         * where the number of request threads is no longer bounded by Tomcat.
+         */
+        private boolean enabled = false;
+        /**
+         * Connections that may be checked out at once, 0 means the pool maximum size.
+         */
+        private int limit = 0;
+        /**
+         * How long a caller waits for a permit before the request fails.
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class R2dbc {
+        /**
+         * Connection URL of the reactive variant, {@code r2dbc:pool:mysql://...} adds pooling.
+         */
+        private String url;
+        private String username;
+        private String password;
+    }
+
+    @Getter
+    @Setter
+    public static class Replicas {
+        /**
+         * Route read-only transactions to the replica nodes, writes and everything after a write stay on the primary.
+         */
+        private boolean enabled = false;
+        private Balancing balancing = Balancing.ROUND_ROBIN;
+        /**
+         * How often every replica is validated, failed ones leave the rotation and recovered ones rejoin it. 0 disables the probe.
+         */
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+        private List<Node> nodes = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Node {
+        private String url;
+        /**
+         * Credentials of the node, the primary ones when absent.
+         */
+        private String username;
+        private String password;
+    }
+
+    @Getter
+    @Setter
+    public static class Pool {
+        /**
+         * Cores of the database server. When set every pool is sized as {@code cores * connections-per-core + spindles},
+         * the HikariCP rule of thumb, unless {@code spring.datasource.hikari.maximum-pool-size} is set. 0 leaves the
+         * pools at Hikari's default of 10, the cores of this host say nothing about the server's.
+         */
+        private int cores = 0;
+        private int connectionsPerCore = 2;
+        /**
+         * Disk requests the server serves in parallel while a connection waits on I/O, 0 when the data fits in memory.
+         */
+        private int spindles = 1;
+
+        public boolean isAutoSize() {
+            return cores > 0;
+        }
+
+        public int size() {
+            return Math.max(1, cores * connectionsPerCore + spindles);
+        }
+    }
+
+    /**
+     * Connector/J settings applied to every MySQL pool, a parameter in the URL of a pool takes precedence.
+     */
+    @Getter
+    @Setter
+    public static class Mysql {
+        /**
+         * Keep prepared statements per connection so repeated queries are not parsed and prepared again.
+         */
+        private boolean cachePreparedStatements = true;
+        private int preparedStatementCacheSize = 250;
+        /**
+         * Longest statement the cache keeps, Connector/J defaults to 256 characters which the filter queries and the
+         * padded IN lists of lookups exceed.
+         */
+        private int preparedStatementCacheSqlLimit = 2048;
+        /**
+         * Prepare on the server and send only the parameters afterwards, only worth it with the cache on.
+         */
+        private boolean serverPreparedStatements = true;
+        /**
+         * Send JDBC batches as multi-row inserts instead of one statement per row.
+         */
+        private boolean rewriteBatchedStatements = true;
+        /**
+         * Read streamed results through a server cursor, {@code starwars.planets.stream.fetch-size} rows at a time.
+         * Without it the driver reads the whole result before returning the first row.
+         */
+        private boolean cursorFetch = true;
+    }
+}
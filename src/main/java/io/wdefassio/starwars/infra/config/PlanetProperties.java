@@ -0,0 +1,439 @@
+package io.wdefassio.starwars.infra.config;
+
+import io.wdefassio.starwars.infra.admission.PlanetEndpoint;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.CacheControl;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starwars.planets")
+public class PlanetProperties {
+
+    private final Page page = new Page();
+    private final Stream stream = new Stream();
+    private final Cache cache = new Cache();
+    private final Batch batch = new Batch();
+    private final Index index = new Index();
+    private final Import imports = new Import();
+    private final Http http = new Http();
+    private final Changes changes = new Changes();
+    private final Search search = new Search();
+    private final Lookup lookup = new Lookup();
+    private final Stats stats = new Stats();
+    private final Admission admission = new Admission();
+    private final WriteBehind writeBehind = new WriteBehind();
+    private final Snapshot snapshot = new Snapshot();
+    private final SecondLevelCache secondLevelCache = new SecondLevelCache();
+
+    @Getter
+    @Setter
+    public static class Page {
+        /**
+         * Page size used when the client does not send one.
+         */
+        private int defaultSize = 100;
+        /**
+         * Hard upper bound, larger requested sizes are clamped to it.
+         */
+        private int maxSize = 1000;
+
+        /**
+         * Page size for a request, the default when absent and clamped to the maximum.
+         */
+        public int resolve(Integer size) {
+            int pageSize = size == null ? defaultSize : Math.min(size, maxSize);
+            if (pageSize <= 0) {
+                throw new IllegalArgumentException("page size must be positive");
+            }
+            return pageSize;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Stream {
+        /**
+         * Rows fetched per JDBC round trip while streaming.
+         */
+        private int fetchSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        /**
+         * Whether get and getByName are served through the in-process cache.
+         */
+        private boolean enabled = true;
+        /**
+         * Maximum entries per cache, one cache for ids and one for names.
+         */
+        private long maximumSize = 10_000;
+        /**
+         * Time a found planet stays cached.
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+        /**
+         * Time a not found lookup stays cached, kept short so new planets show up quickly.
+         */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+        /**
+         * Rows written per JDBC batch, each chunk commits in its own transaction.
+         */
+        private int chunkSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Index {
+        /**
+         * Serve get, getByName and list from an in-process copy of the table warmed at startup, replaces the cache.
+         */
+        private boolean enabled = false;
+        /**
+         * Size of each off-heap buffer the records are written to.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+    }
+
+    @Getter
+    @Setter
+    public static class Import {
+        /**
+         * Threads writing batches of one import in parallel.
+         */
+        private int writers = 2;
+        /**
+         * Threads shared by all the imports running at once, so they never need more connections than this between
+         * them. Also the most writers one import may ask for.
+         */
+        private int maxWriters = 8;
+        /**
+         * Rows per batch, each batch commits in its own transaction.
+         */
+        private int batchSize = 500;
+        private int maxBatchSize = 5000;
+
+        public int resolveWriters(Integer requested) {
+            return resolve("writers", requested, writers, maxWriters);
+        }
+
+        public int resolveBatchSize(Integer requested) {
+            return resolve("batch size", requested, batchSize, maxBatchSize);
+        }
+
+        private static int resolve(String name, Integer requested, int defaultValue, int max) {
+            int value = requested == null ? defaultValue : requested;
+            if (value <= 0 || value > max) {
+                throw new IllegalArgumentException(name + " must be between 1 and " + max);
+            }
+            return value;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Http {
+        /**
+         * How long clients and shared caches may reuse a planet response before revalidating it with its ETag.
+         */
+        private Duration maxAge = Duration.ZERO;
+        /**
+         * Keeps shared caches (proxies, CDNs) from storing responses.
+         */
+        private boolean cachePrivate = false;
+
+        public CacheControl cacheControl() {
+            CacheControl cacheControl = CacheControl.maxAge(maxAge).mustRevalidate();
+            return cachePrivate ? cacheControl.cachePrivate() : cacheControl.cachePublic();
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Changes {
+        /**
+         * Records every write in an outbox and follows it so each node keeps its caches in line with the others.
+         */
+        private boolean enabled = false;
+        /**
+         * Delay between two reads of the outbox, the bound on how long another node's write stays invisible here.
+         */
+        private Duration pollInterval = Duration.ofMillis(200);
+        private int batchSize = 500;
+        /**
+         * How long a skipped id is waited for, it belongs to a transaction that had not committed yet or never will.
+         */
+        private Duration gapTimeout = Duration.ofSeconds(30);
+        /**
+         * Age after which outbox rows are purged.
+         */
+        private Duration retention = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Search {
+        /**
+         * Keeps a name index in memory for {@code /planets/search}, built at startup from the whole table. Off by
+         * default, the index holds every name and its trigrams.
+         */
+        private boolean enabled = false;
+        /**
+         * Results returned when the client does not send a limit.
+         */
+        private int defaultLimit = 10;
+        /**
+         * Hard upper bound, larger requested limits are clamped to it.
+         */
+        private int maxLimit = 100;
+
+        public int resolve(Integer limit) {
+            int resolved = limit == null ? defaultLimit : Math.min(limit, maxLimit);
+            if (resolved <= 0) {
+                throw new IllegalArgumentException("search limit must be positive");
+            }
+            return resolved;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Lookup {
+        /**
+         * Resolves concurrent lookups by id together, each caller waits up to {@code window} for others to join.
+         */
+        private boolean batching = false;
+        private Duration window = Duration.ofNanos(200_000);
+        /**
+         * Longest a caller waits on its batch, after which it gives up its place and reads the planet itself.
+         */
+        private Duration timeout = Duration.ofSeconds(1);
+        /**
+         * Ids per {@code IN} query, for batched lookups and multi-gets alike.
+         */
+        private int maxBatchSize = 100;
+        /**
+         * Ids accepted by a single multi-get request.
+         */
+        private int maxIds = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Stats {
+        /**
+         * How often the counters are replaced by a {@code GROUP BY} over the table, which also brings in the writes
+         * of other nodes.
+         */
+        private Duration reconcileInterval = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Admission {
+        /**
+         * Rate limits, concurrency limits and load shedding in front of {@code /planets}. Requests over a client's
+         * rate get a 429, requests over a concurrency limit a 503, both with {@code Retry-After}.
+         */
+        private boolean enabled = false;
+        /**
+         * Header naming the client, unset by default so clients are told apart by remote address. Only set it behind a
+         * trusted proxy that overwrites the header, otherwise any client can pick a fresh name per request and never
+         * run out of tokens. The remote address is still used when the header is absent.
+         */
+        private String clientHeader;
+        /**
+         * Tokens each client earns per second, a request spends the weight of its endpoint.
+         */
+        private double rate = 100;
+        /**
+         * Tokens a client can save up for bursts.
+         */
+        private int burst = 200;
+        /**
+         * Clients tracked at once, the least recently seen are forgotten first and start again with a full bucket.
+         */
+        private long maxClients = 100_000;
+        /**
+         * Sent as {@code Retry-After} with 503 responses.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+        private final Adaptive adaptive = new Adaptive();
+        /**
+         * Cost and concurrency limit per endpoint, endpoints not listed weigh 1 and are not limited. Setting any
+         * property of an endpoint replaces all of its defaults.
+         */
+        private Map<PlanetEndpoint, EndpointLimits> endpoints = new EnumMap<>(Map.of(
+                PlanetEndpoint.LIST, new EndpointLimits(10, 16),
+                PlanetEndpoint.EXPORT, new EndpointLimits(20, 2),
+                PlanetEndpoint.IMPORT, new EndpointLimits(20, 2),
+                PlanetEndpoint.BATCH, new EndpointLimits(10, 4),
+                PlanetEndpoint.DELETE, new EndpointLimits(5, 0)));
+
+        public EndpointLimits limits(PlanetEndpoint endpoint) {
+            return endpoints.getOrDefault(endpoint, EndpointLimits.DEFAULT);
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Adaptive {
+        /**
+         * Sheds requests once the weight in flight exceeds a limit that shrinks as latency rises.
+         */
+        private boolean enabled = true;
+        private int initialLimit = 100;
+        private int minLimit = 20;
+        private int maxLimit = 1000;
+        /**
+         * Latency tolerated relative to the lowest seen before the limit shrinks, 2 allows twice that.
+         */
+        private double tolerance = 2.0;
+        /**
+         * Share of each new estimate taken into the limit.
+         */
+        private double smoothing = 0.2;
+        /**
+         * How often the lowest latency is forgotten, so the baseline follows lasting changes such as a bigger table.
+         */
+        private Duration probeInterval = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class EndpointLimits {
+        static final EndpointLimits DEFAULT = new EndpointLimits(1, 0);
+
+        /**
+         * Tokens and adaptive limit slots one request takes.
+         */
+        private int weight = 1;
+        /**
+         * Requests running at once, 0 for no limit.
+         */
+        private int maxConcurrency = 0;
+
+        public EndpointLimits() {
+        }
+
+        public EndpointLimits(int weight, int maxConcurrency) {
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class WriteBehind {
+        /**
+         * Answers {@code POST /planets} with 202 once the planet is in the log, a background writer inserts it and
+         * {@code /planets/jobs/{id}} reports the outcome.
+         */
+        private boolean enabled = false;
+        /**
+         * Planets accepted but not yet written, further creations are refused with 503.
+         */
+        private int capacity = 10_000;
+        /**
+         * Planets the writer inserts per transaction.
+         */
+        private int batchSize = 500;
+        /**
+         * Write-ahead log of the accepted planets, replayed on startup.
+         */
+        private Path log = Path.of("data", "planets-ingest.log");
+        /**
+         * Force each accepted planet to disk before answering. Without it a crash of the machine can lose the
+         * planets accepted in the last moments, a crash of the process alone cannot.
+         */
+        private boolean sync = true;
+        /**
+         * Pause before a batch that failed for other reasons than conflicts is tried again.
+         */
+        private Duration retryDelay = Duration.ofSeconds(1);
+        /**
+         * How long the outcome of a finished job can be queried.
+         */
+        private Duration jobRetention = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Snapshot {
+        /**
+         * Keeps a local snapshot of the table plus a log of the changes applied since, so the in-memory indexes start
+         * from disk instead of a table scan. Writes missed while the node was down are read from the change feed
+         * outbox, without it the files are only trusted after a clean shutdown with no write since.
+         */
+        private boolean enabled = false;
+        private Path directory = Path.of("data", "snapshot");
+        /**
+         * Size of the change log that triggers a new snapshot.
+         */
+        private DataSize compactAfter = DataSize.ofMegabytes(64);
+        /**
+         * How often the change log size is checked.
+         */
+        private Duration checkInterval = Duration.ofMinutes(1);
+        /**
+         * Window of the files mapped into memory at once.
+         */
+        private DataSize mapSize = DataSize.ofMegabytes(16);
+    }
+
+    @Getter
+    @Setter
+    public static class SecondLevelCache {
+        /**
+         * Caches planets in Hibernate's second-level cache and the results of the filter and name queries in its
+         * query cache, both in Caffeine through JCache.
+         */
+        private boolean enabled = false;
+        private Region entities = new Region(10_000, Duration.ofMinutes(10));
+        /**
+         * Query results keep the rows they returned. Writes over JDBC and those of other nodes are evicted when their
+         * event commits, the time to live bounds how long a result read just before that can linger.
+         */
+        private Region queries = new Region(1_000, Duration.ofMinutes(1));
+        /**
+         * Hibernate's statistics, plus the {@code cache.*} metrics of the planet regions tagged
+         * {@code cache=hibernate.planets} and {@code cache=hibernate.planets.queries}.
+         */
+        private boolean statistics = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Region {
+        /**
+         * Entries kept before the least used ones are evicted.
+         */
+        private long maximumSize;
+        /**
+         * Time an entry stays after it was written.
+         */
+        private Duration ttl;
+
+        public Region() {
+        }
+
+        public Region(long maximumSize, Duration ttl) {
+            this.maximumSize = maximumSize;
+            this.ttl = ttl;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.wdefassio.starwars.infra.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.Disposable;
+
+/**
+ * R2DBC access for the reactive variant. The connection factory is deliberately not a bean: one would make Boot back
+ * off from the JDBC datasource that JPA, the batch endpoints and the caches still run on.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDataConfiguration implements DisposableBean {
+
+    private ConnectionFactory connectionFactory;
+
+    @Bean
+    public DatabaseClient databaseClient(DatabaseProperties databaseProperties) {
+        DatabaseProperties.R2dbc settings = databaseProperties.getR2dbc();
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(settings.getUrl()).mutate();
+        if (settings.getUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, settings.getUsername());
+        }
+        if (settings.getPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, settings.getPassword());
+        }
+        connectionFactory = ConnectionFactories.get(options.build());
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionFactory instanceof Disposable pool) {
+            pool.dispose();
+        }
+    }
+
+}
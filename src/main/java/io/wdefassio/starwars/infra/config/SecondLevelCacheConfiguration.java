@@ -0,0 +1,79 @@
+package io.wdefassio.starwars.infra.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.wdefassio.starwars.domain.Planet;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate's second-level and query caches for planets, kept in Caffeine through JCache. Every region is created here
+ * with the sizes of {@code starwars.planets.second-level-cache}, Hibernate is told to fail rather than create one with
+ * no bounds.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "starwars.planets.second-level-cache", name = "enabled")
+public class SecondLevelCacheConfiguration {
+
+    /**
+     * One cache manager per context, under its own URI, so contexts sharing a class loader do not share regions.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager planetCacheManager(PlanetProperties planetProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        PlanetProperties.SecondLevelCache settings = planetProperties.getSecondLevelCache();
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("starwars:planets:" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String name : new String[]{Planet.CACHE_REGION, Planet.QUERY_CACHE_REGION}) {
+            PlanetProperties.Region region = name.equals(Planet.CACHE_REGION) ? settings.getEntities() : settings.getQueries();
+            javax.cache.Cache<Object, Object> cache = cacheManager.createCache(name, region(region, settings.isStatistics()));
+            if (settings.isStatistics()) {
+                meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache.unwrap(Cache.class), "hibernate." + name));
+            }
+        }
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(settings.getQueries(), false));
+        // last update of each table, checked by every cached query: evicting an entry would serve stale results
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager planetCacheManager, PlanetProperties planetProperties) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, planetCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, planetProperties.getSecondLevelCache().isStatistics());
+        };
+    }
+
+    @Bean
+    public SecondLevelCacheEvictor secondLevelCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        return new SecondLevelCacheEvictor(entityManagerFactory);
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(PlanetProperties.Region settings, boolean statistics) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(settings.getMaximumSize()));
+        configuration.setExpireAfterWrite(OptionalLong.of(settings.getTtl().toNanos()));
+        configuration.setNativeStatisticsEnabled(statistics);
+        return configuration;
+    }
+}
@@ -0,0 +1,27 @@
+package io.wdefassio.starwars.infra.config;
+
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts what Hibernate cannot know is stale: planets written by the JDBC batches and by other nodes, replayed from
+ * the change feed. Its own writes it already evicts, doing it again only costs one more load. The planet query region
+ * is cleared whole, as Hibernate does on every write to the table.
+ */
+public class SecondLevelCacheEvictor {
+    private final Cache cache;
+
+    public SecondLevelCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlanetEvent(PlanetEvent event) {
+        cache.evictEntityData(Planet.class, event.getPlanet().getId());
+        cache.evictQueryRegion(Planet.QUERY_CACHE_REGION);
+    }
+}
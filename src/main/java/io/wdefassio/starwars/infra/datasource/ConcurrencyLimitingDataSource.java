@@ -0,0 +1,93 @@
+package io.wdefassio.starwars.infra.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds how many connections are checked out at once with a fair semaphore. Virtual threads park on the
+ * semaphore cheaply, while thousands of them spinning inside the pool handoff (or pinning carriers in
+ * synchronized driver code) would not. The permit is returned when the connection is closed.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource {
+    private final Semaphore permits;
+    private final int limit;
+    private final long acquireTimeoutNanos;
+
+    public ConcurrencyLimitingDataSource(DataSource target, int limit, Duration acquireTimeout) {
+        super(target);
+        this.limit = limit;
+        this.permits = new Semaphore(limit, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection());
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getAvailable() {
+        return permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("no connection permit within " + Duration.ofNanos(acquireTimeoutNanos)
+                        + ", " + permits.getQueueLength() + " callers waiting");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("interrupted while waiting for a connection permit", ex);
+        }
+    }
+
+    private Connection limited(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            } finally {
+                if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package io.wdefassio.starwars.infra.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.infra.config.DatabaseProperties;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Configuration
+public class DataSourceConfiguration {
+
+    /**
+     * Tunes the pool Boot builds, before initialization so the concurrency limit below sees its final size. Replica
+     * pools are tuned as they are built.
+     */
+    @Bean
+    public static BeanPostProcessor dataSourceTuningPostProcessor(ObjectProvider<DatabaseProperties> databaseProperties,
+                                                                  ObjectProvider<PlanetProperties> planetProperties,
+                                                                  Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    new DataSourceTuning(databaseProperties.getObject(), planetProperties.getObject(), environment).apply(pool, beanName);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Wraps the pool in a {@link ConcurrencyLimitingDataSource} when {@code starwars.datasource.concurrency.enabled} is set.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "starwars.datasource.concurrency", name = "enabled")
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(ObjectProvider<DatabaseProperties> databaseProperties,
+                                                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitingDataSource || bean instanceof ReplicaRoutingDataSource) {
+                    return bean;
+                }
+                DatabaseProperties.Concurrency settings = databaseProperties.getObject().getConcurrency();
+                int limit = settings.getLimit();
+                if (limit <= 0 && dataSource instanceof HikariDataSource hikari) {
+                    limit = hikari.getMaximumPoolSize();
+                }
+                if (limit <= 0) {
+                    log.warn("No concurrency limit configured for data source {}, leaving it unbounded", beanName);
+                    return bean;
+                }
+                ConcurrencyLimitingDataSource limited = new ConcurrencyLimitingDataSource(dataSource, limit, settings.getAcquireTimeout());
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("starwars.datasource.permits.available", limited, ConcurrencyLimitingDataSource::getAvailable).register(registry);
+                    Gauge.builder("starwars.datasource.permits.waiting", limited, ConcurrencyLimitingDataSource::getWaiting).register(registry);
+                });
+                log.info("Limiting data source {} to {} concurrent connections", beanName, limit);
+                return limited;
+            }
+        };
+    }
+
+    /**
+     * Primary and replica pools behind a {@link ReplicaRoutingDataSource}. Not an autowiring candidate itself, the
+     * lazy {@link #dataSource} in front of it is what JPA and JDBC use.
+     */
+    @Bean(defaultCandidate = false)
+    @ConditionalOnProperty(prefix = "starwars.datasource.replicas", name = "enabled")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties, DatabaseProperties databaseProperties,
+                                                             PlanetProperties planetProperties, Environment environment,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        DatabaseProperties.Replicas settings = databaseProperties.getReplicas();
+        DataSourceTuning tuning = new DataSourceTuning(databaseProperties, planetProperties, environment);
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configure(primary, "primary", environment, tuning, meterRegistry);
+        List<DataSource> replicas = new ArrayList<>();
+        for (DatabaseProperties.Node node : settings.getNodes()) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(node.getUrl())
+                    .username(node.getUsername() != null ? node.getUsername() : dataSourceProperties.determineUsername())
+                    .password(node.getPassword() != null ? node.getPassword() : dataSourceProperties.determinePassword())
+                    .build();
+            configure(replica, "replica-" + replicas.size(), environment, tuning, meterRegistry);
+            replicas.add(replica);
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, settings.getBalancing(), settings.getHealthCheckInterval());
+        meterRegistry.ifAvailable(registry ->
+                Gauge.builder("starwars.datasource.replicas.healthy", routing, ReplicaRoutingDataSource::getHealthyReplicas).register(registry));
+        log.info("Routing read-only transactions to {} replicas ({})", replicas.size(), settings.getBalancing());
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "starwars.datasource.replicas", name = "enabled")
+    public DataSource dataSource(@Qualifier("replicaRoutingDataSource") ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "starwars.datasource.replicas", name = "enabled")
+    public ReplicaRoutingFilter replicaRoutingFilter() {
+        return new ReplicaRoutingFilter();
+    }
+
+    /**
+     * Applies the {@code spring.datasource.hikari} settings, the tuning and the pool metrics to every pool, which Boot
+     * only does for the one it builds.
+     */
+    private static void configure(HikariDataSource pool, String name, Environment environment, DataSourceTuning tuning,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        tuning.apply(pool, name);
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+    }
+
+}
@@ -0,0 +1,110 @@
+package io.wdefassio.starwars.infra.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.wdefassio.starwars.infra.config.DatabaseProperties;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sizes a Hikari pool and hands it the Connector/J settings of {@code starwars.datasource}, then checks the outcome
+ * against what the service does with its connections and logs each conflict. Applied to every pool before it starts,
+ * the one Boot builds as well as the replica pools.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DataSourceTuning {
+    private static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+
+    private final DatabaseProperties databaseProperties;
+    private final PlanetProperties planetProperties;
+    private final Environment environment;
+
+    public void apply(HikariDataSource pool, String name) {
+        DatabaseProperties.Pool sizing = databaseProperties.getPool();
+        if (sizing.isAutoSize() && !environment.containsProperty(MAXIMUM_POOL_SIZE)) {
+            pool.setMaximumPoolSize(sizing.size());
+        }
+        if (isMysql(pool)) {
+            DatabaseProperties.Mysql mysql = databaseProperties.getMysql();
+            setDefault(pool, "cachePrepStmts", mysql.isCachePreparedStatements());
+            setDefault(pool, "prepStmtCacheSize", mysql.getPreparedStatementCacheSize());
+            setDefault(pool, "prepStmtCacheSqlLimit", mysql.getPreparedStatementCacheSqlLimit());
+            setDefault(pool, "useServerPrepStmts", mysql.isServerPreparedStatements());
+            setDefault(pool, "rewriteBatchedStatements", mysql.isRewriteBatchedStatements());
+            setDefault(pool, "useCursorFetch", mysql.isCursorFetch());
+        }
+        log.info("Data source {} pools up to {} connections", name, pool.getMaximumPoolSize());
+        check(pool).forEach(conflict -> log.warn("Data source {}: {}", name, conflict));
+    }
+
+    /**
+     * Settings that work against the workload, one sentence each.
+     */
+    List<String> check(HikariDataSource pool) {
+        List<String> conflicts = new ArrayList<>();
+        int size = pool.getMaximumPoolSize();
+        if (isMysql(pool)) {
+            if (!flag(pool, "rewriteBatchedStatements")) {
+                conflicts.add(String.format("rewriteBatchedStatements is off, batches of %d planets go out one statement per row",
+                        planetProperties.getBatch().getChunkSize()));
+            }
+            if (planetProperties.getStream().getFetchSize() > 0 && !flag(pool, "useCursorFetch")) {
+                conflicts.add(String.format("useCursorFetch is off, streams and exports read whole results instead of %d rows at a time",
+                        planetProperties.getStream().getFetchSize()));
+            }
+            if (flag(pool, "useServerPrepStmts") && !flag(pool, "cachePrepStmts")) {
+                conflicts.add("useServerPrepStmts is on without cachePrepStmts, every query prepares and closes a statement on the server");
+            }
+        }
+        DatabaseProperties.Concurrency concurrency = databaseProperties.getConcurrency();
+        if (concurrency.isEnabled() && concurrency.getLimit() > size) {
+            conflicts.add(String.format("starwars.datasource.concurrency.limit=%d is above the %d connections of the pool, callers past it queue inside Hikari",
+                    concurrency.getLimit(), size));
+        }
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false) && !concurrency.isEnabled()) {
+            conflicts.add("virtual threads are on without starwars.datasource.concurrency, requests queue inside Hikari and fail after its connection-timeout");
+        }
+        if (planetProperties.getImports().getMaxWriters() >= size) {
+            conflicts.add(String.format("an import with %d writers can hold all %d connections and starve reads",
+                    planetProperties.getImports().getMaxWriters(), size));
+        }
+        return conflicts;
+    }
+
+    private static boolean isMysql(HikariDataSource pool) {
+        return pool.getJdbcUrl() != null && pool.getJdbcUrl().startsWith("jdbc:mysql:");
+    }
+
+    private static void setDefault(HikariDataSource pool, String name, Object value) {
+        if (driverProperty(pool, name) == null) {
+            pool.addDataSourceProperty(name, String.valueOf(value));
+        }
+    }
+
+    private static boolean flag(HikariDataSource pool, String name) {
+        return Boolean.parseBoolean(driverProperty(pool, name));
+    }
+
+    /**
+     * The value in the URL, else the one among the data source properties, as Connector/J resolves it.
+     */
+    static String driverProperty(HikariDataSource pool, String name) {
+        String url = pool.getJdbcUrl();
+        int query = url != null ? url.indexOf('?') : -1;
+        if (query >= 0) {
+            for (String parameter : url.substring(query + 1).split("&")) {
+                String[] pair = parameter.split("=", 2);
+                if (pair[0].equalsIgnoreCase(name)) {
+                    return pair.length > 1 ? pair[1] : "";
+                }
+            }
+        }
+        Object value = pool.getDataSourceProperties().get(name);
+        return value != null ? value.toString() : null;
+    }
+}
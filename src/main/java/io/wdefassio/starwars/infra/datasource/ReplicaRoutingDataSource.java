@@ -0,0 +1,239 @@
+package io.wdefassio.starwars.infra.datasource;
+
+import io.wdefassio.starwars.infra.config.DatabaseProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out replica connections inside read-only transactions and primary connections everywhere else. It has to sit
+ * behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, otherwise the connection is taken
+ * before the transaction is marked read-only.
+ * <p>
+ * Once a thread writes, its later reads stay on the primary so a request reads its own writes regardless of replication
+ * lag. Inside a unit of work opened with {@link #keepPin()}, a request for instance, the pin lasts until
+ * {@link #clearPin()}. Anywhere else it ends with the transaction that wrote, so scheduled, async and writer threads never
+ * carry one into their next task. A replica that fails to connect or to validate is skipped until a health check sees it
+ * answer again, and with no replica left reads fall back to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> KEPT = new ThreadLocal<>();
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final DatabaseProperties.Balancing balancing;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthCheck;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, DatabaseProperties.Balancing balancing, Duration healthCheckInterval) {
+        this.primary = primary;
+        this.balancing = balancing;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+        if (healthCheckInterval.isZero() || healthCheckInterval.isNegative()) {
+            this.healthCheck = null;
+        } else {
+            this.healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = healthCheckInterval.toMillis();
+            this.healthCheck.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Keeps a pin set on the current thread across transactions until {@link #clearPin()}, which must follow in a
+     * {@code finally}.
+     */
+    public static void keepPin() {
+        KEPT.set(Boolean.TRUE);
+    }
+
+    /**
+     * Lets the current thread read from replicas again and ends the unit of work opened by {@link #keepPin()}.
+     */
+    public static void clearPin() {
+        PINNED.remove();
+        KEPT.remove();
+    }
+
+    /**
+     * Whether reads on the current thread must go to the primary because it wrote earlier in the request.
+     */
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    public int getHealthyReplicas() {
+        return (int) replicas.stream().filter(Replica::isHealthy).count();
+    }
+
+    /**
+     * Validates every replica once, bringing recovered ones back into rotation.
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.target.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown(null);
+                }
+            } catch (SQLException ex) {
+                replica.markDown(ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+        }
+        close(primary);
+        replicas.forEach(replica -> close(replica.target));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                pin();
+            }
+            return source.open(primary);
+        }
+        if (PINNED.get() == null) {
+            for (Replica replica : candidates()) {
+                try {
+                    return replica.open(source);
+                } catch (SQLException ex) {
+                    replica.markDown(ex);
+                }
+            }
+        }
+        return source.open(primary);
+    }
+
+    private static void pin() {
+        if (PINNED.get() != null) {
+            return;
+        }
+        PINNED.set(Boolean.TRUE);
+        if (KEPT.get() == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    PINNED.remove();
+                }
+            });
+        }
+    }
+
+    private List<Replica> candidates() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        int offset = replicas.isEmpty() ? 0 : Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((offset + i) % replicas.size());
+            if (replica.isHealthy()) {
+                healthy.add(replica);
+            }
+        }
+        if (balancing == DatabaseProperties.Balancing.LEAST_CONNECTIONS) {
+            healthy.sort(Comparator.comparingInt(replica -> replica.active.get()));
+        }
+        return healthy;
+    }
+
+    private static void close(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                log.warn("Failed to close data source {}", dataSource, ex);
+            }
+        }
+    }
+
+    private interface ConnectionSource {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource target;
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        boolean isHealthy() {
+            return healthy;
+        }
+
+        void markUp() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Replica {} is back in rotation", name);
+            }
+        }
+
+        void markDown(SQLException ex) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Replica {} taken out of rotation: {}", name, ex == null ? "validation failed" : ex.getMessage());
+            }
+        }
+
+        Connection open(ConnectionSource source) throws SQLException {
+            Connection connection = source.open(target);
+            active.incrementAndGet();
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                } finally {
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        active.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.wdefassio.starwars.domain.Planet;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC access for bulk writes. Hibernate cannot batch inserts of {@code IDENTITY} ids, the driver can
+ * (with {@code rewriteBatchedStatements=true} MySQL turns a batch into multi-row inserts and still returns the keys).
+ * Callers own the transaction.
+ */
+@Repository
+@Timed("planets.repository")
+@RequiredArgsConstructor
+public class PlanetBatchRepository {
+    private static final String INSERT = "insert into planets (name, climate, terrain, version, last_modified) values (?, ?, ?, 0, ?)";
+    private static final RowMapper<Planet> PLANET_MAPPER = (rs, rowNum) -> {
+        Planet planet = new Planet(rs.getLong("id"), rs.getString("name"), rs.getString("climate"), rs.getString("terrain"));
+        planet.setVersion(rs.getObject("version", Long.class));
+        planet.setLastModified(rs.getObject("last_modified", Long.class));
+        return planet;
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<String> findExistingNames(Collection<String> names) {
+        return jdbcTemplate.queryForList("select name from planets where name in (:names)", Map.of("names", names), String.class);
+    }
+
+    public List<Planet> findAllByIds(Collection<Long> ids) {
+        return jdbcTemplate.query("select id, name, climate, terrain, version, last_modified from planets where id in (:ids)", Map.of("ids", ids), PLANET_MAPPER);
+    }
+
+    /**
+     * Inserts the planets in one JDBC batch and sets the generated ids, the initial version and the modification time on them.
+     */
+    public void insertAll(List<Planet> planets) {
+        long now = System.currentTimeMillis();
+        jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+                for (Planet planet : planets) {
+                    planet.setVersion(0L);
+                    planet.setLastModified(now);
+                    statement.setString(1, planet.getName());
+                    statement.setString(2, planet.getClimate());
+                    statement.setString(3, planet.getTerrain());
+                    statement.setLong(4, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; keys.next(); i++) {
+                        planets.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    public int deleteAllByIds(Collection<Long> ids) {
+        return jdbcTemplate.update("delete from planets where id in (:ids)", Map.of("ids", ids));
+    }
+}
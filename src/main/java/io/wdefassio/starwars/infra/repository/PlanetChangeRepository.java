@@ -0,0 +1,74 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.wdefassio.starwars.domain.PlanetChange;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC access to the {@link PlanetChange} outbox. Inserts join the caller's transaction.
+ */
+@Repository
+@Timed("planets.repository")
+@RequiredArgsConstructor
+public class PlanetChangeRepository {
+    private static final String COLUMNS = "select id, type, planet_id, name, climate, terrain, version, last_modified, created_at from planet_changes";
+    private static final RowMapper<PlanetChange> CHANGE_MAPPER = (rs, rowNum) -> new PlanetChange(rs.getLong("id"),
+            PlanetEvent.Type.valueOf(rs.getString("type")), rs.getLong("planet_id"), rs.getString("name"), rs.getString("climate"),
+            rs.getString("terrain"), rs.getObject("version", Long.class), rs.getObject("last_modified", Long.class), rs.getLong("created_at"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<PlanetChange> changes) {
+        SqlParameterSource[] params = changes.stream().map(change -> new MapSqlParameterSource()
+                        .addValue("type", change.getType().name())
+                        .addValue("planetId", change.getPlanetId())
+                        .addValue("name", change.getName())
+                        .addValue("climate", change.getClimate())
+                        .addValue("terrain", change.getTerrain())
+                        .addValue("version", change.getVersion())
+                        .addValue("lastModified", change.getLastModified())
+                        .addValue("createdAt", change.getCreatedAt()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("insert into planet_changes (type, planet_id, name, climate, terrain, version, last_modified, created_at) " +
+                "values (:type, :planetId, :name, :climate, :terrain, :version, :lastModified, :createdAt)", params);
+    }
+
+    /**
+     * Changes with {@code id > afterId} in id order.
+     */
+    public List<PlanetChange> findAfter(long afterId, int limit) {
+        return jdbcTemplate.query(COLUMNS + " where id > :afterId order by id limit :limit",
+                Map.of("afterId", afterId, "limit", limit), CHANGE_MAPPER);
+    }
+
+    public List<PlanetChange> findAllByIds(Collection<Long> ids) {
+        return jdbcTemplate.query(COLUMNS + " where id in (:ids) order by id", Map.of("ids", ids), CHANGE_MAPPER);
+    }
+
+    /**
+     * Id of the oldest change written at or after {@code createdAt}, null when there is none.
+     */
+    public Long findFirstIdSince(long createdAt) {
+        return jdbcTemplate.queryForObject("select min(id) from planet_changes where created_at >= :createdAt",
+                Map.of("createdAt", createdAt), Long.class);
+    }
+
+    public long findMaxId() {
+        Long max = jdbcTemplate.queryForObject("select max(id) from planet_changes", Map.of(), Long.class);
+        return max == null ? 0L : max;
+    }
+
+    public int deleteOlderThan(long createdAt) {
+        return jdbcTemplate.update("delete from planet_changes where created_at < :createdAt", Map.of("createdAt", createdAt));
+    }
+}
@@ -0,0 +1,39 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetStats;
+import io.wdefassio.starwars.domain.PlanetView;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface PlanetFilterRepository {
+
+    /**
+     * Planets matching the optional filters, compared case-insensitively through the indexed key columns.
+     */
+    List<Planet> findFiltered(String terrain, String climate);
+
+    /**
+     * Keyset query: planets matching the optional filters with {@code id > afterId}, ordered by id.
+     */
+    List<Planet> findFiltered(String terrain, String climate, Long afterId, int limit);
+
+    /**
+     * Same keyset query selecting only the columns of {@code fields}, no entity is loaded.
+     */
+    List<PlanetView> findFiltered(String terrain, String climate, Long afterId, int limit, Set<PlanetField> fields);
+
+    /**
+     * Forward-only stream over the filtered planets. Entities are detached as they are read so the
+     * persistence context does not grow; must be consumed inside a transaction and closed.
+     */
+    Stream<Planet> streamFiltered(String terrain, String climate, Long afterId, int fetchSize);
+
+    /**
+     * Planet count per pair of normalized climate and terrain, read from the key columns.
+     */
+    List<PlanetStats.Group> countGroups();
+}
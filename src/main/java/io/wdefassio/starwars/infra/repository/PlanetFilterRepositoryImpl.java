@@ -0,0 +1,119 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetStats;
+import io.wdefassio.starwars.domain.PlanetView;
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class PlanetFilterRepositoryImpl implements PlanetFilterRepository {
+
+    private static final int TERRAIN = 1;
+    private static final int CLIMATE = 2;
+    private static final String[] FILTERS = new String[4];
+    /**
+     * One JPQL string per filter shape, built once so Hibernate's plan cache keeps them compiled.
+     * Parameters go through the same expression as the generated key columns, which keeps the columns bare and indexable.
+     */
+    private static final String[] QUERIES = new String[4];
+
+    static {
+        for (int shape = 0; shape < QUERIES.length; shape++) {
+            StringBuilder jpql = new StringBuilder(" from Planet p where p.id > :afterId");
+            if ((shape & TERRAIN) != 0) {
+                jpql.append(" and p.terrainKey = lower(trim(:terrain))");
+            }
+            if ((shape & CLIMATE) != 0) {
+                jpql.append(" and p.climateKey = lower(trim(:climate))");
+            }
+            FILTERS[shape] = jpql.append(" order by p.id").toString();
+            QUERIES[shape] = "select p" + FILTERS[shape];
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Planet> findFiltered(String terrain, String climate) {
+        return cacheable(query(terrain, climate, 0L)).getResultList();
+    }
+
+    @Override
+    public List<Planet> findFiltered(String terrain, String climate, Long afterId, int limit) {
+        return cacheable(query(terrain, climate, afterId))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<PlanetView> findFiltered(String terrain, String climate, Long afterId, int limit, Set<PlanetField> fields) {
+        String columns = fields.stream()
+                .map(field -> "p." + field.getProperty() + " as " + field.getProperty())
+                .collect(Collectors.joining(", "));
+        TypedQuery<Tuple> query = entityManager.createQuery("select " + columns + FILTERS[shape(terrain, climate)], Tuple.class);
+        return bind(query, terrain, climate, afterId)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(tuple -> new PlanetView(tuple.get("id", Long.class),
+                        fields.contains(PlanetField.NAME) ? tuple.get("name", String.class) : null,
+                        fields.contains(PlanetField.CLIMATE) ? tuple.get("climate", String.class) : null,
+                        fields.contains(PlanetField.TERRAIN) ? tuple.get("terrain", String.class) : null))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<PlanetStats.Group> countGroups() {
+        return entityManager.createQuery("select p.climateKey, p.terrainKey, count(p) from Planet p group by p.climateKey, p.terrainKey", Tuple.class)
+                .getResultStream()
+                .map(tuple -> new PlanetStats.Group(Objects.toString(tuple.get(0, String.class), ""),
+                        Objects.toString(tuple.get(1, String.class), ""), tuple.get(2, Long.class)))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Planet> streamFiltered(String terrain, String climate, Long afterId, int fetchSize) {
+        return query(terrain, climate, afterId)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+
+    private TypedQuery<Planet> query(String terrain, String climate, Long afterId) {
+        return bind(entityManager.createQuery(QUERIES[shape(terrain, climate)], Planet.class), terrain, climate, afterId);
+    }
+
+    /**
+     * Results go to the query cache when {@code starwars.planets.second-level-cache.enabled} is set, streams never do.
+     */
+    private static <T> TypedQuery<T> cacheable(TypedQuery<T> query) {
+        return query.setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, Planet.QUERY_CACHE_REGION);
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, String terrain, String climate, Long afterId) {
+        query.setParameter("afterId", afterId == null ? 0L : afterId);
+        if (terrain != null) {
+            query.setParameter("terrain", terrain);
+        }
+        if (climate != null) {
+            query.setParameter("climate", climate);
+        }
+        return query;
+    }
+
+    private static int shape(String terrain, String climate) {
+        return (terrain != null ? TERRAIN : 0) | (climate != null ? CLIMATE : 0);
+    }
+}
@@ -1,10 +1,32 @@
 package io.wdefassio.starwars.infra.repository;
 
 import io.wdefassio.starwars.domain.Planet;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
-public interface PlanetRepository extends JpaRepository<Planet, Long> {
-    Optional<Planet> findByName(String name);
+public interface PlanetRepository extends JpaRepository<Planet, Long>, PlanetFilterRepository {
+    /**
+     * Matches on the generated {@code name_key}, so names compare the way {@code NameNormalizer} does whatever the
+     * column collation. Goes through the query cache when {@code starwars.planets.second-level-cache.enabled} is set.
+     */
+    @Query("select p from Planet p where p.nameKey = lower(trim(:name))")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Planet.QUERY_CACHE_REGION)
+    })
+    Optional<Planet> findByName(@Param("name") String name);
+
+    /**
+     * Anchored {@code LIKE 'prefix%'} on the upper-cased name, matching names the way {@code NameNormalizer} does. The
+     * function keeps the unique index on name from serving it, search only falls back to it while its index warms.
+     */
+    List<Planet> findByNameStartingWithIgnoreCaseOrderByName(String prefix, Limit limit);
 }
@@ -0,0 +1,45 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.wdefassio.starwars.domain.PlanetRevision;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and bumps the {@link PlanetRevision} row. Callers writing planets bump it last in their transaction,
+ * which keeps the row lock that serializes concurrent writers as short as possible.
+ */
+@Repository
+@Timed("planets.repository")
+@RequiredArgsConstructor
+public class PlanetRevisionRepository {
+    private static final String BUMP = "update planet_revisions set revision = revision + 1, last_modified = :now where id = :id";
+    private static final RowMapper<PlanetRevision> REVISION_MAPPER = (rs, rowNum) ->
+            new PlanetRevision(rs.getInt("id"), rs.getLong("revision"), rs.getObject("last_modified", Long.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PlanetRevision current() {
+        List<PlanetRevision> rows = jdbcTemplate.query("select id, revision, last_modified from planet_revisions where id = :id",
+                Map.of("id", PlanetRevision.ID), REVISION_MAPPER);
+        return rows.isEmpty() ? PlanetRevision.INITIAL : rows.get(0);
+    }
+
+    public void bump() {
+        Map<String, Object> params = Map.of("id", PlanetRevision.ID, "now", System.currentTimeMillis());
+        if (jdbcTemplate.update(BUMP, params) == 0) {
+            try {
+                jdbcTemplate.update("insert into planet_revisions (id, revision, last_modified) values (:id, 1, :now)", params);
+            } catch (DuplicateKeyException ex) {
+                // another writer created the row first
+                jdbcTemplate.update(BUMP, params);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.r2dbc.spi.Readable;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetRevision;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link PlanetRepository} for the reactive variant, same table and same filter queries.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePlanetRepository {
+
+    private static final String COLUMNS = "select id, name, climate, terrain, version, last_modified from planets";
+
+    /**
+     * One SQL string per filter shape, mirroring {@link PlanetFilterRepositoryImpl}.
+     */
+    private static final int TERRAIN = 1;
+    private static final int CLIMATE = 2;
+    private static final String[] QUERIES = new String[4];
+
+    static {
+        for (int shape = 0; shape < QUERIES.length; shape++) {
+            StringBuilder sql = new StringBuilder(COLUMNS).append(" where id > :afterId");
+            if ((shape & TERRAIN) != 0) {
+                sql.append(" and terrain_key = lower(trim(:terrain))");
+            }
+            if ((shape & CLIMATE) != 0) {
+                sql.append(" and climate_key = lower(trim(:climate))");
+            }
+            QUERIES[shape] = sql.append(" order by id").toString();
+        }
+    }
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Planet> findById(Long id) {
+        return databaseClient.sql(COLUMNS + " where id = :id")
+                .bind("id", id)
+                .map(ReactivePlanetRepository::toPlanet)
+                .one();
+    }
+
+    public Mono<Planet> findByName(String name) {
+        return databaseClient.sql(COLUMNS + " where name_key = lower(trim(:name))")
+                .bind("name", name)
+                .map(ReactivePlanetRepository::toPlanet)
+                .one();
+    }
+
+    public Flux<Planet> findFiltered(String terrain, String climate, Long afterId, int limit) {
+        return query(QUERIES[shape(terrain, climate)] + " limit :limit", terrain, climate, afterId)
+                .bind("limit", limit)
+                .map(ReactivePlanetRepository::toPlanet)
+                .all();
+    }
+
+    /**
+     * Rows are requested from the driver as the subscriber asks for them, {@code fetchSize} at a time.
+     */
+    public Flux<Planet> streamFiltered(String terrain, String climate, Long afterId, int fetchSize) {
+        return query(QUERIES[shape(terrain, climate)], terrain, climate, afterId)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactivePlanetRepository::toPlanet)
+                .all();
+    }
+
+    public Mono<Planet> insert(Planet planet) {
+        return Mono.defer(() -> {
+            long now = System.currentTimeMillis();
+            return bind(bind(bind(databaseClient.sql("insert into planets (name, climate, terrain, version, last_modified) values (:name, :climate, :terrain, 0, :now)"),
+                    "name", planet.getName()), "climate", planet.getClimate()), "terrain", planet.getTerrain())
+                    .bind("now", now)
+                    .filter(statement -> statement.returnGeneratedValues("id"))
+                    .map(row -> row.get("id", Long.class))
+                    .one()
+                    .map(id -> {
+                        Planet created = new Planet(id, planet.getName(), planet.getClimate(), planet.getTerrain());
+                        created.setVersion(0L);
+                        created.setLastModified(now);
+                        return created;
+                    });
+        });
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return databaseClient.sql("delete from planets where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Same counter as {@link PlanetRevisionRepository}, bumped after the write since there is no surrounding transaction.
+     */
+    public Mono<Void> bumpRevision() {
+        return updateRevision()
+                .flatMap(updated -> updated > 0 ? Mono.<Void>empty() : databaseClient.sql("insert into planet_revisions (id, revision, last_modified) values (:id, 1, :now)")
+                        .bind("id", PlanetRevision.ID)
+                        .bind("now", System.currentTimeMillis())
+                        .then()
+                        // another writer created the row first
+                        .onErrorResume(DataIntegrityViolationException.class, ex -> updateRevision().then()));
+    }
+
+    private Mono<Long> updateRevision() {
+        return Mono.defer(() -> databaseClient.sql("update planet_revisions set revision = revision + 1, last_modified = :now where id = :id")
+                .bind("now", System.currentTimeMillis())
+                .bind("id", PlanetRevision.ID)
+                .fetch()
+                .rowsUpdated());
+    }
+
+    private DatabaseClient.GenericExecuteSpec query(String sql, String terrain, String climate, Long afterId) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("afterId", afterId == null ? 0L : afterId);
+        if (terrain != null) {
+            spec = spec.bind("terrain", terrain);
+        }
+        if (climate != null) {
+            spec = spec.bind("climate", climate);
+        }
+        return spec;
+    }
+
+    private static int shape(String terrain, String climate) {
+        return (terrain != null ? TERRAIN : 0) | (climate != null ? CLIMATE : 0);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static Planet toPlanet(Readable row) {
+        Planet planet = new Planet(row.get("id", Long.class), row.get("name", String.class),
+                row.get("climate", String.class), row.get("terrain", String.class));
+        planet.setVersion(row.get("version", Long.class));
+        planet.setLastModified(row.get("last_modified", Long.class));
+        return planet;
+    }
+}
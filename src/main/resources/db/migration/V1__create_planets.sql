@@ -0,0 +1,11 @@
+-- The planets table as ddl-auto=update created it before migrations, existing databases are baselined at this version.
+-- Kept to the syntax H2 and MySQL share so the tests run the same scripts.
+
+create table planets (
+    id bigint not null auto_increment,
+    climate varchar(255),
+    name varchar(255) not null,
+    terrain varchar(255),
+    primary key (id),
+    constraint uk_planets_name unique (name)
+);
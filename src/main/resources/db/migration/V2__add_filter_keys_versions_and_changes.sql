@@ -0,0 +1,36 @@
+-- Normalized lookup and filter keys, optimistic locking and HTTP validators, the table revision and the change feed outbox.
+
+alter table planets add column name_key varchar(255) generated always as (lower(trim(name)));
+alter table planets add column climate_key varchar(255) generated always as (lower(trim(climate)));
+alter table planets add column terrain_key varchar(255) generated always as (lower(trim(terrain)));
+alter table planets add column version bigint;
+alter table planets add column last_modified bigint;
+
+-- rows written before versioning start at the version a new planet gets
+update planets set version = 0 where version is null;
+
+create index idx_planets_name_key on planets (name_key);
+create index idx_planets_climate_key on planets (climate_key);
+create index idx_planets_terrain_climate_key on planets (terrain_key, climate_key);
+
+create table planet_revisions (
+    id integer not null,
+    revision bigint not null,
+    last_modified bigint,
+    primary key (id)
+);
+
+create table planet_changes (
+    id bigint not null auto_increment,
+    type enum ('CREATED', 'REMOVED') not null,
+    planet_id bigint not null,
+    name varchar(255),
+    climate varchar(255),
+    terrain varchar(255),
+    version bigint,
+    last_modified bigint,
+    created_at bigint not null,
+    primary key (id)
+);
+
+create index idx_planet_changes_created_at on planet_changes (created_at);
@@ -0,0 +1,75 @@
+package io.wdefassio.starwars;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import static io.wdefassio.starwars.common.PlanetConstants.ALDERAAN;
+import static io.wdefassio.starwars.common.PlanetConstants.TATTOINE;
+import static io.wdefassio.starwars.common.PlanetConstants.YAVINI;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The fast-start profile against an in-memory H2 schema built by the migrations, so it runs with the unit tests.
+ */
+@ActiveProfiles("fast-start")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:fast-start;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@Sql(scripts = {"/remove-planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+@Sql(scripts = {"/create-planets.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class FastStartTest {
+    @Autowired
+    TestRestTemplate template;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("should serve reads with lazily initialized beans")
+    public void getPlanetE2ESuccess() {
+        ResponseEntity<Planet> sut = template.getForEntity("/planets/name/" + TATTOINE.getName(), Planet.class);
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(sut.getBody()).isEqualTo(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should not cache a miss for a name spelled in another case")
+    public void getPlanetByNameInAnyCaseE2ESuccess() {
+        ResponseEntity<Planet> upper = template.getForEntity("/planets/name/" + ALDERAAN.getName().toUpperCase(), Planet.class);
+        ResponseEntity<Planet> exact = template.getForEntity("/planets/name/" + ALDERAAN.getName(), Planet.class);
+
+        assertThat(upper.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exact.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exact.getBody().getName()).isEqualTo(ALDERAAN.getName());
+    }
+
+    @Test
+    @DisplayName("should time cached reads apart from database loads")
+    public void timeCachedReads() {
+        template.getForEntity("/planets/" + YAVINI.getId(), Planet.class);
+        template.getForEntity("/planets/" + YAVINI.getId(), Planet.class);
+
+        assertThat(meterRegistry.get("planets.service").tag("method", "get").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("planets.service.loads").tag("method", "get").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should filter planets with lazily initialized beans")
+    public void getPlanetByClimateE2ESuccess() {
+        ResponseEntity<Planet[]> sut = template.getForEntity("/planets?climate=" + TATTOINE.getClimate(), Planet[].class);
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(sut.getBody()).containsExactly(TATTOINE);
+    }
+}
@@ -0,0 +1,92 @@
+package io.wdefassio.starwars;
+
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static io.wdefassio.starwars.common.PlanetConstants.PLANET;
+import static io.wdefassio.starwars.common.PlanetConstants.TATTOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles({"it", "reactive"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = {"/remove-planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+@Sql(scripts = {"/create-planets.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class ReactivePlanetIT {
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Test
+    @DisplayName("should be able to create a planet")
+    public void createPlanetE2ESuccess() {
+        Planet sut = webTestClient.post().uri("/planets").bodyValue(PLANET).exchange()
+                .expectStatus().isCreated()
+                .expectBody(Planet.class).returnResult().getResponseBody();
+
+        assertThat(sut.getId()).isNotNull();
+        assertThat(sut.getName()).isEqualTo(PLANET.getName());
+        assertThat(sut.getTerrain()).isEqualTo(PLANET.getTerrain());
+        assertThat(sut.getClimate()).isEqualTo(PLANET.getClimate());
+    }
+
+    @Test
+    @DisplayName("should return a planet")
+    public void getPlanetE2ESuccess() {
+        webTestClient.get().uri("/planets/1").exchange()
+                .expectStatus().isOk()
+                .expectBody(Planet.class).isEqualTo(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should return a planet by name")
+    public void getPlanetByNameE2ESuccess() {
+        webTestClient.get().uri("/planets/name/" + TATTOINE.getName()).exchange()
+                .expectStatus().isOk()
+                .expectBody(Planet.class).isEqualTo(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should return all planets")
+    public void getAllPlanetsE2ESuccess() {
+        webTestClient.get().uri("/planets").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class).hasSize(3).value(planets -> assertThat(planets.get(0)).isEqualTo(TATTOINE));
+    }
+
+    @Test
+    @DisplayName("should stream all planets")
+    public void streamPlanetsE2ESuccess() {
+        webTestClient.get().uri("/planets").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("should return planet by climate")
+    public void getPlanetByClimateE2ESuccess() {
+        webTestClient.get().uri("/planets?climate=" + TATTOINE.getClimate()).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class).hasSize(1).contains(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should return planet by terrain")
+    public void getPlanetByTerrainE2ESuccess() {
+        webTestClient.get().uri("/planets?terrain=" + TATTOINE.getTerrain()).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class).hasSize(1).contains(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should return no content when delete")
+    public void deletePlanetByIdE2ESuccess() {
+        webTestClient.delete().uri("/planets/" + TATTOINE.getId()).exchange()
+                .expectStatus().isNoContent();
+    }
+}
@@ -0,0 +1,55 @@
+package io.wdefassio.starwars;
+
+import io.wdefassio.starwars.application.service.PlanetService;
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A database created by ddl-auto=update before the migrations existed, baselined at V1 and brought up to date.
+ */
+public class SchemaMigrationTest {
+
+    @Test
+    @DisplayName("should migrate a database holding only the original planets table")
+    public void migrateOriginalSchema() throws SQLException {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table planets (id bigint not null auto_increment, climate varchar(255), name varchar(255) not null, " +
+                    "terrain varchar(255), primary key (id), constraint uk_planets_name unique (name))");
+            statement.execute("insert into planets (name, climate, terrain) values ('Tatooine', ' Arid ', 'desert')");
+        }
+
+        try (ConfigurableApplicationContext context = start(url)) {
+            PlanetService planetService = context.getBean(PlanetService.class);
+
+            Planet existing = planetService.getByName("Tatooine").orElseThrow();
+            assertThat(existing.getVersion()).isZero();
+            assertThat(planetService.list(null, "arid")).containsExactly(existing);
+
+            Planet created = planetService.create(new Planet(null, "Hoth", "frozen", "tundra"));
+            assertThat(planetService.get(created.getId())).contains(created);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String url) {
+        return new SpringApplicationBuilder(StarwarsApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jmx.enabled=false");
+    }
+}
@@ -0,0 +1,92 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.wdefassio.starwars.application.service.PlanetBatchResult;
+import io.wdefassio.starwars.application.service.PlanetBatchService;
+import io.wdefassio.starwars.domain.Planet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static io.wdefassio.starwars.application.service.PlanetBatchResult.Status.CREATED;
+import static io.wdefassio.starwars.application.service.PlanetBatchResult.Status.DELETED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import(SimpleMeterRegistry.class)
+@WebMvcTest(PlanetBatchController.class)
+public class PlanetBatchControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private PlanetBatchService planetBatchService;
+
+    @Test
+    @DisplayName("should create planets sent as a json array")
+    public void createJsonArraySuccess() throws Exception {
+        List<Planet> received = new ArrayList<>();
+        when(planetBatchService.createAll(any())).thenAnswer(invocation -> {
+            invocation.<Iterator<Planet>>getArgument(0).forEachRemaining(received::add);
+            return List.of(new PlanetBatchResult(0, 4L, "Hoth", CREATED, null), new PlanetBatchResult(1, 5L, "Bespin", CREATED, null));
+        });
+
+        mockMvc.perform(post("/planets/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"Hoth\",\"climate\":\"frozen\",\"terrain\":\"tundra\"},{\"name\":\"Bespin\",\"climate\":\"temperate\",\"terrain\":\"gas giant\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status").value("CREATED"));
+        assertThat(received).extracting(Planet::getName).containsExactly("Hoth", "Bespin");
+    }
+
+    @Test
+    @DisplayName("should create planets sent as ndjson")
+    public void createNdjsonSuccess() throws Exception {
+        List<Planet> received = new ArrayList<>();
+        when(planetBatchService.createAll(any())).thenAnswer(invocation -> {
+            invocation.<Iterator<Planet>>getArgument(0).forEachRemaining(received::add);
+            return List.of();
+        });
+
+        mockMvc.perform(post("/planets/batch").contentType(PlanetController.NDJSON)
+                        .content("{\"name\":\"Hoth\",\"climate\":\"frozen\",\"terrain\":\"tundra\"}\n{\"name\":\"Bespin\",\"climate\":\"temperate\",\"terrain\":\"gas giant\"}\n"))
+                .andExpect(status().isOk());
+        assertThat(received).extracting(Planet::getName).containsExactly("Hoth", "Bespin");
+    }
+
+    @Test
+    @DisplayName("should return 400 when the body is malformed")
+    public void createMalformed() throws Exception {
+        when(planetBatchService.createAll(any())).thenAnswer(invocation -> {
+            invocation.<Iterator<Planet>>getArgument(0).forEachRemaining(planet -> { });
+            return List.of();
+        });
+
+        mockMvc.perform(post("/planets/batch").contentType(MediaType.APPLICATION_JSON).content("[{\"name\":"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should delete planets by ids")
+    public void removeSuccess() throws Exception {
+        when(planetBatchService.removeAll(any())).thenReturn(List.of(new PlanetBatchResult(0, 1L, "Tatooine", DELETED, null)));
+
+        mockMvc.perform(delete("/planets/batch").contentType(MediaType.APPLICATION_JSON).content("[1]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("DELETED"));
+    }
+}
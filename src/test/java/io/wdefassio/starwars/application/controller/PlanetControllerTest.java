@@ -2,41 +2,70 @@ package io.wdefassio.starwars.application.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetPage;
 import io.wdefassio.starwars.application.service.PlanetServiceImp;
+import io.wdefassio.starwars.application.service.PlanetViewPage;
 import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetRevision;
+import io.wdefassio.starwars.domain.PlanetView;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
 import org.hamcrest.Matchers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static io.wdefassio.starwars.common.PlanetConstants.*;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
+@Import({SimpleMeterRegistry.class, PlanetProperties.class})
 @WebMvcTest(PlanetController.class)
 public class PlanetControllerTest {
     @Autowired
     private MockMvc mockMvc;
     @Autowired
     private ObjectMapper objectMapper;
-    @MockBean
+    @MockitoBean
     private PlanetServiceImp planetService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void beforeEach() {
+        when(planetService.revision()).thenReturn(new PlanetRevision(PlanetRevision.ID, 7L, 1_700_000_000_000L));
+    }
 
     @Test
     @DisplayName("should be able to create a planet with correct data")
@@ -57,7 +86,9 @@ public class PlanetControllerTest {
         when(planetService.create(PLANET)).thenReturn(PLANET);
         mockMvc.perform(post("/planets").content(objectMapper.writeValueAsString(emptyPlanet)).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isUnprocessableEntity());
         when(planetService.create(PLANET)).thenReturn(PLANET);
-        mockMvc.perform(post("/planets").content(objectMapper.writeValueAsString(invalidPlanet)).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(post("/planets").content(objectMapper.writeValueAsString(invalidPlanet)).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value(422));
 
     }
 
@@ -67,6 +98,7 @@ public class PlanetControllerTest {
 
         when(planetService.create(any(Planet.class))).thenThrow(DataIntegrityViolationException.class);
         mockMvc.perform(post("/planets").content(objectMapper.writeValueAsString(PLANET)).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isConflict());
+        assertThat(meterRegistry.get(GeneralExceptionHandler.ERRORS).tag("status", "409").counter().count()).isEqualTo(1);
     }
 
     @Test
@@ -93,6 +125,25 @@ public class PlanetControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("should return the planets asked for in a multi-get")
+    public void findPlanetsByIds() throws Exception {
+        when(planetService.getAll(List.of(3L, 1L, 99L))).thenReturn(List.of(YAVINI, TATTOINE));
+
+        mockMvc.perform(get("/planets").param("ids", "3,1,99"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Yavin IV"))
+                .andExpect(jsonPath("$[1].name").value("Tatooine"));
+    }
+
+    @Test
+    @DisplayName("should reject a multi-get over the id limit")
+    public void findPlanetsByTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, 501).mapToObj(Long::toString).collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/planets").param("ids", ids)).andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("should return a planet by name")
     public void findPlanetByNameSuccess() throws Exception {
@@ -132,8 +183,8 @@ public class PlanetControllerTest {
     @Test
     @DisplayName("should be able to filter planets")
     public void filterPlanetsSuccess() throws Exception {
-        when(planetService.list(null, null)).thenReturn(PLANETS);
-        when(planetService.list(TATTOINE.getTerrain(), TATTOINE.getClimate())).thenReturn(List.of(TATTOINE));
+        when(planetService.page(null, null, null, null)).thenReturn(new PlanetPage(PLANETS, null));
+        when(planetService.page(TATTOINE.getTerrain(), TATTOINE.getClimate(), null, null)).thenReturn(new PlanetPage(List.of(TATTOINE), null));
 
         mockMvc.perform(get("/planets"))
                 .andExpect(status().isOk())
@@ -149,12 +200,112 @@ public class PlanetControllerTest {
     @Test
     @DisplayName("should filter no planets")
     public void filterNoPlanetsSuccess() throws Exception {
-        when(planetService.list(null, null)).thenReturn(Collections.emptyList());
+        when(planetService.page(null, null, null, null)).thenReturn(new PlanetPage(Collections.emptyList(), null));
 
         mockMvc.perform(get("/planets"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(0)));
+                .andExpect(jsonPath("$", hasSize(0)))
+                .andExpect(header().doesNotExist(PlanetController.NEXT_CURSOR));
+
+    }
+
+    @Test
+    @DisplayName("should return the next cursor header when there are more planets")
+    public void pagePlanetsSuccess() throws Exception {
+        when(planetService.page(null, null, "abc", 1)).thenReturn(new PlanetPage(List.of(TATTOINE), "next"));
+
+        mockMvc.perform(get("/planets?cursor=abc&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string(PlanetController.NEXT_CURSOR, "next"));
+    }
+
+    @Test
+    @DisplayName("should return 400 when a invalid cursor is provided")
+    public void pagePlanetsInvalidCursor() throws Exception {
+        when(planetService.page(null, null, "abc", null)).thenThrow(new IllegalArgumentException("invalid cursor"));
+
+        mockMvc.perform(get("/planets?cursor=abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should answer 304 for a planet whose etag still matches")
+    public void findPlanetByIdNotModified() throws Exception {
+        Planet planet = new Planet(1L, "Tatooine", "arid", "desert");
+        planet.setVersion(2L);
+        planet.setLastModified(1_700_000_000_000L);
+        when(planetService.get(1L)).thenReturn(Optional.of(planet));
+
+        mockMvc.perform(get("/planets/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.2\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=0, must-revalidate, public"));
+        mockMvc.perform(get("/planets/1").header(HttpHeaders.IF_NONE_MATCH, "\"1.2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("should answer 304 for an unchanged list without loading the page")
+    public void pagePlanetsNotModified() throws Exception {
+        mockMvc.perform(get("/planets").header(HttpHeaders.IF_NONE_MATCH, "\"r7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"r7\""))
+                .andExpect(header().exists(HttpHeaders.CACHE_CONTROL));
+
+        verify(planetService, never()).page(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should return only the requested fields")
+    public void pagePlanetsFields() throws Exception {
+        when(planetService.page(null, null, null, null, EnumSet.of(PlanetField.ID, PlanetField.NAME)))
+                .thenReturn(new PlanetViewPage(List.of(new PlanetView(1L, "Tatooine", null, null)), null));
+
+        mockMvc.perform(get("/planets?fields=name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("Tatooine"))
+                .andExpect(jsonPath("$[0].climate").doesNotExist());
+        mockMvc.perform(get("/planets?fields=name,population"))
+                .andExpect(status().isBadRequest());
+    }
 
+    @Test
+    @DisplayName("should encode planets as cbor when the client asks for it")
+    public void findPlanetByIdCbor() throws Exception {
+        when(planetService.get(1L)).thenReturn(Optional.of(TATTOINE));
+
+        MvcResult result = mockMvc.perform(get("/planets/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.0.cbor\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR_VALUE);
+        assertThat(new CBORMapper().readValue(result.getResponse().getContentAsByteArray(), Planet.class)).isEqualTo(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should stream planets as ndjson")
+    public void streamPlanetsSuccess() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Planet> consumer = invocation.getArgument(2);
+            PLANETS.forEach(consumer);
+            return null;
+        }).when(planetService).stream(isNull(), isNull(), any());
+
+        MvcResult result = mockMvc.perform(get("/planets").accept(PlanetController.NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body.lines()).hasSize(3);
+        assertThat(objectMapper.readValue(body.lines().findFirst().get(), Planet.class)).isEqualTo(TATTOINE);
     }
 
     @Test
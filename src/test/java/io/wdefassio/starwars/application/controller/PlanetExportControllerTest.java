@@ -0,0 +1,146 @@
+package io.wdefassio.starwars.application.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetServiceImp;
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static io.wdefassio.starwars.common.PlanetConstants.PLANETS;
+import static io.wdefassio.starwars.common.PlanetConstants.TATTOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import(SimpleMeterRegistry.class)
+@WebMvcTest(PlanetExportController.class)
+public class PlanetExportControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @MockitoBean
+    private PlanetServiceImp planetService;
+
+    @Test
+    @DisplayName("should export planets as ndjson")
+    public void exportNdjson() throws Exception {
+        exportAll(null);
+
+        String body = new String(export(get("/planets/export")).getResponse().getContentAsByteArray(), StandardCharsets.UTF_8);
+
+        assertThat(body).endsWith("\n");
+        assertThat(body.lines()).hasSize(3);
+        assertThat(objectMapper.readValue(body.lines().findFirst().get(), Planet.class)).isEqualTo(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should export planets as csv with quoted values")
+    public void exportCsv() throws Exception {
+        exportAll(null);
+
+        MvcResult result = export(get("/planets/export?format=csv"));
+
+        assertThat(result.getResponse().getContentType()).startsWith(PlanetExportController.CSV);
+        assertThat(result.getResponse().getContentAsString().lines()).containsExactly(
+                "id,name,climate,terrain",
+                "1,Tatooine,arid,desert",
+                "2,Alderaan,temperate,grass",
+                "3,\"Yavin IV\",\"temperate, tropical\",grass");
+    }
+
+    @Test
+    @DisplayName("should gzip the export when the client accepts it")
+    public void exportGzip() throws Exception {
+        exportAll(null);
+
+        MvcResult result = export(get("/planets/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"));
+
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()).hasSize(3);
+        }
+    }
+
+    @Test
+    @DisplayName("should not gzip the export when the client refuses it or only names another coding")
+    public void exportGzipRefused() throws Exception {
+        exportAll(null);
+
+        for (String acceptEncoding : List.of("gzip;q=0, deflate", "x-gzip", "*, gzip; q=0.000", "br, *;q=0")) {
+            MvcResult result = export(get("/planets/export").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+
+            assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING)).as(acceptEncoding).isNull();
+            assertThat(result.getResponse().getContentAsString().lines()).as(acceptEncoding).hasSize(3);
+        }
+    }
+
+    @Test
+    @DisplayName("should gzip the export when a q-value or a wildcard accepts it")
+    public void exportGzipQuality() throws Exception {
+        exportAll(null);
+
+        for (String acceptEncoding : List.of("deflate;q=1, GZIP;q=0.5", "br, *")) {
+            MvcResult result = export(get("/planets/export").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+
+            assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING)).as(acceptEncoding).isEqualTo("gzip");
+        }
+    }
+
+    @Test
+    @DisplayName("should resume the export after the given id")
+    public void exportAfterId() throws Exception {
+        exportAll(2L);
+
+        String body = export(get("/planets/export?afterId=2")).getResponse().getContentAsString();
+
+        assertThat(body.lines()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("should return 400 for an unknown format")
+    public void exportUnknownFormat() throws Exception {
+        mockMvc.perform(get("/planets/export?format=xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void exportAll(Long afterId) {
+        doAnswer(invocation -> {
+            Consumer<Planet> consumer = invocation.getArgument(1);
+            PLANETS.forEach(consumer);
+            return null;
+        }).when(planetService).export(afterId == null ? isNull() : eq(afterId), any());
+    }
+
+    private MvcResult export(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.CONTENT_DISPOSITION))
+                .andReturn();
+    }
+}
@@ -0,0 +1,118 @@
+package io.wdefassio.starwars.application.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetBatchResult;
+import io.wdefassio.starwars.application.service.PlanetBatchService;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static io.wdefassio.starwars.application.service.PlanetBatchResult.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import({SimpleMeterRegistry.class, PlanetProperties.class})
+@WebMvcTest(PlanetImportController.class)
+public class PlanetImportControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @MockitoBean
+    private PlanetBatchService planetBatchService;
+
+    @Test
+    @DisplayName("should import ndjson and stream one report line per row")
+    public void importNdjson() throws Exception {
+        List<Planet> imported = importAll(false);
+
+        String body = perform(post("/planets/import?writers=4&batchSize=100")
+                .contentType(PlanetController.NDJSON)
+                .content("{\"name\":\"Bespin\",\"climate\":\"temperate\",\"terrain\":\"gas giant\"}\n"
+                        + "{\"name\":\"Hoth\",\"climate\":\"frozen\",\"terrain\":\"tundra\"}\n")).getResponse().getContentAsString();
+
+        assertThat(imported).extracting(Planet::getName).containsExactly("Bespin", "Hoth");
+        assertThat(body.lines().map(line -> read(line).get("status").asText())).containsExactly("CREATED", "CREATED");
+        verify(planetBatchService).importAll(any(), eq(4), eq(100), eq(false), any());
+    }
+
+    @Test
+    @DisplayName("should import csv with a header row on a dry run")
+    public void importCsvDryRun() throws Exception {
+        List<Planet> imported = importAll(true);
+
+        perform(post("/planets/import?dryRun=true")
+                .contentType(PlanetExportController.CSV)
+                .content("id,name,climate,terrain\n7,\"Yavin IV\",\"temperate, tropical\",grass\n"));
+
+        assertThat(imported).containsExactly(new Planet(7L, "Yavin IV", "temperate, tropical", "grass"));
+        verify(planetBatchService).importAll(any(), eq(2), eq(500), eq(true), any());
+    }
+
+    @Test
+    @DisplayName("should return 400 when the writer count is over the limit")
+    public void importTooManyWriters() throws Exception {
+        mockMvc.perform(post("/planets/import?writers=100")
+                        .contentType(PlanetController.NDJSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(planetBatchService);
+    }
+
+    private List<Planet> importAll(boolean dryRun) {
+        List<Planet> imported = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterator<Planet> planets = invocation.getArgument(0);
+            Consumer<PlanetBatchResult> report = invocation.getArgument(4);
+            for (int index = 0; planets.hasNext(); index++) {
+                Planet planet = planets.next();
+                imported.add(planet);
+                report.accept(new PlanetBatchResult(index, null, planet.getName(), dryRun ? ACCEPTED : CREATED, null));
+            }
+            return null;
+        }).when(planetBatchService).importAll(any(), anyInt(), anyInt(), eq(dryRun), any());
+        return imported;
+    }
+
+    private MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    private JsonNode read(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.wdefassio.starwars.application.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetIngestService;
+import io.wdefassio.starwars.application.service.PlanetJob;
+import io.wdefassio.starwars.application.service.PlanetServiceImp;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Import({SimpleMeterRegistry.class, PlanetProperties.class})
+@WebMvcTest(value = {PlanetController.class, PlanetJobController.class}, properties = "starwars.planets.write-behind.enabled=true")
+public class PlanetJobControllerTest {
+    private static final PlanetJob PENDING = new PlanetJob("4f1c", PlanetJob.Status.PENDING, null, PLANET.getName(), null);
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @MockitoBean
+    private PlanetServiceImp planetService;
+    @MockitoBean
+    private PlanetIngestService planetIngestService;
+
+    @Test
+    @DisplayName("should accept a planet and point at its job in write-behind mode")
+    public void createAccepted() throws Exception {
+        when(planetIngestService.submit(PLANET)).thenReturn(PENDING);
+
+        mockMvc.perform(post("/planets").content(objectMapper.writeValueAsString(PLANET)).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/planets/jobs/4f1c"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+        verify(planetService, never()).create(any());
+    }
+
+    @Test
+    @DisplayName("should answer 503 with Retry-After when the queue is full")
+    public void createOverloaded() throws Exception {
+        when(planetIngestService.submit(PLANET)).thenThrow(new RejectedExecutionException("too many planets waiting to be written"));
+
+        mockMvc.perform(post("/planets").content(objectMapper.writeValueAsString(PLANET)).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    @DisplayName("should report the job outcome and 404 for unknown jobs")
+    public void job() throws Exception {
+        when(planetIngestService.job("4f1c")).thenReturn(Optional.of(new PlanetJob("4f1c", PlanetJob.Status.CREATED, 1L, PLANET.getName(), null)));
+        when(planetIngestService.job("gone")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/planets/jobs/4f1c"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CREATED"))
+                .andExpect(jsonPath("$.planetId").value(1));
+        mockMvc.perform(get("/planets/jobs/gone")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,204 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetPage;
+import io.wdefassio.starwars.application.service.ReactivePlanetService;
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.List;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@Import({PlanetRouter.class, PlanetHandler.class, SimpleMeterRegistry.class})
+@WebFluxTest(properties = "spring.main.web-application-type=reactive")
+public class PlanetRouterTest {
+    @Autowired
+    private WebTestClient webTestClient;
+    @MockitoBean
+    private ReactivePlanetService planetService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("should be able to create a planet with correct data")
+    public void createPlanetSuccess() {
+        when(planetService.create(PLANET)).thenReturn(Mono.just(PLANET));
+
+        webTestClient.post().uri("/planets").bodyValue(PLANET).exchange()
+                .expectStatus().isCreated()
+                .expectBody(Planet.class).isEqualTo(PLANET);
+    }
+
+    @Test
+    @DisplayName("should return error when a invalid data is provided")
+    public void createPlanetInvalid() {
+        Planet emptyPlanet = new Planet(null, null, null, null);
+        Planet invalidPlanet = new Planet(null, "", "", "");
+
+        webTestClient.post().uri("/planets").bodyValue(emptyPlanet).exchange()
+                .expectStatus().isEqualTo(422);
+        webTestClient.post().uri("/planets").bodyValue(invalidPlanet).exchange()
+                .expectStatus().isEqualTo(422);
+    }
+
+    @Test
+    @DisplayName("should return error when a existing planet is provided")
+    public void createPlanetSameName() {
+        when(planetService.create(any(Planet.class))).thenReturn(Mono.error(new DataIntegrityViolationException("duplicate")));
+
+        webTestClient.post().uri("/planets").bodyValue(PLANET).exchange()
+                .expectStatus().isEqualTo(409);
+        assertThat(meterRegistry.get(GeneralExceptionHandler.ERRORS).tag("status", "409").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should return a planet by id")
+    public void findPlanetByIdSuccess() {
+        when(planetService.get(anyLong())).thenReturn(Mono.just(TATTOINE));
+
+        webTestClient.get().uri("/planets/1").exchange()
+                .expectStatus().isOk()
+                .expectBody(Planet.class).isEqualTo(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should return 404 if a planet not found by id")
+    public void findPlanetByIdFail() {
+        when(planetService.get(anyLong())).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/planets/1").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("should return a planet by name")
+    public void findPlanetByNameSuccess() {
+        when(planetService.getByName(anyString())).thenReturn(Mono.just(TATTOINE));
+
+        webTestClient.get().uri("/planets/name/" + TATTOINE.getName()).exchange()
+                .expectStatus().isOk()
+                .expectBody(Planet.class).isEqualTo(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should return 404 if a planet not found by name")
+    public void findPlanetByNameFail() {
+        when(planetService.getByName(anyString())).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/planets/name/" + TATTOINE.getName()).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("should be able to filter planets")
+    public void filterPlanetsSuccess() {
+        when(planetService.page(null, null, null, null)).thenReturn(Mono.just(new PlanetPage(PLANETS, null)));
+        when(planetService.page(TATTOINE.getTerrain(), TATTOINE.getClimate(), null, null)).thenReturn(Mono.just(new PlanetPage(List.of(TATTOINE), null)));
+
+        webTestClient.get().uri("/planets").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class).hasSize(3);
+
+        webTestClient.get().uri(uri -> uri.path("/planets").queryParam("terrain", TATTOINE.getTerrain()).queryParam("climate", TATTOINE.getClimate()).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class).hasSize(1).contains(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should filter no planets")
+    public void filterNoPlanetsSuccess() {
+        when(planetService.page(null, null, null, null)).thenReturn(Mono.just(new PlanetPage(Collections.emptyList(), null)));
+
+        webTestClient.get().uri("/planets").exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(PlanetController.NEXT_CURSOR)
+                .expectBodyList(Planet.class).hasSize(0);
+    }
+
+    @Test
+    @DisplayName("should return the next cursor header when there are more planets")
+    public void pagePlanetsSuccess() {
+        when(planetService.page(null, null, "abc", 1)).thenReturn(Mono.just(new PlanetPage(List.of(TATTOINE), "next")));
+
+        webTestClient.get().uri("/planets?cursor=abc&size=1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(PlanetController.NEXT_CURSOR, "next")
+                .expectBodyList(Planet.class).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should return 400 when a invalid cursor is provided")
+    public void pagePlanetsInvalidCursor() {
+        when(planetService.page(null, null, "abc", null)).thenReturn(Mono.error(new IllegalArgumentException("invalid cursor")));
+
+        webTestClient.get().uri("/planets?cursor=abc").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("should stream planets as ndjson")
+    public void streamPlanetsSuccess() {
+        when(planetService.stream(null, null)).thenReturn(Flux.fromIterable(PLANETS));
+
+        Flux<Planet> body = webTestClient.get().uri("/planets").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Planet.class).getResponseBody();
+
+        StepVerifier.create(body).expectNext(TATTOINE).expectNextCount(2).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should stream planets as server-sent events")
+    public void streamPlanetsAsEvents() {
+        when(planetService.stream(null, null)).thenReturn(Flux.fromIterable(PLANETS));
+
+        List<String> events = webTestClient.get().uri("/planets").accept(MediaType.TEXT_EVENT_STREAM).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(String.class).getResponseBody()
+                .collectList().block();
+
+        assertThat(events).hasSize(3);
+        assertThat(events.get(0)).contains(TATTOINE.getName());
+    }
+
+    @Test
+    @DisplayName("should be able to delete a planet")
+    public void deletePlanetSuccess() {
+        when(planetService.remove(1L)).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/planets/1").exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    @DisplayName("should throw when a invalid id is provided")
+    public void deletePlanetFail() {
+        when(planetService.remove(anyLong())).thenReturn(Mono.error(new EmptyResultDataAccessException(1)));
+
+        webTestClient.delete().uri("/planets/1").exchange()
+                .expectStatus().isNotFound();
+    }
+}
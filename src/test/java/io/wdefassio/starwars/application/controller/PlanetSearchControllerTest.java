@@ -0,0 +1,52 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetSearchHit;
+import io.wdefassio.starwars.application.service.PlanetSearchService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import(SimpleMeterRegistry.class)
+@WebMvcTest(value = PlanetSearchController.class, properties = "starwars.planets.search.enabled=true")
+public class PlanetSearchControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private PlanetSearchService planetSearchService;
+
+    @Test
+    @DisplayName("should return ranked hits for the query")
+    public void searchSuccess() throws Exception {
+        when(planetSearchService.search("yav", 5)).thenReturn(List.of(
+                new PlanetSearchHit(4L, "Yavin", PlanetSearchHit.Match.PREFIX),
+                new PlanetSearchHit(3L, "Yavin IV", PlanetSearchHit.Match.PREFIX)));
+
+        mockMvc.perform(get("/planets/search").param("q", "yav").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name").value("Yavin"))
+                .andExpect(jsonPath("$[0].match").value("PREFIX"));
+    }
+
+    @Test
+    @DisplayName("should reject a blank query")
+    public void searchBlank() throws Exception {
+        when(planetSearchService.search(" ", null)).thenThrow(new IllegalArgumentException("search query must not be blank"));
+
+        mockMvc.perform(get("/planets/search").param("q", " ")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/planets/search")).andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,46 @@
+package io.wdefassio.starwars.application.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetStatsService;
+import io.wdefassio.starwars.domain.PlanetStats;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Import({SimpleMeterRegistry.class, PlanetProperties.class})
+@WebMvcTest(PlanetStatsController.class)
+public class PlanetStatsControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private PlanetStatsService planetStatsService;
+
+    @Test
+    @DisplayName("should return the planet counts")
+    public void statsSuccess() throws Exception {
+        when(planetStatsService.stats()).thenReturn(PlanetStats.of(List.of(
+                new PlanetStats.Group("arid", "desert", 2),
+                new PlanetStats.Group("temperate", "grass", 1))));
+
+        mockMvc.perform(get("/planets/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.climates.arid").value(2))
+                .andExpect(jsonPath("$.terrains.grass").value(1))
+                .andExpect(jsonPath("$.groups", hasSize(2)))
+                .andExpect(jsonPath("$.groups[0].count").value(2));
+    }
+}
@@ -0,0 +1,144 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static io.wdefassio.starwars.common.PlanetConstants.ALDERAAN;
+import static io.wdefassio.starwars.common.PlanetConstants.TATTOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingPlanetServiceTest {
+    @Mock
+    PlanetServiceImp delegate;
+    SimpleMeterRegistry meterRegistry;
+    CachingPlanetService planetService;
+
+    @BeforeEach
+    public void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        planetService = new CachingPlanetService(delegate, new PlanetProperties(), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("should hit the database once for repeated lookups by id")
+    public void getPlanetCached() {
+        when(delegate.get(1L)).thenReturn(Optional.of(TATTOINE));
+
+        assertThat(planetService.get(1L)).contains(TATTOINE);
+        assertThat(planetService.get(1L)).contains(TATTOINE);
+
+        verify(delegate, times(1)).get(1L);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "planets.by-id").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should serve a name lookup from an entry loaded by id")
+    public void getPlanetByNameFromIdLookup() {
+        when(delegate.get(1L)).thenReturn(Optional.of(TATTOINE));
+
+        planetService.get(1L);
+
+        assertThat(planetService.getByName(" TATOOINE ")).contains(TATTOINE);
+        verify(delegate, times(0)).getByName(" TATOOINE ");
+    }
+
+    @Test
+    @DisplayName("should only load the ids missing from the cache in a multi-get")
+    public void getAllPlanetsCached() {
+        when(delegate.get(1L)).thenReturn(Optional.of(TATTOINE));
+        when(delegate.getAll(List.of(2L, 99L))).thenReturn(List.of(ALDERAAN));
+        planetService.get(1L);
+
+        assertThat(planetService.getAll(List.of(2L, 1L, 99L))).containsExactly(ALDERAAN, TATTOINE);
+        assertThat(planetService.getAll(List.of(99L))).isEmpty();
+        assertThat(planetService.getByName("alderaan")).contains(ALDERAAN);
+        verify(delegate, times(1)).getAll(List.of(2L, 99L));
+    }
+
+    @Test
+    @DisplayName("should cache missing planets")
+    public void getPlanetNegativeCached() {
+        when(delegate.getByName("Hoth")).thenReturn(Optional.empty());
+
+        assertThat(planetService.getByName("Hoth")).isEmpty();
+        assertThat(planetService.getByName("hoth")).isEmpty();
+
+        verify(delegate, times(1)).getByName("Hoth");
+    }
+
+    @Test
+    @DisplayName("should replace a cached miss when the planet is created")
+    public void createPlanetInvalidatesMiss() {
+        Planet hoth = new Planet(null, "Hoth", "frozen", "tundra");
+        Planet created = new Planet(4L, "Hoth", "frozen", "tundra");
+        when(delegate.getByName("Hoth")).thenReturn(Optional.empty());
+        when(delegate.create(hoth)).thenReturn(created);
+
+        planetService.getByName("Hoth");
+        planetService.create(hoth);
+        planetService.onPlanetEvent(PlanetEvent.created(created));
+
+        assertThat(planetService.getByName("Hoth")).contains(created);
+        assertThat(planetService.get(4L)).contains(created);
+    }
+
+    @Test
+    @DisplayName("should evict id and name entries when the planet is removed")
+    public void removePlanetEvicts() {
+        when(delegate.get(1L)).thenReturn(Optional.of(TATTOINE), Optional.empty());
+        when(delegate.getByName(TATTOINE.getName())).thenReturn(Optional.empty());
+
+        planetService.get(1L);
+        planetService.remove(1L);
+        planetService.onPlanetEvent(PlanetEvent.removed(TATTOINE));
+
+        verify(delegate).remove(1L);
+        assertThat(planetService.get(1L)).isEmpty();
+        assertThat(planetService.getByName(TATTOINE.getName())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should not cache a planet removed while it was being loaded")
+    public void removeDuringLoad() {
+        when(delegate.get(1L)).thenAnswer(invocation -> {
+            planetService.onPlanetEvent(PlanetEvent.removed(TATTOINE));
+            return Optional.of(TATTOINE);
+        }).thenReturn(Optional.empty());
+        when(delegate.getByName(TATTOINE.getName())).thenReturn(Optional.empty());
+
+        assertThat(planetService.get(1L)).contains(TATTOINE);
+
+        assertThat(planetService.get(1L)).isEmpty();
+        assertThat(planetService.getByName(TATTOINE.getName())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should not cache planets removed while a multi-get was loading them")
+    public void removeDuringGetAll() {
+        when(delegate.getAll(List.of(2L))).thenAnswer(invocation -> {
+            planetService.onPlanetEvent(PlanetEvent.removed(ALDERAAN));
+            return List.of(ALDERAAN);
+        }).thenReturn(List.of());
+        when(delegate.getByName("alderaan")).thenReturn(Optional.empty());
+
+        assertThat(planetService.getAll(List.of(2L))).containsExactly(ALDERAAN);
+
+        assertThat(planetService.getAll(List.of(2L))).isEmpty();
+        assertThat(planetService.getByName("alderaan")).isEmpty();
+    }
+}
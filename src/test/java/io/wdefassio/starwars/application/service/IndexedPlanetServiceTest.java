@@ -0,0 +1,115 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.snapshot.PlanetSnapshotStore;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class IndexedPlanetServiceTest {
+    @Mock
+    PlanetServiceImp delegate;
+    @Mock
+    ObjectProvider<PlanetSnapshotStore> snapshots;
+    SimpleMeterRegistry meterRegistry;
+    IndexedPlanetService planetService;
+
+    @BeforeEach
+    public void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        planetService = new IndexedPlanetService(delegate, new PlanetProperties(), snapshots, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("should read from the database until the index is warm")
+    public void getPlanetBeforeWarm() {
+        when(delegate.get(1L)).thenReturn(Optional.of(TATTOINE));
+
+        assertThat(planetService.get(1L)).contains(TATTOINE);
+    }
+
+    @Test
+    @DisplayName("should warm from the snapshot instead of the table when there is one")
+    public void warmFromSnapshot() {
+        PlanetSnapshotStore snapshot = mock(PlanetSnapshotStore.class);
+        when(snapshots.getIfAvailable()).thenReturn(snapshot);
+        when(snapshot.restore(any(), any())).thenAnswer(invocation -> {
+            PLANETS.forEach(invocation.<Consumer<Planet>>getArgument(0));
+            invocation.<LongConsumer>getArgument(1).accept(TATTOINE.getId());
+            return true;
+        });
+
+        planetService.warm();
+
+        assertThat(planetService.get(1L)).isEmpty();
+        assertThat(planetService.getByName("alderaan")).contains(ALDERAAN);
+        verify(delegate, never()).stream(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("should serve reads from the index once warm")
+    public void getPlanetFromIndex() {
+        warm();
+
+        assertThat(planetService.get(1L)).contains(TATTOINE);
+        assertThat(planetService.getByName("alderaan")).contains(ALDERAAN);
+        assertThat(planetService.list("grass", null)).containsExactly(ALDERAAN, YAVINI);
+        PlanetPage page = planetService.page(null, null, null, 2);
+        assertThat(page.getPlanets()).containsExactly(TATTOINE, ALDERAAN);
+        assertThat(planetService.page(null, null, page.getNextCursor(), 2).getPlanets()).containsExactly(YAVINI);
+        List<Planet> streamed = new ArrayList<>();
+        planetService.stream(null, null, streamed::add);
+        assertThat(streamed).containsExactlyElementsOf(PLANETS);
+
+        verify(delegate).stream(isNull(), isNull(), any());
+        verifyNoMoreInteractions(delegate);
+        assertThat(meterRegistry.get("planets.index.size").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should follow created and removed planets")
+    public void followEvents() {
+        warm();
+        Planet hoth = new Planet(4L, "Hoth", "frozen", "tundra");
+
+        planetService.onPlanetEvent(PlanetEvent.created(hoth));
+        planetService.onPlanetEvent(PlanetEvent.removed(TATTOINE));
+
+        assertThat(planetService.getByName("Hoth")).contains(hoth);
+        assertThat(planetService.get(1L)).isEmpty();
+    }
+
+    private void warm() {
+        doAnswer(invocation -> {
+            Consumer<Planet> consumer = invocation.getArgument(2);
+            PLANETS.forEach(consumer);
+            return null;
+        }).when(delegate).stream(isNull(), isNull(), any());
+        planetService.warm();
+    }
+}
@@ -0,0 +1,214 @@
+package io.wdefassio.starwars.application.service;
+
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetBatchRepository;
+import io.wdefassio.starwars.infra.repository.PlanetRevisionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.validation.Validation;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static io.wdefassio.starwars.application.service.PlanetBatchResult.Status.*;
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetBatchServiceTest {
+    @Mock
+    PlanetBatchRepository batchRepository;
+    @Mock
+    PlanetRevisionRepository revisionRepository;
+    @Mock
+    TransactionTemplate transactionTemplate;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+    PlanetProperties planetProperties = new PlanetProperties();
+    PlanetBatchService planetBatchService;
+
+    @BeforeEach
+    public void beforeEach() {
+        planetProperties.getBatch().setChunkSize(2);
+        planetBatchService = new PlanetBatchService(batchRepository, revisionRepository, planetProperties,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionTemplate, eventPublisher);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("should create valid planets in chunks and report every item")
+    public void createAllSuccess() {
+        doAnswer(invocation -> {
+            List<Planet> planets = invocation.getArgument(0);
+            planets.forEach(planet -> planet.setId((long) planet.getName().length()));
+            return null;
+        }).when(batchRepository).insertAll(anyList());
+        when(batchRepository.findExistingNames(anyCollection())).thenReturn(List.of(), List.of("hoth"));
+
+        List<PlanetBatchResult> results = planetBatchService.createAll(List.of(
+                new Planet(null, "Bespin", "temperate", "gas giant"),
+                new Planet(null, "", "", ""),
+                new Planet(null, "Dagobah", "murky", "swamp"),
+                new Planet(null, "Hoth", "frozen", "tundra"),
+                new Planet(null, "bespin", "temperate", "gas giant")).iterator());
+
+        assertThat(results).extracting(PlanetBatchResult::getStatus).containsExactly(CREATED, INVALID, CREATED, CONFLICT, CONFLICT);
+        assertThat(results.get(0).getId()).isEqualTo(6L);
+        verify(batchRepository, times(1)).insertAll(anyList());
+        verify(eventPublisher, times(2)).publishEvent(any(PlanetEvent.class));
+    }
+
+    @Test
+    @DisplayName("should isolate the conflicting row when a concurrent insert takes a name")
+    public void createAllRace() {
+        when(batchRepository.findExistingNames(anyCollection())).thenReturn(List.of());
+        doThrow(DuplicateKeyException.class).when(batchRepository).insertAll(argThat(planets -> planets.size() == 2));
+        doNothing().when(batchRepository).insertAll(argThat(planets -> planets.size() == 1 && planets.get(0).getName().equals("Bespin")));
+        doThrow(DuplicateKeyException.class).when(batchRepository).insertAll(argThat(planets -> planets.size() == 1 && planets.get(0).getName().equals("Hoth")));
+
+        List<PlanetBatchResult> results = planetBatchService.createAll(List.of(
+                new Planet(null, "Bespin", "temperate", "gas giant"),
+                new Planet(null, "Hoth", "frozen", "tundra")).iterator());
+
+        assertThat(results).extracting(PlanetBatchResult::getStatus).containsExactly(CREATED, CONFLICT);
+    }
+
+    @Test
+    @DisplayName("should report a row the database refuses for another reason as failed, not as a conflict")
+    public void createAllRowRefused() {
+        when(batchRepository.findExistingNames(anyCollection())).thenReturn(List.of());
+        DataIntegrityViolationException tooLong = new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Value too long for column \"CLIMATE\""));
+        doThrow(tooLong).when(batchRepository).insertAll(argThat(planets -> planets.size() == 2));
+        doNothing().when(batchRepository).insertAll(argThat(planets -> planets.size() == 1 && planets.get(0).getName().equals("Bespin")));
+        doThrow(tooLong).when(batchRepository).insertAll(argThat(planets -> planets.size() == 1 && planets.get(0).getName().equals("Hoth")));
+
+        List<PlanetBatchResult> results = planetBatchService.createAll(List.of(
+                new Planet(null, "Bespin", "temperate", "gas giant"),
+                new Planet(null, "Hoth", "frozen".repeat(50), "tundra")).iterator());
+
+        assertThat(results).extracting(PlanetBatchResult::getStatus).containsExactly(CREATED, FAILED);
+        assertThat(results.get(1).getMessage()).isEqualTo("Value too long for column \"CLIMATE\"");
+    }
+
+    @Test
+    @DisplayName("should import through parallel writers and report every row")
+    public void importAllSuccess() {
+        doAnswer(invocation -> {
+            List<Planet> planets = invocation.getArgument(0);
+            planets.forEach(planet -> planet.setId((long) planet.getName().length()));
+            return null;
+        }).when(batchRepository).insertAll(anyList());
+        when(batchRepository.findExistingNames(anyCollection())).thenAnswer(invocation ->
+                invocation.<List<String>>getArgument(0).contains("Hoth") ? List.of("hoth") : List.of());
+        List<PlanetBatchResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        planetBatchService.importAll(List.of(
+                new Planet(null, "Bespin", "temperate", "gas giant"),
+                new Planet(null, "", "", ""),
+                new Planet(null, "Dagobah", "murky", "swamp"),
+                new Planet(null, "Kamino", "temperate", "ocean"),
+                new Planet(null, "kamino", "temperate", "ocean"),
+                new Planet(null, "Hoth", "frozen", "tundra")).iterator(), 3, 2, false, results::add);
+
+        results.sort(Comparator.comparingInt(PlanetBatchResult::getIndex));
+        assertThat(results).extracting(PlanetBatchResult::getStatus).containsExactly(CREATED, INVALID, CREATED, CREATED, CONFLICT, CONFLICT);
+        verify(eventPublisher, times(3)).publishEvent(any(PlanetEvent.class));
+    }
+
+    @Test
+    @DisplayName("should only check names on a dry run")
+    public void importAllDryRun() {
+        when(batchRepository.findExistingNames(anyCollection())).thenReturn(List.of("hoth"));
+        List<PlanetBatchResult> results = new ArrayList<>();
+
+        planetBatchService.importAll(List.of(
+                new Planet(null, "Bespin", "temperate", "gas giant"),
+                new Planet(null, "Hoth", "frozen", "tundra")).iterator(), 1, 10, true, results::add);
+
+        assertThat(results).extracting(PlanetBatchResult::getStatus).containsExactly(ACCEPTED, CONFLICT);
+        verify(batchRepository, never()).insertAll(anyList());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("should share max-writers threads between concurrent imports")
+    public void importAllSharedWriters() {
+        planetProperties.getImports().setMaxWriters(2);
+        PlanetBatchService service = new PlanetBatchService(batchRepository, revisionRepository, planetProperties,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionTemplate, eventPublisher);
+        AtomicInteger writing = new AtomicInteger();
+        AtomicInteger mostWriting = new AtomicInteger();
+        when(batchRepository.findExistingNames(anyCollection())).thenAnswer(invocation -> {
+            mostWriting.accumulateAndGet(writing.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            writing.decrementAndGet();
+            return List.of();
+        });
+        List<PlanetBatchResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture.allOf(IntStream.range(0, 2).mapToObj(upload -> CompletableFuture.runAsync(() ->
+                service.importAll(IntStream.range(0, 6).mapToObj(row -> new Planet(null, "Planet " + upload + "-" + row, "arid", "desert")).iterator(),
+                        2, 1, true, results::add))).toArray(CompletableFuture[]::new)).join();
+        service.destroy();
+
+        assertThat(results).hasSize(12).extracting(PlanetBatchResult::getStatus).containsOnly(ACCEPTED);
+        assertThat(mostWriting.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should stop the import at the first unreadable row")
+    public void importAllUnreadable() {
+        Iterator<Planet> planets = mock(Iterator.class);
+        when(planets.hasNext()).thenReturn(true);
+        when(planets.next()).thenReturn(new Planet(null, "Bespin", "temperate", "gas giant")).thenThrow(new IllegalStateException("bad line"));
+        when(batchRepository.findExistingNames(anyCollection())).thenReturn(List.of());
+        List<PlanetBatchResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        planetBatchService.importAll(planets, 2, 10, false, results::add);
+
+        results.sort(Comparator.comparingInt(PlanetBatchResult::getIndex));
+        assertThat(results).extracting(PlanetBatchResult::getStatus).containsExactly(CREATED, INVALID);
+        assertThat(results.get(1).getMessage()).contains("bad line");
+    }
+
+    @Test
+    @DisplayName("should delete existing planets and report the missing ones")
+    public void removeAllSuccess() {
+        when(batchRepository.findAllByIds(anyCollection())).thenReturn(List.of(TATTOINE), List.of(ALDERAAN));
+
+        List<PlanetBatchResult> results = planetBatchService.removeAll(List.of(1L, 99L, 2L).iterator());
+
+        assertThat(results).extracting(PlanetBatchResult::getStatus).containsExactly(DELETED, NOT_FOUND, DELETED);
+        verify(batchRepository, times(2)).deleteAllByIds(anyCollection());
+        verify(eventPublisher).publishEvent(PlanetEvent.removed(TATTOINE));
+        verify(eventPublisher).publishEvent(PlanetEvent.removed(ALDERAAN));
+    }
+}
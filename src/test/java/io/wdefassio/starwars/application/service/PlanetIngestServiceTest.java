@@ -0,0 +1,156 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetIngestServiceTest {
+    @Mock
+    PlanetBatchService planetBatchService;
+    @Mock
+    PlanetRepository planetRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @TempDir
+    Path directory;
+    PlanetProperties planetProperties = new PlanetProperties();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    List<PlanetIngestService> services = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() {
+        planetProperties.getWriteBehind().setLog(directory.resolve("ingest.log"));
+        planetProperties.getWriteBehind().setSync(false);
+        planetProperties.getWriteBehind().setRetryDelay(Duration.ofMillis(10));
+        lenient().when(planetBatchService.createAll(any())).thenAnswer(PlanetIngestServiceTest::createAll);
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception {
+        for (PlanetIngestService service : services) {
+            service.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("should accept a planet at once and report it created once written")
+    public void submitSuccess() throws Exception {
+        PlanetIngestService service = service();
+        PlanetJob job = service.submit(PLANET);
+        assertThat(job.getStatus()).isEqualTo(PlanetJob.Status.PENDING);
+
+        service.start();
+
+        await().untilAsserted(() -> assertThat(service.job(job.getId())).contains(
+                new PlanetJob(job.getId(), PlanetJob.Status.CREATED, 100L, PLANET.getName(), null)));
+        assertThat(service.submit(PLANET).getStatus()).isEqualTo(PlanetJob.Status.PENDING);
+    }
+
+    @Test
+    @DisplayName("should refuse a name already waiting and creations over the capacity")
+    public void submitRefused() throws Exception {
+        planetProperties.getWriteBehind().setCapacity(1);
+        PlanetIngestService service = service();
+        service.submit(PLANET);
+
+        assertThatThrownBy(() -> service.submit(new Planet(null, " " + PLANET.getName().toUpperCase(), "arid", "desert")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> service.submit(new Planet(null, "Hoth", "frozen", "tundra")))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(service.job("unknown")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should replay the planets not written before a restart and keep their jobs")
+    public void replay() throws Exception {
+        PlanetIngestService stopped = service();
+        PlanetJob job = stopped.submit(PLANET);
+        stopped.destroy();
+        services.remove(stopped);
+        doReturn(List.of(new PlanetBatchResult(0, null, PLANET.getName(), PlanetBatchResult.Status.CONFLICT, "name already exists")))
+                .when(planetBatchService).createAll(any());
+        when(planetRepository.findByName(PLANET.getName())).thenReturn(Optional.of(new Planet(7L, PLANET.getName(), PLANET.getClimate(), PLANET.getTerrain())));
+
+        PlanetIngestService restarted = service();
+        assertThat(restarted.job(job.getId())).map(PlanetJob::getStatus).contains(PlanetJob.Status.PENDING);
+        assertThatThrownBy(() -> restarted.submit(PLANET)).isInstanceOf(DataIntegrityViolationException.class);
+        restarted.start();
+
+        await().untilAsserted(() -> assertThat(restarted.job(job.getId())).map(PlanetJob::getPlanetId).contains(7L));
+    }
+
+    @Test
+    @DisplayName("should keep retrying a batch the database could not take")
+    public void retry() throws Exception {
+        doThrow(new IllegalStateException("connection refused"))
+                .doReturn(List.of(new PlanetBatchResult(0, null, PLANET.getName(), PlanetBatchResult.Status.CONFLICT, "name already exists")))
+                .when(planetBatchService).createAll(any());
+        when(planetRepository.findByName(PLANET.getName())).thenReturn(Optional.of(new Planet(7L, PLANET.getName(), "frozen", "tundra")));
+        PlanetIngestService service = service();
+        PlanetJob job = service.submit(PLANET);
+        service.start();
+
+        await().untilAsserted(() -> assertThat(service.job(job.getId())).map(PlanetJob::getStatus).contains(PlanetJob.Status.CONFLICT));
+        verify(planetBatchService, times(2)).createAll(any());
+    }
+
+    @Test
+    @DisplayName("should count a planet once when its batch is retried after part of it was finished")
+    public void retryAfterPartialFinish() throws Exception {
+        doReturn(List.of(new PlanetBatchResult(0, 100L, PLANET.getName(), PlanetBatchResult.Status.CREATED, null),
+                new PlanetBatchResult(2, 102L, "Hoth", PlanetBatchResult.Status.CREATED, null)))
+                .doAnswer(PlanetIngestServiceTest::createAll)
+                .when(planetBatchService).createAll(any());
+        PlanetIngestService service = service();
+        PlanetJob first = service.submit(PLANET);
+        PlanetJob second = service.submit(new Planet(null, "Hoth", "frozen", "tundra"));
+        service.start();
+
+        await().untilAsserted(() -> assertThat(service.job(second.getId())).map(PlanetJob::getStatus).contains(PlanetJob.Status.CREATED));
+        assertThat(service.job(first.getId())).map(PlanetJob::getPlanetId).contains(100L);
+        assertThat(meterRegistry.get("planets.write-behind.queue").gauge().value()).isZero();
+    }
+
+    private PlanetIngestService service() throws Exception {
+        PlanetIngestService service = new PlanetIngestService(planetBatchService, planetRepository, planetProperties, transactionManager, meterRegistry);
+        services.add(service);
+        return service;
+    }
+
+    private static List<PlanetBatchResult> createAll(InvocationOnMock invocation) {
+        List<PlanetBatchResult> results = new ArrayList<>();
+        Iterator<Planet> planets = invocation.getArgument(0);
+        for (int index = 0; planets.hasNext(); index++) {
+            results.add(new PlanetBatchResult(index, 100L + index, planets.next().getName(), PlanetBatchResult.Status.CREATED, null));
+        }
+        return results;
+    }
+}
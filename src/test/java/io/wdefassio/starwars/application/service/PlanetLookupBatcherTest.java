@@ -0,0 +1,102 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetLookupBatcherTest {
+    @Mock
+    PlanetRepository planetRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PlanetLookupBatcher batcher;
+
+    @AfterEach
+    public void afterEach() {
+        if (batcher != null) {
+            batcher.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("should resolve lookups arriving within the window with one query")
+    public void findBatched() throws Exception {
+        batcher = batcher(true);
+        when(planetRepository.findAllById(any())).thenReturn(List.of(TATTOINE, ALDERAAN));
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Optional<Planet>>> lookups = new ArrayList<>();
+            for (long id : new long[]{1L, 2L, 99L}) {
+                lookups.add(callers.submit(() -> batcher.find(id)));
+            }
+
+            assertThat(lookups.get(0).get(2, TimeUnit.SECONDS)).contains(TATTOINE);
+            assertThat(lookups.get(1).get(2, TimeUnit.SECONDS)).contains(ALDERAAN);
+            assertThat(lookups.get(2).get(2, TimeUnit.SECONDS)).isEmpty();
+            verify(planetRepository, times(1)).findAllById(any());
+            assertThat(meterRegistry.get("planets.lookup.batch").summary().totalAmount()).isEqualTo(3);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("should read the planet directly when the batch does not resolve in time")
+    public void findTimesOut() {
+        PlanetProperties planetProperties = new PlanetProperties();
+        planetProperties.getLookup().setBatching(true);
+        planetProperties.getLookup().setWindow(Duration.ofSeconds(5));
+        planetProperties.getLookup().setTimeout(Duration.ofMillis(50));
+        batcher = new PlanetLookupBatcher(planetRepository, planetProperties, transactionManager, meterRegistry);
+        when(planetRepository.findById(1L)).thenReturn(Optional.of(TATTOINE));
+
+        assertThat(batcher.find(1L)).contains(TATTOINE);
+        verify(planetRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("should only batch while enabled and running")
+    public void canBatch() {
+        assertThat(batcher(false).canBatch()).isFalse();
+        batcher.destroy();
+        batcher = batcher(true);
+        assertThat(batcher.canBatch()).isTrue();
+        batcher.destroy();
+        assertThat(batcher.canBatch()).isFalse();
+    }
+
+    private PlanetLookupBatcher batcher(boolean enabled) {
+        PlanetProperties planetProperties = new PlanetProperties();
+        planetProperties.getLookup().setBatching(enabled);
+        planetProperties.getLookup().setWindow(Duration.ofMillis(500));
+        batcher = new PlanetLookupBatcher(planetRepository, planetProperties, transactionManager, meterRegistry);
+        return batcher;
+    }
+}
@@ -0,0 +1,65 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.snapshot.PlanetSnapshotStore;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetSearchServiceTest {
+    @Mock
+    PlanetServiceImp planetService;
+    @Mock
+    PlanetRepository planetRepository;
+    @Mock
+    ObjectProvider<PlanetSnapshotStore> snapshots;
+    PlanetSearchService searchService;
+
+    @BeforeEach
+    public void beforeEach() {
+        searchService = new PlanetSearchService(planetService, planetRepository, new PlanetProperties(), snapshots, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("should match names ignoring case from the database until the index is warm")
+    public void searchBeforeWarm() {
+        when(planetRepository.findByNameStartingWithIgnoreCaseOrderByName("yAVin iv", Limit.of(10))).thenReturn(List.of(YAVINI));
+
+        List<PlanetSearchHit> hits = searchService.search(" yAVin iv ", null);
+
+        assertThat(hits).containsExactly(new PlanetSearchHit(3L, "Yavin IV", PlanetSearchHit.Match.EXACT));
+    }
+
+    @Test
+    @DisplayName("should match names ignoring case from the index once warm")
+    public void searchFromIndex() {
+        doAnswer(invocation -> {
+            PLANETS.forEach(invocation.<Consumer<Planet>>getArgument(2));
+            return null;
+        }).when(planetService).stream(isNull(), isNull(), any());
+        searchService.warm();
+
+        List<PlanetSearchHit> hits = searchService.search(" yAVin iv ", null);
+
+        assertThat(hits).first().isEqualTo(new PlanetSearchHit(3L, "Yavin IV", PlanetSearchHit.Match.EXACT));
+    }
+}
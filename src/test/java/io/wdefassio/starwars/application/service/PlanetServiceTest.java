@@ -1,26 +1,47 @@
 package io.wdefassio.starwars.application.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.util.PageCursor;
 import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
 import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import io.wdefassio.starwars.infra.repository.PlanetRevisionRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import static io.wdefassio.starwars.common.PlanetConstants.ALDERAAN;
 import static io.wdefassio.starwars.common.PlanetConstants.INVALID_PLANET;
 import static io.wdefassio.starwars.common.PlanetConstants.PLANET;
+import static io.wdefassio.starwars.common.PlanetConstants.PLANETS;
+import static io.wdefassio.starwars.common.PlanetConstants.TATTOINE;
+import static io.wdefassio.starwars.common.PlanetConstants.YAVINI;
 import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +50,18 @@ public class PlanetServiceTest {
     PlanetServiceImp planetService;
     @Mock
     PlanetRepository planetRepository;
+    @Mock
+    PlanetRevisionRepository revisionRepository;
+    @Spy
+    PlanetProperties planetProperties = new PlanetProperties();
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+    @Mock
+    PlanetLookupBatcher lookupBatcher;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Spy
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @Test
     @DisplayName("should be able to create a planet with correct data")
@@ -36,6 +69,7 @@ public class PlanetServiceTest {
         when(planetRepository.save(PLANET)).thenReturn(PLANET);
         Planet planet = planetService.create(PLANET);
         assertThat(planet).isEqualTo(PLANET);
+        verify(eventPublisher).publishEvent(PlanetEvent.created(PLANET));
     }
 
     @Test
@@ -63,6 +97,26 @@ public class PlanetServiceTest {
         assertThat(planet).isEmpty();
     }
 
+    @Test
+    @DisplayName("should resolve a batched lookup through the batcher")
+    public void getPlanetBatched() {
+        when(lookupBatcher.canBatch()).thenReturn(true);
+        when(lookupBatcher.find(1L)).thenReturn(Optional.of(TATTOINE));
+
+        assertThat(planetService.get(1L)).contains(TATTOINE);
+        verify(planetRepository, Mockito.never()).findById(1L);
+    }
+
+    @Test
+    @DisplayName("should get many planets with one query per batch, in the order asked")
+    public void getAllPlanets() {
+        planetProperties.getLookup().setMaxBatchSize(2);
+        when(planetRepository.findAllById(List.of(3L, 1L))).thenReturn(List.of(TATTOINE, YAVINI));
+        when(planetRepository.findAllById(List.of(99L))).thenReturn(List.of());
+
+        assertThat(planetService.getAll(List.of(3L, 1L, 3L, 99L))).containsExactly(YAVINI, TATTOINE);
+    }
+
     @Test
     @DisplayName("should be able to find a planet by name")
     public void getByNamePlanetSuccess() {
@@ -84,7 +138,7 @@ public class PlanetServiceTest {
     public void listAllPlanetSuccess() {
         List<Planet> planets = List.of(PLANET);
 
-        when(planetRepository.findAll(Mockito.any(Example.class))).thenReturn(planets);
+        when(planetRepository.findFiltered(PLANET.getTerrain(), PLANET.getClimate())).thenReturn(planets);
 
         List<Planet> list = planetService.list(PLANET.getTerrain(), PLANET.getClimate());
 
@@ -95,20 +149,101 @@ public class PlanetServiceTest {
     @Test
     @DisplayName("should return no planets")
     public void listAllPlanetNoPlants() {
-        when(planetRepository.findAll(Mockito.any(Example.class))).thenReturn(Collections.EMPTY_LIST);
+        when(planetRepository.findFiltered(PLANET.getTerrain(), PLANET.getClimate())).thenReturn(Collections.EMPTY_LIST);
         List<Planet> list = planetService.list(PLANET.getTerrain(), PLANET.getClimate());
         assertThat(list).isEmpty();
     }
+    @Test
+    @DisplayName("should return a page with the cursor of the next one")
+    public void pagePlanetsWithNextCursor() {
+        when(planetRepository.findFiltered(null, null, 0L, 3)).thenReturn(PLANETS);
+
+        PlanetPage page = planetService.page(null, null, null, 2);
+
+        assertThat(page.getPlanets()).hasSize(2);
+        assertThat(page.getNextCursor()).isEqualTo(PageCursor.encode(PLANETS.get(1).getId()));
+    }
+
+    @Test
+    @DisplayName("should return the last page without cursor and clamp the page size")
+    public void pagePlanetsLastPage() {
+        planetProperties.getPage().setMaxSize(5);
+        when(planetRepository.findFiltered(null, null, 2L, 6)).thenReturn(List.of(PLANETS.get(2)));
+
+        PlanetPage page = planetService.page(null, null, PageCursor.encode(2L), 50);
+
+        assertThat(page.getPlanets()).hasSize(1);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("should reject an invalid cursor")
+    public void pagePlanetsInvalidCursor() {
+        assertThatThrownBy(() -> planetService.page(null, null, "not-a-cursor", null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("should share one query between concurrent lookups of the same id")
+    public void getPlanetCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(planetRepository.findById(1L)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(TATTOINE);
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Optional<Planet>>> lookups = new java.util.ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                lookups.add(callers.submit(() -> planetService.get(1L)));
+            }
+            await().atMost(Duration.ofSeconds(2)).until(() -> meterRegistry.counter("planets.coalesced", "lookup", "id").count() == 3);
+            release.countDown();
+
+            for (Future<Optional<Planet>> lookup : lookups) {
+                assertThat(lookup.get(2, TimeUnit.SECONDS)).contains(TATTOINE);
+            }
+            verify(planetRepository, Mockito.times(1)).findById(1L);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("should hand every streamed planet to the consumer")
+    public void streamPlanets() {
+        when(planetRepository.streamFiltered(null, null, 0L, 500)).thenReturn(PLANETS.stream());
+        List<Planet> consumed = new java.util.ArrayList<>();
+
+        planetService.stream(null, null, consumed::add);
+
+        assertThat(consumed).isEqualTo(PLANETS);
+    }
+
+    @Test
+    @DisplayName("should export the whole table after the given id")
+    public void exportPlanets() {
+        when(planetRepository.streamFiltered(null, null, 1L, 500)).thenReturn(Stream.of(ALDERAAN, YAVINI));
+        List<Planet> exported = new java.util.ArrayList<>();
+
+        planetService.export(1L, exported::add);
+
+        assertThat(exported).containsExactly(ALDERAAN, YAVINI);
+    }
+
     @Test
     @DisplayName("should be able to delete a planet by id")
     public void deleteByIdPlanet() {
-       assertThatCode(() -> planetService.remove(Mockito.anyLong())).doesNotThrowAnyException();
+        when(planetRepository.findById(1L)).thenReturn(Optional.of(TATTOINE));
+
+        assertThatCode(() -> planetService.remove(1L)).doesNotThrowAnyException();
+        verify(planetRepository).delete(TATTOINE);
+        verify(eventPublisher).publishEvent(PlanetEvent.removed(TATTOINE));
     }
     @Test
     @DisplayName("should throw when a nonexistent id is provided")
     public void deleteByIdPlanetThrows() {
-        doThrow(new RuntimeException()).when(planetRepository).deleteById(Mockito.anyLong());
+        when(planetRepository.findById(99L)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> planetService.remove(99L)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> planetService.remove(99L)).isInstanceOf(EmptyResultDataAccessException.class);
     }
 }
@@ -0,0 +1,90 @@
+package io.wdefassio.starwars.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.domain.PlanetStats;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetStatsServiceTest {
+    @Mock
+    PlanetRepository planetRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    SimpleMeterRegistry meterRegistry;
+    PlanetStatsService statsService;
+
+    @BeforeEach
+    public void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        statsService = new PlanetStatsService(planetRepository, new PlanetProperties(), transactionManager, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("should count from the table until the counters are loaded")
+    public void statsBeforeReconcile() {
+        when(planetRepository.countGroups()).thenReturn(groups());
+
+        PlanetStats stats = statsService.stats();
+
+        assertThat(stats.getTotal()).isEqualTo(3);
+        assertThat(stats.getClimates()).isEqualTo(Map.of("arid", 1L, "temperate", 1L, "temperate, tropical", 1L));
+        assertThat(stats.getTerrains()).isEqualTo(Map.of("desert", 1L, "grass", 2L));
+        assertThat(stats.getGroups()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("should follow local writes without querying the table")
+    public void statsFromCounters() {
+        when(planetRepository.countGroups()).thenReturn(groups());
+        statsService.reconcile();
+
+        statsService.onPlanetEvent(PlanetEvent.created(new Planet(4L, "Jakku", " Arid", "DESERT")));
+        statsService.onPlanetEvent(PlanetEvent.removed(ALDERAAN));
+        statsService.onPlanetEvent(PlanetEvent.replicated(PlanetEvent.Type.REMOVED, YAVINI));
+        PlanetStats stats = statsService.stats();
+
+        assertThat(stats.getTotal()).isEqualTo(3);
+        assertThat(stats.getGroups()).containsExactly(
+                new PlanetStats.Group("arid", "desert", 2),
+                new PlanetStats.Group("temperate, tropical", "grass", 1));
+        assertThat(stats.getTerrains()).isEqualTo(Map.of("desert", 2L, "grass", 1L));
+        verify(planetRepository, times(1)).countGroups();
+    }
+
+    @Test
+    @DisplayName("should correct drifted counters on reconciliation")
+    public void reconcileDrift() {
+        when(planetRepository.countGroups()).thenReturn(groups(), List.of(new PlanetStats.Group("arid", "desert", 1)));
+        statsService.reconcile();
+
+        statsService.reconcile();
+
+        assertThat(statsService.stats().getTotal()).isEqualTo(1);
+        assertThat(meterRegistry.get("planets.stats.drift").summary().totalAmount()).isEqualTo(2);
+    }
+
+    private static List<PlanetStats.Group> groups() {
+        return List.of(new PlanetStats.Group("arid", "desert", 1),
+                new PlanetStats.Group("temperate", "grass", 1),
+                new PlanetStats.Group("temperate, tropical", "grass", 1));
+    }
+}
@@ -0,0 +1,94 @@
+package io.wdefassio.starwars.application.service.index;
+
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlanetIndexTest {
+    private PlanetIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new PlanetIndex(1024);
+        PLANETS.forEach(index::put);
+    }
+
+    @Test
+    @DisplayName("should find planets by id and case-insensitive name")
+    public void getPlanet() {
+        assertThat(index.get(1L)).isEqualTo(TATTOINE);
+        assertThat(index.getByName(" tatooine ")).isEqualTo(TATTOINE);
+        assertThat(index.get(99L)).isNull();
+        assertThat(index.getByName("Hoth")).isNull();
+    }
+
+    @Test
+    @DisplayName("should filter by normalized climate and terrain in id order")
+    public void filterPlanets() {
+        assertThat(index.page(null, null, 0L, 10)).containsExactlyElementsOf(PLANETS);
+        assertThat(index.page("GRASS", null, 0L, 10)).containsExactly(ALDERAAN, YAVINI);
+        assertThat(index.page("grass", " Temperate ", 0L, 10)).containsExactly(ALDERAAN);
+        assertThat(index.page("grass", "arid", 0L, 10)).isEmpty();
+        assertThat(index.page("lava", null, 0L, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should continue after the cursor id")
+    public void pagePlanets() {
+        assertThat(index.page(null, null, 0L, 2)).containsExactly(TATTOINE, ALDERAAN);
+        assertThat(index.page(null, null, 2L, 2)).containsExactly(YAVINI);
+        assertThat(index.page("grass", null, 2L, 2)).containsExactly(YAVINI);
+    }
+
+    @Test
+    @DisplayName("should forget removed planets")
+    public void removePlanet() {
+        index.remove(ALDERAAN.getId());
+
+        assertThat(index.get(ALDERAAN.getId())).isNull();
+        assertThat(index.getByName(ALDERAAN.getName())).isNull();
+        assertThat(index.page("grass", null, 0L, 10)).containsExactly(YAVINI);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should keep id order when a lower id arrives late")
+    public void latePlanet() {
+        Planet hoth = new Planet(10L, "Hoth", "frozen", "tundra");
+        Planet bespin = new Planet(5L, "Bespin", "temperate", "gas giant");
+        index.put(hoth);
+        index.put(bespin);
+
+        assertThat(index.page(null, null, 0L, 10)).extracting(Planet::getId).containsExactly(1L, 2L, 3L, 5L, 10L);
+        assertThat(index.page(null, null, 3L, 1)).containsExactly(bespin);
+        assertThat(index.page(null, "temperate", 0L, 10)).containsExactly(ALDERAAN, bespin);
+        assertThat(index.getByName("bespin")).isEqualTo(bespin);
+
+        index.compact();
+
+        assertThat(index.page(null, null, 0L, 10)).extracting(Planet::getId).containsExactly(1L, 2L, 3L, 5L, 10L);
+        assertThat(index.get(5L)).isEqualTo(bespin);
+    }
+
+    @Test
+    @DisplayName("should spread records over segments and reclaim removed ones")
+    public void manyPlanets() {
+        for (long id = 4; id < 5_000; id++) {
+            index.put(new Planet(id, "Planet-" + id, id % 2 == 0 ? "arid" : "frozen", "desert"));
+        }
+        for (long id = 4; id < 4_000; id++) {
+            index.remove(id);
+        }
+
+        List<Planet> frozen = index.page("desert", "frozen", 0L, 10);
+        assertThat(frozen).extracting(Planet::getId).containsExactly(4001L, 4003L, 4005L, 4007L, 4009L, 4011L, 4013L, 4015L, 4017L, 4019L);
+        assertThat(index.getByName("planet-4999")).extracting(Planet::getId).isEqualTo(4999L);
+        assertThat(index.size()).isEqualTo(1003);
+    }
+}
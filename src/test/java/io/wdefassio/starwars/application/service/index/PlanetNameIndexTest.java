@@ -0,0 +1,91 @@
+package io.wdefassio.starwars.application.service.index;
+
+import io.wdefassio.starwars.application.service.PlanetSearchHit;
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlanetNameIndexTest {
+    private static final Planet YAVIN = new Planet(4L, "Yavin", "temperate", "jungle");
+    private static final Planet DANTOOINE = new Planet(5L, "Dantooine", "temperate", "grass");
+
+    private PlanetNameIndex index;
+
+    @BeforeEach
+    public void beforeEach() {
+        index = new PlanetNameIndex();
+        PLANETS.forEach(index::put);
+        index.put(YAVIN);
+        index.put(DANTOOINE);
+    }
+
+    @Test
+    @DisplayName("should rank the exact name before longer names sharing its prefix")
+    public void searchPrefix() {
+        assertThat(index.search(" YAVIN ", 10)).containsExactly(
+                new PlanetSearchHit(4L, "Yavin", PlanetSearchHit.Match.EXACT),
+                new PlanetSearchHit(3L, "Yavin IV", PlanetSearchHit.Match.PREFIX));
+        assertThat(index.search("ya", 1)).extracting(PlanetSearchHit::getId).containsExactly(4L);
+    }
+
+    @Test
+    @DisplayName("should match later words and substrings below prefixes")
+    public void searchWordsAndInfix() {
+        assertThat(index.search("iv", 10)).containsExactly(new PlanetSearchHit(3L, "Yavin IV", PlanetSearchHit.Match.WORD_PREFIX));
+        assertThat(index.search("tooine", 10)).containsExactly(
+                new PlanetSearchHit(1L, "Tatooine", PlanetSearchHit.Match.INFIX),
+                new PlanetSearchHit(5L, "Dantooine", PlanetSearchHit.Match.INFIX));
+        assertThat(index.search("dera", 10)).extracting(PlanetSearchHit::getMatch).containsExactly(PlanetSearchHit.Match.INFIX);
+    }
+
+    @Test
+    @DisplayName("should tolerate typos in longer queries, including the first letter")
+    public void searchFuzzy() {
+        assertThat(index.search("alderan", 10)).containsExactly(new PlanetSearchHit(2L, "Alderaan", PlanetSearchHit.Match.FUZZY));
+        assertThat(index.search("dantuuine", 10)).containsExactly(new PlanetSearchHit(5L, "Dantooine", PlanetSearchHit.Match.FUZZY));
+        assertThat(index.search("tatoine", 10)).containsExactly(new PlanetSearchHit(1L, "Tatooine", PlanetSearchHit.Match.FUZZY));
+        assertThat(index.search("ratooi", 10)).extracting(PlanetSearchHit::getId).containsExactly(1L);
+        assertThat(index.search("hoth", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should follow renames and removals")
+    public void updateIndex() {
+        index.remove(3L);
+        index.put(new Planet(1L, "Hoth", "frozen", "tundra"));
+
+        assertThat(index.search("yavin", 10)).extracting(PlanetSearchHit::getId).containsExactly(4L);
+        assertThat(index.search("tatooine", 10)).isEmpty();
+        assertThat(index.search("hoth", 10)).extracting(PlanetSearchHit::getId).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("should keep answering after removals trigger a rebuild")
+    public void compact() {
+        for (long id = 100; id < 5100; id++) {
+            index.put(new Planet(id, "Kashyyyk " + id, "tropical", "forest"));
+        }
+        for (long id = 100; id < 5000; id++) {
+            index.remove(id);
+        }
+
+        assertThat(index.size()).isEqualTo(105);
+        assertThat(index.search("kashyyyk 50", 200)).hasSize(100);
+        assertThat(index.search("alderaan", 10)).extracting(PlanetSearchHit::getId).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("should bound the prefix edit distance")
+    public void prefixDistance() {
+        assertThat(PlanetNameIndex.prefixDistance("tatoine", "tatooine base", 1)).isEqualTo(1);
+        assertThat(PlanetNameIndex.prefixDistance("alderaan", "alderaan", 2)).isZero();
+        assertThat(PlanetNameIndex.prefixDistance("corusant", "kamino", 2)).isEqualTo(3);
+        assertThat(PlanetNameIndex.maxEdits(4)).isZero();
+        assertThat(PlanetNameIndex.maxEdits(9)).isEqualTo(2);
+    }
+}
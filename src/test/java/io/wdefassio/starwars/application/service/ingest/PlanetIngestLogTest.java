@@ -0,0 +1,92 @@
+package io.wdefassio.starwars.application.service.ingest;
+
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlanetIngestLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("should recover the planets appended after the last commit")
+    public void recover() throws Exception {
+        Path file = directory.resolve("ingest.log");
+        try (PlanetIngestLog log = new PlanetIngestLog(file, false)) {
+            log.append("a", PLANET);
+            log.append("b", new Planet(null, "Hoth", "frozen", "tundra"));
+            log.commit(List.of(1L));
+            log.append("c", new Planet(null, "Dagobah", "murky", "swamp"));
+        }
+
+        try (PlanetIngestLog log = new PlanetIngestLog(file, false)) {
+            assertThat(log.recovered()).extracting(PlanetIngestLog.Entry::getJob).containsExactly("b", "c");
+            assertThat(log.recovered().get(0).getPlanet()).isEqualTo(new Planet(null, "Hoth", "frozen", "tundra"));
+            assertThat(log.append("d", PLANET)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    @DisplayName("should keep a planet queued behind a later one that was written first")
+    public void commitOutOfOrder() throws Exception {
+        Path file = directory.resolve("ingest.log");
+        try (PlanetIngestLog log = new PlanetIngestLog(file, false)) {
+            log.append("a", PLANET);
+            long hoth = log.append("b", new Planet(null, "Hoth", "frozen", "tundra"));
+            long dagobah = log.append("c", new Planet(null, "Dagobah", "murky", "swamp"));
+            log.commit(List.of(hoth));
+            log.commit(List.of(1L));
+            log.commit(List.of(dagobah));
+            log.append("d", new Planet(null, "Endor", "temperate", "forest"));
+            log.append("e", new Planet(null, "Bespin", "temperate", "gas giant"));
+            log.commit(List.of(5L));
+        }
+
+        try (PlanetIngestLog log = new PlanetIngestLog(file, false)) {
+            assertThat(log.recovered()).extracting(PlanetIngestLog.Entry::getJob).containsExactly("d", "e");
+        }
+    }
+
+    @Test
+    @DisplayName("should drop a torn record at the end of the file")
+    public void truncateTornTail() throws Exception {
+        Path file = directory.resolve("ingest.log");
+        try (PlanetIngestLog log = new PlanetIngestLog(file, false)) {
+            log.append("a", PLANET);
+            log.append("b", new Planet(null, "Hoth", "frozen", "tundra"));
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        try (PlanetIngestLog log = new PlanetIngestLog(file, false)) {
+            assertThat(log.recovered()).extracting(PlanetIngestLog.Entry::getJob).containsExactly("a");
+            log.append("c", new Planet(null, "Dagobah", "murky", "swamp"));
+        }
+        try (PlanetIngestLog log = new PlanetIngestLog(file, false)) {
+            assertThat(log.recovered()).extracting(PlanetIngestLog.Entry::getJob).containsExactly("a", "c");
+        }
+    }
+
+    @Test
+    @DisplayName("should empty the file once every planet is committed")
+    public void truncateWhenCaughtUp() throws Exception {
+        Path file = directory.resolve("ingest.log");
+        try (PlanetIngestLog log = new PlanetIngestLog(file, true)) {
+            log.append("a", PLANET);
+            log.commit(List.of(log.append("b", PLANET), 1L));
+            assertThat(Files.size(file)).isZero();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package io.wdefassio.starwars.application.service.snapshot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.PlanetServiceImp;
+import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetChange;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.domain.PlanetRevision;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetChangeRepository;
+import io.wdefassio.starwars.infra.repository.PlanetRevisionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.wdefassio.starwars.common.PlanetConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetSnapshotStoreTest {
+    private static final Planet HOTH = new Planet(4L, "Hoth", "frozen", "tundra");
+
+    @Mock
+    PlanetServiceImp planetService;
+    @Mock
+    PlanetChangeRepository changeRepository;
+    @Mock
+    PlanetRevisionRepository revisionRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @TempDir
+    Path directory;
+    PlanetProperties planetProperties = new PlanetProperties();
+    List<PlanetSnapshotStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() {
+        planetProperties.getSnapshot().setDirectory(directory);
+        planetProperties.getSnapshot().setMapSize(DataSize.ofBytes(100));
+        lenient().doAnswer(invocation -> {
+            PLANETS.forEach(invocation.<Consumer<Planet>>getArgument(1));
+            return null;
+        }).when(planetService).export(isNull(), any());
+        lenient().when(revisionRepository.current()).thenReturn(new PlanetRevision(PlanetRevision.ID, 5L, null));
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception {
+        for (PlanetSnapshotStore store : stores) {
+            store.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("should take a snapshot on the first start and restore it with the log after a clean shutdown")
+    public void restoreAfterShutdown() throws Exception {
+        PlanetSnapshotStore first = store();
+        assertThat(first.restore(planet -> { }, id -> { })).isFalse();
+        first.maintain();
+        first.onPlanetEvent(PlanetEvent.created(HOTH));
+        first.onPlanetEvent(PlanetEvent.removed(TATTOINE));
+        stop(first);
+
+        assertThat(restore(store())).containsOnlyKeys(2L, 3L, 4L).containsEntry(4L, HOTH);
+    }
+
+    @Test
+    @DisplayName("should start over from the table when it changed since the shutdown and the change feed is off")
+    public void discardWhenRevisionMoved() throws Exception {
+        PlanetSnapshotStore first = store();
+        first.maintain();
+        stop(first);
+        when(revisionRepository.current()).thenReturn(new PlanetRevision(PlanetRevision.ID, 6L, null));
+
+        PlanetSnapshotStore second = store();
+        assertThat(second.restore(planet -> { }, id -> { })).isFalse();
+        second.maintain();
+        stop(second);
+        assertThat(restore(store())).containsOnlyKeys(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("should catch up from the change feed after a crash")
+    public void catchUpFromChangeFeed() throws Exception {
+        planetProperties.getChanges().setEnabled(true);
+        PlanetSnapshotStore first = store();
+        first.maintain();
+        first.onPlanetEvent(PlanetEvent.created(HOTH));
+        crash(first);
+        long now = System.currentTimeMillis();
+        when(changeRepository.findFirstIdSince(anyLong())).thenReturn(10L);
+        when(changeRepository.findAfter(9L, planetProperties.getChanges().getBatchSize())).thenReturn(List.of(
+                new PlanetChange(10L, PlanetEvent.Type.REMOVED, 4L, "Hoth", "frozen", "tundra", null, null, now),
+                new PlanetChange(11L, PlanetEvent.Type.CREATED, 5L, "Dagobah", "murky", "swamp", 0L, now, now)));
+
+        PlanetSnapshotStore second = store();
+        Map<Long, Planet> restored = restore(second);
+
+        assertThat(restored).containsOnlyKeys(1L, 2L, 3L, 5L);
+        assertThat(restored.get(5L).getLastModified()).isEqualTo(now);
+        assertThat(second.changeFeedPosition()).hasValue(11L);
+    }
+
+    @Test
+    @DisplayName("should merge the log into a new snapshot once it grows too large")
+    public void compact() throws Exception {
+        PlanetSnapshotStore first = store();
+        first.maintain();
+        planetProperties.getSnapshot().setCompactAfter(DataSize.ofBytes(1));
+        first.onPlanetEvent(PlanetEvent.created(HOTH));
+        first.onPlanetEvent(PlanetEvent.removed(ALDERAAN));
+        first.maintain();
+        first.onPlanetEvent(PlanetEvent.removed(HOTH));
+        stop(first);
+
+        assertThat(files()).containsExactlyInAnyOrder("snapshot-0000000000000002.bin", "changes-0000000000000002.log");
+        assertThat(restore(store())).containsOnlyKeys(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("should not trust a snapshot cut short")
+    public void discardTornSnapshot() throws Exception {
+        PlanetSnapshotStore first = store();
+        first.maintain();
+        stop(first);
+        Path snapshot = directory.resolve("snapshot-0000000000000001.bin");
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+
+        assertThat(store().restore(planet -> { }, id -> { })).isFalse();
+    }
+
+    private PlanetSnapshotStore store() throws Exception {
+        PlanetSnapshotStore store = new PlanetSnapshotStore(planetService, changeRepository, revisionRepository, planetProperties,
+                transactionManager, new SimpleMeterRegistry());
+        stores.add(store);
+        return store;
+    }
+
+    private void stop(PlanetSnapshotStore store) throws Exception {
+        store.destroy();
+        stores.remove(store);
+    }
+
+    /**
+     * Leaves the log as a killed process would, without the shutdown mark.
+     */
+    private void crash(PlanetSnapshotStore store) throws Exception {
+        when(revisionRepository.current()).thenThrow(new IllegalStateException("connection closed"));
+        stop(store);
+    }
+
+    private static Map<Long, Planet> restore(PlanetSnapshotStore store) {
+        Map<Long, Planet> planets = new TreeMap<>();
+        store.restore(planet -> planets.put(planet.getId(), planet), planets::remove);
+        return planets;
+    }
+
+    private List<String> files() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.wdefassio.starwars.application.service.sync;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.application.service.snapshot.PlanetSnapshotStore;
+import io.wdefassio.starwars.domain.PlanetChange;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.repository.PlanetChangeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetChangeFeedTest {
+    @Mock
+    PlanetChangeRepository changeRepository;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+    @Mock
+    ObjectProvider<PlanetSnapshotStore> snapshotStore;
+    List<PlanetEvent> published = new ArrayList<>();
+    PlanetChangeFeed changeFeed;
+
+    @BeforeEach
+    public void beforeEach() {
+        doAnswer(invocation -> published.add(invocation.getArgument(0))).when(eventPublisher).publishEvent(any(Object.class));
+        changeFeed = new PlanetChangeFeed(changeRepository, eventPublisher, snapshotStore, new PlanetProperties(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void afterEach() {
+        changeFeed.destroy();
+    }
+
+    @Test
+    @DisplayName("should replay changes as replicated events and pick up a late commit from a gap")
+    public void pollFillsGap() {
+        when(changeRepository.findAfter(eq(0L), anyInt())).thenReturn(List.of(change(1, PlanetEvent.Type.CREATED, 10), change(3, PlanetEvent.Type.CREATED, 30)));
+        when(changeRepository.findAfter(eq(3L), anyInt())).thenReturn(List.of());
+        when(changeRepository.findAllByIds(anyCollection())).thenReturn(List.of(change(2, PlanetEvent.Type.CREATED, 20)));
+
+        changeFeed.poll();
+        changeFeed.poll();
+
+        assertThat(published).extracting(event -> event.getPlanet().getId()).containsExactly(10L, 30L, 20L);
+        assertThat(published).allMatch(PlanetEvent::isReplicated);
+    }
+
+    @Test
+    @DisplayName("should drop a late change older than one already applied to the same planet")
+    public void pollDropsStaleChange() {
+        when(changeRepository.findAfter(eq(0L), anyInt())).thenReturn(List.of(change(1, PlanetEvent.Type.CREATED, 10), change(3, PlanetEvent.Type.REMOVED, 20)));
+        when(changeRepository.findAfter(eq(3L), anyInt())).thenReturn(List.of());
+        when(changeRepository.findAllByIds(anyCollection())).thenReturn(List.of(change(2, PlanetEvent.Type.CREATED, 20)));
+
+        changeFeed.poll();
+        changeFeed.poll();
+
+        assertThat(published).extracting(PlanetEvent::getType).containsExactly(PlanetEvent.Type.CREATED, PlanetEvent.Type.REMOVED);
+    }
+
+    @Test
+    @DisplayName("should deliver a change committed after the feed was created and before it started polling")
+    public void startsFromCreation() {
+        when(changeRepository.findMaxId()).thenReturn(5L);
+        PlanetChangeFeed feed = new PlanetChangeFeed(changeRepository, eventPublisher, snapshotStore, new PlanetProperties(), new SimpleMeterRegistry());
+        lenient().when(changeRepository.findMaxId()).thenReturn(6L);
+        when(changeRepository.findAfter(eq(5L), anyInt())).thenReturn(List.of(change(6, PlanetEvent.Type.CREATED, 60)));
+        try {
+            feed.start();
+            feed.poll();
+        } finally {
+            feed.destroy();
+        }
+
+        assertThat(published).extracting(event -> event.getPlanet().getId()).containsExactly(60L);
+    }
+
+    @Test
+    @DisplayName("should resume where the snapshot store caught up, not at the end of the outbox")
+    public void resumesFromSnapshotCatchUp() {
+        PlanetSnapshotStore store = mock(PlanetSnapshotStore.class);
+        when(store.changeFeedPosition()).thenReturn(OptionalLong.of(11L));
+        when(snapshotStore.getIfAvailable()).thenReturn(store);
+        // committed after the store caught up and before the feed was created
+        lenient().when(changeRepository.findMaxId()).thenReturn(12L);
+        when(changeRepository.findAfter(eq(11L), anyInt())).thenReturn(List.of(change(12, PlanetEvent.Type.CREATED, 120)));
+        PlanetChangeFeed feed = new PlanetChangeFeed(changeRepository, eventPublisher, snapshotStore, new PlanetProperties(), new SimpleMeterRegistry());
+        try {
+            feed.poll();
+        } finally {
+            feed.destroy();
+        }
+
+        assertThat(published).extracting(event -> event.getPlanet().getId()).containsExactly(120L);
+    }
+
+    private static PlanetChange change(long id, PlanetEvent.Type type, long planetId) {
+        return new PlanetChange(id, type, planetId, "planet-" + planetId, "arid", "desert", 0L, 1L, System.currentTimeMillis());
+    }
+}
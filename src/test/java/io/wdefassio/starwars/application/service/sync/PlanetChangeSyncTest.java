@@ -0,0 +1,79 @@
+package io.wdefassio.starwars.application.service.sync;
+
+import io.wdefassio.starwars.StarwarsApplication;
+import io.wdefassio.starwars.application.service.PlanetService;
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Two application contexts in one JVM sharing one database, each with its own planet cache.
+ */
+public class PlanetChangeSyncTest {
+    private static final Duration BOUND = Duration.ofSeconds(2);
+
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @BeforeEach
+    public void beforeEach() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        first = start(url);
+        second = start(url);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        second.close();
+        first.close();
+    }
+
+    @Test
+    @DisplayName("should replace a cached miss on one node when another node creates the planet")
+    public void createReachesOtherNode() {
+        PlanetService writer = first.getBean(PlanetService.class);
+        PlanetService reader = second.getBean(PlanetService.class);
+        assertThat(reader.getByName("Hoth")).isEmpty();
+
+        Planet created = writer.create(new Planet(null, "Hoth", "frozen", "tundra"));
+
+        await().atMost(BOUND).untilAsserted(() -> assertThat(reader.getByName("Hoth")).contains(created));
+    }
+
+    @Test
+    @DisplayName("should evict a cached planet on one node when another node removes it")
+    public void removeReachesOtherNode() {
+        PlanetService writer = first.getBean(PlanetService.class);
+        PlanetService reader = second.getBean(PlanetService.class);
+        Planet created = writer.create(new Planet(null, "Hoth", "frozen", "tundra"));
+        await().atMost(BOUND).untilAsserted(() -> assertThat(reader.get(created.getId())).contains(created));
+
+        writer.remove(created.getId());
+
+        await().atMost(BOUND).untilAsserted(() -> assertThat(reader.get(created.getId())).isEmpty());
+    }
+
+    private static ConfigurableApplicationContext start(String url) {
+        return new SpringApplicationBuilder(StarwarsApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jmx.enabled=false",
+                        "--starwars.planets.cache.enabled=true",
+                        "--starwars.planets.cache.negative-ttl=10m",
+                        "--starwars.planets.changes.enabled=true",
+                        "--starwars.planets.changes.poll-interval=50ms");
+    }
+}
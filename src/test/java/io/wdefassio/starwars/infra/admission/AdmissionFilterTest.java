@@ -0,0 +1,124 @@
+package io.wdefassio.starwars.infra.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionFilterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PlanetProperties planetProperties;
+
+    @BeforeEach
+    public void beforeEach() {
+        planetProperties = new PlanetProperties();
+        planetProperties.getAdmission().setRate(1);
+        planetProperties.getAdmission().setBurst(20);
+    }
+
+    @Test
+    @DisplayName("should limit each client on its own, charging the endpoint weight")
+    public void rateLimit() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter(planetProperties, meterRegistry);
+
+        assertThat(perform(filter, request("GET", "/planets", "10.0.0.1")).getStatus()).isEqualTo(200);
+        assertThat(perform(filter, request("GET", "/planets", "10.0.0.1")).getStatus()).isEqualTo(200);
+        MockHttpServletResponse refused = perform(filter, request("GET", "/planets", "10.0.0.1"));
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(refused.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+
+        assertThat(perform(filter, request("GET", "/planets/1", "10.0.0.2")).getStatus()).isEqualTo(200);
+        assertThat(perform(filter, request("GET", "/actuator/health", "10.0.0.1")).getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("planets.admission.rejected").tags("endpoint", "list", "reason", "rate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should only tell clients apart by header when one is configured")
+    public void clientHeader() throws Exception {
+        AdmissionFilter byAddress = new AdmissionFilter(planetProperties, meterRegistry);
+        for (String name : new String[]{"a", "b", "c"}) {
+            MockHttpServletRequest request = request("GET", "/planets", "10.0.0.1");
+            request.addHeader("X-Client-Id", name);
+            perform(byAddress, request);
+        }
+        planetProperties.getAdmission().setClientHeader("X-Client-Id");
+        AdmissionFilter byHeader = new AdmissionFilter(planetProperties, new SimpleMeterRegistry());
+        for (String name : new String[]{"a", "b", "c"}) {
+            MockHttpServletRequest request = request("GET", "/planets", "10.0.0.1");
+            request.addHeader("X-Client-Id", name);
+            assertThat(perform(byHeader, request).getStatus()).isEqualTo(200);
+        }
+
+        assertThat(meterRegistry.get("planets.admission.rejected").tags("endpoint", "list", "reason", "rate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should refuse requests over the endpoint concurrency limit with 503")
+    public void concurrencyLimit() throws Exception {
+        planetProperties.getAdmission().setBurst(1000);
+        planetProperties.getAdmission().getEndpoints().put(PlanetEndpoint.DELETE, new PlanetProperties.EndpointLimits(1, 1));
+        AdmissionFilter filter = new AdmissionFilter(planetProperties, meterRegistry);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        FilterChain blocking = (request, response) -> {
+            entered.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(request("DELETE", "/planets/1", "10.0.0.1"), new MockHttpServletResponse(), blocking);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        MockHttpServletResponse refused = perform(filter, request("DELETE", "/planets/2", "10.0.0.2"));
+        assertThat(refused.getStatus()).isEqualTo(503);
+        assertThat(refused.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(perform(filter, request("GET", "/planets/2", "10.0.0.2")).getStatus()).isEqualTo(200);
+
+        proceed.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertThat(perform(filter, request("DELETE", "/planets/2", "10.0.0.2")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("should tell the endpoints apart")
+    public void classify() {
+        assertThat(PlanetEndpoint.of("GET", "", false)).isEqualTo(PlanetEndpoint.LIST);
+        assertThat(PlanetEndpoint.of("GET", "", true)).isEqualTo(PlanetEndpoint.GET);
+        assertThat(PlanetEndpoint.of("POST", "", false)).isEqualTo(PlanetEndpoint.CREATE);
+        assertThat(PlanetEndpoint.of("GET", "/name/Tatooine", false)).isEqualTo(PlanetEndpoint.GET);
+        assertThat(PlanetEndpoint.of("DELETE", "/batch", false)).isEqualTo(PlanetEndpoint.BATCH);
+        assertThat(PlanetEndpoint.of("DELETE", "/3", false)).isEqualTo(PlanetEndpoint.DELETE);
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(client);
+        return request;
+    }
+
+    private static MockHttpServletResponse perform(AdmissionFilter filter, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
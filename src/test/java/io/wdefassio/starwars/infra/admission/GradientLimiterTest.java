@@ -0,0 +1,74 @@
+package io.wdefassio.starwars.infra.admission;
+
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GradientLimiterTest {
+    private static final long MS = 1_000_000;
+
+    private GradientLimiter limiter;
+
+    @BeforeEach
+    public void beforeEach() {
+        PlanetProperties.Adaptive settings = new PlanetProperties.Adaptive();
+        settings.setInitialLimit(20);
+        settings.setMinLimit(10);
+        settings.setMaxLimit(40);
+        settings.setProbeInterval(Duration.ofSeconds(1));
+        limiter = new GradientLimiter(settings, 0);
+    }
+
+    @Test
+    @DisplayName("should refuse weight over the limit unless nothing else runs")
+    public void tryAcquire() {
+        assertThat(limiter.tryAcquire(50)).isEqualTo(50);
+        assertThat(limiter.tryAcquire(1)).isEqualTo(-1);
+        limiter.release(50);
+
+        assertThat(limiter.tryAcquire(15)).isEqualTo(15);
+        assertThat(limiter.tryAcquire(5)).isEqualTo(20);
+        assertThat(limiter.tryAcquire(1)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("should shrink down to the minimum while latency exceeds the tolerance")
+    public void shrinkOnLatency() {
+        limiter.sample(10 * MS, 20, 0);
+        for (int i = 0; i < 50; i++) {
+            limiter.sample(100 * MS, 20, i);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("should grow only while the limit is in use")
+    public void growWhenSaturated() {
+        for (int i = 0; i < 50; i++) {
+            limiter.sample(10 * MS, 2, i);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(20);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.sample(10 * MS, 20, i);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("should forget the lowest latency after the probe interval")
+    public void probe() {
+        limiter.sample(MS, 20, 0);
+        limiter.sample(20 * MS, 20, 2_000 * MS);
+        int limit = limiter.getLimit();
+        limiter.sample(20 * MS, 20, 2_001 * MS);
+
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(limit);
+    }
+}
@@ -0,0 +1,46 @@
+package io.wdefassio.starwars.infra.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrencyLimitingDataSourceTest {
+    private ConcurrencyLimitingDataSource dataSource;
+
+    @BeforeEach
+    public void beforeEach() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:limiter;DB_CLOSE_DELAY=-1");
+        dataSource = new ConcurrencyLimitingDataSource(h2, 1, Duration.ofMillis(50));
+    }
+
+    @Test
+    @DisplayName("should fail fast when every permit is taken")
+    public void getConnectionTimesOut() throws Exception {
+        try (Connection ignored = dataSource.getConnection()) {
+            assertThat(dataSource.getAvailable()).isZero();
+            assertThatThrownBy(() -> dataSource.getConnection()).isInstanceOf(SQLTransientConnectionException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("should return the permit once when the connection is closed")
+    public void closeReleasesPermit() throws Exception {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertThat(dataSource.getAvailable()).isEqualTo(1);
+        try (Connection next = dataSource.getConnection()) {
+            assertThat(next.isValid(1)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.wdefassio.starwars.infra.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.wdefassio.starwars.infra.config.DatabaseProperties;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataSourceTuningTest {
+    private final DatabaseProperties databaseProperties = new DatabaseProperties();
+    private final PlanetProperties planetProperties = new PlanetProperties();
+    private final MockEnvironment environment = new MockEnvironment();
+
+    @Test
+    @DisplayName("should size the pool from the server cores when given, unless a size is configured")
+    public void autoSize() {
+        HikariDataSource unsized = pool("jdbc:h2:mem:tuning");
+        tuning().apply(unsized, "dataSource");
+        assertThat(unsized.getMaximumPoolSize()).isEqualTo(10);
+
+        databaseProperties.getPool().setCores(8);
+        HikariDataSource pool = pool("jdbc:h2:mem:tuning");
+        tuning().apply(pool, "dataSource");
+        assertThat(pool.getMaximumPoolSize()).isEqualTo(17);
+
+        environment.setProperty("spring.datasource.hikari.maximum-pool-size", "30");
+        HikariDataSource sized = pool("jdbc:h2:mem:tuning");
+        sized.setMaximumPoolSize(30);
+        tuning().apply(sized, "dataSource");
+        assertThat(sized.getMaximumPoolSize()).isEqualTo(30);
+    }
+
+    @Test
+    @DisplayName("should hand MySQL pools the statement settings without overriding the URL")
+    public void mysqlSettings() {
+        HikariDataSource mysql = pool("jdbc:mysql://localhost/starwars?useSSL=false&rewriteBatchedStatements=false");
+        tuning().apply(mysql, "dataSource");
+
+        assertThat(mysql.getDataSourceProperties())
+                .containsEntry("cachePrepStmts", "true")
+                .containsEntry("prepStmtCacheSqlLimit", "2048")
+                .containsEntry("useServerPrepStmts", "true")
+                .containsEntry("useCursorFetch", "true")
+                .doesNotContainKey("rewriteBatchedStatements");
+        assertThat(DataSourceTuning.driverProperty(mysql, "rewriteBatchedStatements")).isEqualTo("false");
+
+        HikariDataSource h2 = pool("jdbc:h2:mem:tuning");
+        tuning().apply(h2, "dataSource");
+        assertThat(h2.getDataSourceProperties()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should report settings that work against the workload")
+    public void check() {
+        databaseProperties.getMysql().setCachePreparedStatements(false);
+        databaseProperties.getConcurrency().setEnabled(true);
+        databaseProperties.getConcurrency().setLimit(50);
+        databaseProperties.getPool().setCores(2);
+        databaseProperties.getPool().setSpindles(0);
+        HikariDataSource pool = pool("jdbc:mysql://localhost/starwars?useCursorFetch=false&rewriteBatchedStatements=false");
+        tuning().apply(pool, "dataSource");
+
+        assertThat(tuning().check(pool)).hasSize(5).anySatisfy(conflict -> assertThat(conflict).startsWith("rewriteBatchedStatements is off"))
+                .anySatisfy(conflict -> assertThat(conflict).startsWith("useCursorFetch is off"))
+                .anySatisfy(conflict -> assertThat(conflict).startsWith("useServerPrepStmts is on without cachePrepStmts"))
+                .anySatisfy(conflict -> assertThat(conflict).contains("concurrency.limit=50 is above the 4 connections"))
+                .anySatisfy(conflict -> assertThat(conflict).contains("8 writers can hold all 4 connections"));
+
+        databaseProperties.getConcurrency().setEnabled(false);
+        environment.setProperty("spring.threads.virtual.enabled", "true");
+        HikariDataSource h2 = pool("jdbc:h2:mem:tuning");
+        h2.setMaximumPoolSize(20);
+        assertThat(tuning().check(h2)).singleElement().asString().startsWith("virtual threads are on");
+    }
+
+    private DataSourceTuning tuning() {
+        return new DataSourceTuning(databaseProperties, planetProperties, environment);
+    }
+
+    private static HikariDataSource pool(String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        return pool;
+    }
+}
@@ -0,0 +1,157 @@
+package io.wdefassio.starwars.infra.datasource;
+
+import io.wdefassio.starwars.infra.config.DatabaseProperties;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingDataSourceTest {
+    private final JdbcDataSource replicaA = h2("replica_a");
+    private final JdbcDataSource replicaB = h2("replica_b");
+    private ReplicaRoutingDataSource routing;
+    private DataSource dataSource;
+    private TransactionTemplate writes;
+    private TransactionTemplate reads;
+
+    @AfterEach
+    public void afterEach() {
+        ReplicaRoutingDataSource.clearPin();
+        routing.close();
+    }
+
+    @Test
+    @DisplayName("should send writes to the primary and spread read-only transactions over the replicas")
+    public void routeByTransaction() {
+        setUp(DatabaseProperties.Balancing.ROUND_ROBIN, replicaA, replicaB);
+
+        assertThat(write()).isEqualTo("PRIMARY");
+        ReplicaRoutingDataSource.clearPin();
+        List<String> seen = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            seen.add(read());
+        }
+
+        assertThat(seen).containsExactly("REPLICA_A", "REPLICA_B", "REPLICA_A", "REPLICA_B");
+        assertThat(new JdbcTemplate(dataSource).queryForObject("select database()", String.class)).isEqualTo("PRIMARY");
+    }
+
+    @Test
+    @DisplayName("should keep reads on the primary after a write until the pin is cleared")
+    public void readYourWrites() {
+        setUp(DatabaseProperties.Balancing.ROUND_ROBIN, replicaA, replicaB);
+        ReplicaRoutingDataSource.keepPin();
+
+        write();
+
+        assertThat(read()).isEqualTo("PRIMARY");
+        ReplicaRoutingDataSource.clearPin();
+        assertThat(read()).startsWith("REPLICA");
+    }
+
+    @Test
+    @DisplayName("should drop the pin with the write transaction outside a unit of work")
+    public void pinEndsWithTransaction() {
+        setUp(DatabaseProperties.Balancing.ROUND_ROBIN, replicaA, replicaB);
+
+        writes.executeWithoutResult(status -> {
+            database();
+            assertThat(ReplicaRoutingDataSource.isPinned()).isTrue();
+        });
+
+        assertThat(ReplicaRoutingDataSource.isPinned()).isFalse();
+        assertThat(read()).startsWith("REPLICA");
+    }
+
+    @Test
+    @DisplayName("should pick the replica with the fewest open connections")
+    public void leastConnections() {
+        setUp(DatabaseProperties.Balancing.LEAST_CONNECTIONS, replicaA, replicaB);
+
+        String held = reads.execute(status -> {
+            String name = database();
+            for (int i = 0; i < 3; i++) {
+                assertThat(databaseOfNewConnection()).isNotEqualTo(name);
+            }
+            return name;
+        });
+
+        assertThat(held).startsWith("REPLICA");
+    }
+
+    @Test
+    @DisplayName("should skip a failing replica and fall back to the primary when none is left")
+    public void failover() {
+        JdbcDataSource broken = new JdbcDataSource();
+        broken.setURL("jdbc:h2:mem:missing;IFEXISTS=TRUE");
+        setUp(DatabaseProperties.Balancing.ROUND_ROBIN, broken, replicaB);
+
+        assertThat(read()).isEqualTo("REPLICA_B");
+        assertThat(read()).isEqualTo("REPLICA_B");
+        assertThat(routing.getHealthyReplicas()).isEqualTo(1);
+
+        replicaB.setURL("jdbc:h2:mem:missing;IFEXISTS=TRUE");
+        routing.checkHealth();
+
+        assertThat(routing.getHealthyReplicas()).isZero();
+        assertThat(read()).isEqualTo("PRIMARY");
+    }
+
+    private void setUp(DatabaseProperties.Balancing balancing, DataSource... replicas) {
+        routing = new ReplicaRoutingDataSource(h2("primary"), List.of(replicas), balancing, Duration.ZERO);
+        dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writes = new TransactionTemplate(transactionManager);
+        reads = new TransactionTemplate(transactionManager);
+        reads.setReadOnly(true);
+    }
+
+    private String read() {
+        return reads.execute(status -> database());
+    }
+
+    private String write() {
+        return writes.execute(status -> database());
+    }
+
+    private String databaseOfNewConnection() {
+        try (Connection connection = routing.getConnection()) {
+            return database(connection);
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private String database() {
+        return database(DataSourceUtils.getConnection(dataSource));
+    }
+
+    private static String database(Connection connection) {
+        try (var statement = connection.createStatement(); var result = statement.executeQuery("select database()")) {
+            result.next();
+            return result.getString(1);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static JdbcDataSource h2(String name) {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return h2;
+    }
+}
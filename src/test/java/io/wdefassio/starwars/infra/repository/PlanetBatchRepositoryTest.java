@@ -0,0 +1,55 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+
+import static io.wdefassio.starwars.common.PlanetConstants.TATTOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import(PlanetBatchRepository.class)
+public class PlanetBatchRepositoryTest {
+    @Autowired
+    private PlanetBatchRepository planetBatchRepository;
+    @Autowired
+    private PlanetRepository planetRepository;
+
+    @Test
+    @DisplayName("should insert planets in one batch and set the generated ids")
+    public void insertAllSuccess() {
+        List<Planet> planets = List.of(new Planet(null, "Bespin", "temperate", "gas giant"), new Planet(null, "Hoth", "frozen", "tundra"));
+
+        planetBatchRepository.insertAll(planets);
+
+        assertThat(planets).allSatisfy(planet -> assertThat(planetRepository.findById(planet.getId())).contains(planet));
+    }
+
+    @Test
+    @Sql(scripts = "/create-planets.sql")
+    @DisplayName("should throw when a batch contains an existing name")
+    public void insertAllConflict() {
+        List<Planet> planets = List.of(new Planet(null, TATTOINE.getName(), "arid", "desert"));
+
+        assertThatThrownBy(() -> planetBatchRepository.insertAll(planets)).isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    @Sql(scripts = "/create-planets.sql")
+    @DisplayName("should find and delete planets by ids")
+    public void deleteAllByIdsSuccess() {
+        assertThat(planetBatchRepository.findExistingNames(List.of(TATTOINE.getName(), "Hoth"))).containsExactly(TATTOINE.getName());
+        assertThat(planetBatchRepository.findAllByIds(List.of(1L, 99L))).containsExactly(TATTOINE);
+
+        assertThat(planetBatchRepository.deleteAllByIds(List.of(1L, 2L, 99L))).isEqualTo(2);
+        assertThat(planetRepository.findAll()).hasSize(1);
+    }
+}
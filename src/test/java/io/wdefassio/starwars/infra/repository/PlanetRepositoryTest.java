@@ -1,23 +1,41 @@
 package io.wdefassio.starwars.infra.repository;
 
-import io.wdefassio.starwars.application.service.util.QueryBuilder;
 import io.wdefassio.starwars.domain.Planet;
+import io.wdefassio.starwars.domain.PlanetEvent;
+import io.wdefassio.starwars.domain.PlanetField;
+import io.wdefassio.starwars.domain.PlanetStats;
+import io.wdefassio.starwars.domain.PlanetView;
+import io.wdefassio.starwars.infra.config.PlanetProperties;
+import io.wdefassio.starwars.infra.config.SecondLevelCacheConfiguration;
+import io.wdefassio.starwars.infra.config.SecondLevelCacheEvictor;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.data.domain.Example;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.NestedTestConfiguration;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.wdefassio.starwars.common.PlanetConstants.PLANET;
 import static io.wdefassio.starwars.common.PlanetConstants.TATTOINE;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
@@ -95,6 +113,14 @@ public class PlanetRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("should find a planet by name ignoring case and surrounding spaces")
+    public void getPlanetByNameIgnoringCase() {
+        Planet planet = testEntityManager.persistFlushFind(PLANET);
+
+        assertThat(planetRepository.findByName(" " + planet.getName().toUpperCase() + " ")).contains(planet);
+    }
+
     @Test
     @DisplayName("should return a empty optional when planet not exists")
     public void getPlanetByNameEmpty() {
@@ -107,25 +133,78 @@ public class PlanetRepositoryTest {
     @Sql(scripts = "/create-planets.sql")
     @DisplayName("should return planets by filter")
     public void getPlanetsByFilter() {
-        Example<Planet> queryWithOutFilters = QueryBuilder.makeQuery(new Planet());
-        Example<Planet> queryWithFilters = QueryBuilder.makeQuery(new Planet(null, null, TATTOINE.getClimate(), TATTOINE.getTerrain()));
-
-        List<Planet> responseWithOut = planetRepository.findAll(queryWithOutFilters);
-        List<Planet> responseFilter = planetRepository.findAll(queryWithFilters);
+        List<Planet> responseWithOut = planetRepository.findFiltered(null, null);
+        List<Planet> responseFilter = planetRepository.findFiltered(TATTOINE.getTerrain(), TATTOINE.getClimate());
+        List<Planet> responseIgnoringCase = planetRepository.findFiltered(" DESERT ", "Arid");
 
         assertThat(responseWithOut).isNotEmpty();
         assertThat(responseWithOut).hasSize(3);
         assertThat(responseFilter).isNotEmpty();
         assertThat(responseFilter).hasSize(1);
         assertThat(responseFilter.get(0)).isEqualTo(TATTOINE);
+        assertThat(responseIgnoringCase).containsExactly(TATTOINE);
+    }
+
+    @Test
+    @Sql(scripts = "/create-planets.sql")
+    @DisplayName("should find names by prefix ignoring case")
+    public void findPlanetsByNamePrefix() {
+        List<Planet> response = planetRepository.findByNameStartingWithIgnoreCaseOrderByName("yAV", Limit.of(10));
+
+        assertThat(response).extracting(Planet::getName).containsExactly("Yavin IV");
+    }
+
+    @Test
+    @Sql(scripts = "/create-planets.sql")
+    @DisplayName("should return planets after the given id ordered by id")
+    public void findPlanetsByKeyset() {
+        List<Planet> firstPage = planetRepository.findFiltered(null, null, 0L, 2);
+        List<Planet> secondPage = planetRepository.findFiltered(null, null, firstPage.get(1).getId(), 2);
+        List<Planet> filtered = planetRepository.findFiltered(TATTOINE.getTerrain().toUpperCase(), TATTOINE.getClimate(), 0L, 2);
+
+        assertThat(firstPage).extracting(Planet::getId).containsExactly(1L, 2L);
+        assertThat(secondPage).extracting(Planet::getId).containsExactly(3L);
+        assertThat(filtered).containsExactly(TATTOINE);
+    }
+
+    @Test
+    @Sql(scripts = "/create-planets.sql")
+    @DisplayName("should select only the requested fields")
+    public void findPlanetViewsByKeyset() {
+        List<PlanetView> views = planetRepository.findFiltered(null, "TEMPERATE", 1L, 1, EnumSet.of(PlanetField.ID, PlanetField.NAME));
+
+        assertThat(views).containsExactly(new PlanetView(2L, "Alderaan", null, null));
+    }
+
+    @Test
+    @Sql(scripts = "/create-planets.sql")
+    @DisplayName("should stream the filtered planets detached from the persistence context")
+    public void streamPlanetsByFilter() {
+        try (Stream<Planet> planets = planetRepository.streamFiltered(null, TATTOINE.getClimate(), 0L, 10)) {
+            List<Planet> streamed = planets.collect(Collectors.toList());
+
+            assertThat(streamed).containsExactly(TATTOINE);
+            assertThat(testEntityManager.getEntityManager().contains(streamed.get(0))).isFalse();
+        }
+    }
+
+    @Test
+    @Sql(scripts = "/create-planets.sql")
+    @DisplayName("should count planets per normalized climate and terrain")
+    public void countPlanetGroups() {
+        testEntityManager.persistAndFlush(new Planet(null, "Jakku", " ARID ", "Desert"));
+
+        assertThat(planetRepository.countGroups()).containsExactlyInAnyOrder(
+                new PlanetStats.Group("arid", "desert", 2),
+                new PlanetStats.Group("temperate", "grasslans, mountains", 1),
+                new PlanetStats.Group("temperate, tropical", "jungle", 1));
     }
 
     @Test
     @DisplayName("should return a empty array when no filter is find")
     public void listPlanetsEmpty() {
 
-        Example<Planet> planetExample = QueryBuilder.makeQuery(new Planet());
-        List<Planet> response = planetRepository.findAll(planetExample);
+        List<Planet> response = planetRepository.findFiltered(null, null);
 
         assertThat(response).isEmpty();
 
@@ -143,10 +222,97 @@ public class PlanetRepositoryTest {
     }
 
     @Test
-    @DisplayName("should throws when a invalid id is provided")
-    public void deletePlanetThrows() {
-        assertThatThrownBy(() -> planetRepository.deleteById(1L)).isInstanceOf(EmptyResultDataAccessException.class);
+    @DisplayName("should ignore a invalid id, PlanetServiceImp.remove reports it as not found")
+    public void deletePlanetIgnoresInvalidId() {
+        assertThatCode(() -> planetRepository.deleteById(1L)).doesNotThrowAnyException();
+
+    }
 
+    /**
+     * Each call commits on its own, as in the service, so the caches are filled and invalidated for real.
+     */
+    @Nested
+    @NestedTestConfiguration(NestedTestConfiguration.EnclosingConfiguration.OVERRIDE)
+    @DataJpaTest(properties = "starwars.planets.second-level-cache.enabled=true")
+    @Import({PlanetProperties.class, SecondLevelCacheConfiguration.class, PlanetBatchRepository.class})
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public class SecondLevelCache {
+        @Autowired
+        private PlanetRepository planetRepository;
+        @Autowired
+        private PlanetBatchRepository planetBatchRepository;
+        @Autowired
+        private SecondLevelCacheEvictor secondLevelCacheEvictor;
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+        private Statistics statistics;
+
+        @BeforeEach
+        public void beforeEach() {
+            statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        }
+
+        @AfterEach
+        public void afterEach() {
+            planetRepository.deleteAllInBatch();
+        }
+
+        @Test
+        @DisplayName("should serve repeated lookups and filters from the caches")
+        public void cacheHits() {
+            Planet bespin = planetRepository.save(new Planet(null, "Bespin", "temperate", "gas giant"));
+            statistics.clear();
+
+            for (int i = 0; i < 2; i++) {
+                assertThat(planetRepository.findById(bespin.getId())).contains(bespin);
+                assertThat(planetRepository.findByName("Bespin")).contains(bespin);
+                assertThat(planetRepository.findFiltered("gas giant", null)).containsExactly(bespin);
+                assertThat(planetRepository.findFiltered(null, "temperate", 0L, 10)).containsExactly(bespin);
+            }
+
+            assertThat(statistics.getQueryCacheMissCount()).isEqualTo(3);
+            assertThat(statistics.getQueryCacheHitCount()).isEqualTo(3);
+            assertThat(statistics.getQueryExecutionCount()).isEqualTo(3);
+            // cached queries keep their rows, only the second findById reads the planet region
+            assertThat(statistics.getDomainDataRegionStatistics(Planet.CACHE_REGION).getHitCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("should drop cached results when planets are created or removed through JPA")
+        public void invalidateOnJpaWrites() {
+            Planet bespin = planetRepository.save(new Planet(null, "Bespin", "temperate", "gas giant"));
+            assertThat(planetRepository.findFiltered(null, "temperate")).containsExactly(bespin);
+            assertThat(planetRepository.findByName("Naboo")).isEmpty();
+
+            Planet naboo = planetRepository.save(new Planet(null, "Naboo", "temperate", "grassy hills"));
+            assertThat(planetRepository.findFiltered(null, "temperate")).containsExactly(bespin, naboo);
+            assertThat(planetRepository.findByName("Naboo")).contains(naboo);
+
+            planetRepository.deleteById(bespin.getId());
+            assertThat(planetRepository.findFiltered(null, "temperate")).containsExactly(naboo);
+            assertThat(planetRepository.findByName("Bespin")).isEmpty();
+            assertThat(planetRepository.findById(bespin.getId())).isEmpty();
+        }
+
+        @Test
+        @DisplayName("should drop cached planets written over JDBC once their event commits")
+        public void invalidateOnJdbcWrites() {
+            Planet bespin = planetRepository.save(new Planet(null, "Bespin", "temperate", "gas giant"));
+            assertThat(planetRepository.findFiltered(null, "temperate")).containsExactly(bespin);
+            assertThat(planetRepository.findByName("Bespin")).contains(bespin);
+
+            Planet naboo = new Planet(null, "Naboo", "temperate", "grassy hills");
+            planetBatchRepository.insertAll(List.of(naboo));
+            planetBatchRepository.deleteAllByIds(List.of(bespin.getId()));
+            assertThat(planetRepository.findFiltered(null, "temperate")).containsExactly(bespin);
+            assertThat(planetRepository.findById(bespin.getId())).contains(bespin);
+
+            secondLevelCacheEvictor.onPlanetEvent(PlanetEvent.created(naboo));
+            secondLevelCacheEvictor.onPlanetEvent(PlanetEvent.removed(bespin));
+            assertThat(planetRepository.findFiltered(null, "temperate")).containsExactly(naboo);
+            assertThat(planetRepository.findByName("Bespin")).isEmpty();
+            assertThat(planetRepository.findById(bespin.getId())).isEmpty();
+        }
     }
 
 
@@ -0,0 +1,34 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.wdefassio.starwars.domain.PlanetRevision;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(PlanetRevisionRepository.class)
+public class PlanetRevisionRepositoryTest {
+    @Autowired
+    private PlanetRevisionRepository revisionRepository;
+
+    @Test
+    @DisplayName("should start at the initial revision when nothing was written")
+    public void currentInitial() {
+        assertThat(revisionRepository.current()).isEqualTo(PlanetRevision.INITIAL);
+    }
+
+    @Test
+    @DisplayName("should create the revision row on the first bump and increment it afterwards")
+    public void bumpSuccess() {
+        revisionRepository.bump();
+        revisionRepository.bump();
+
+        PlanetRevision revision = revisionRepository.current();
+        assertThat(revision.getRevision()).isEqualTo(2L);
+        assertThat(revision.getLastModified()).isNotNull();
+    }
+}
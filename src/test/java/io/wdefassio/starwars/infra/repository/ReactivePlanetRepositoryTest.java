@@ -0,0 +1,93 @@
+package io.wdefassio.starwars.infra.repository;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.wdefassio.starwars.domain.Planet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+
+import static io.wdefassio.starwars.common.PlanetConstants.TATTOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactivePlanetRepositoryTest {
+    private ReactivePlanetRepository planetRepository;
+
+    @BeforeEach
+    public void beforeEach() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1");
+        DatabaseClient databaseClient = DatabaseClient.create(connectionFactory);
+        databaseClient.sql("create table planets (id bigint generated by default as identity primary key, name varchar(255) not null unique, " +
+                        "climate varchar(255), terrain varchar(255), " +
+                        "name_key varchar(255) generated always as (lower(trim(name))), " +
+                        "climate_key varchar(255) generated always as (lower(trim(climate))), " +
+                        "terrain_key varchar(255) generated always as (lower(trim(terrain))), " +
+                        "version bigint, last_modified bigint)")
+                .then()
+                .then(databaseClient.sql("create table planet_revisions (id int primary key, revision bigint not null, last_modified bigint)").then())
+                .then(new ResourceDatabasePopulator(new ClassPathResource("create-planets.sql")).populate(connectionFactory))
+                .then(databaseClient.sql("alter table planets alter column id restart with 4").then())
+                .block();
+        planetRepository = new ReactivePlanetRepository(databaseClient);
+    }
+
+    @Test
+    @DisplayName("should insert a planet and return it with the generated id")
+    public void insertPlanetSuccess() {
+        StepVerifier.create(planetRepository.insert(new Planet(null, "Hoth", "frozen", "tundra"))
+                        .flatMap(planet -> planetRepository.findById(planet.getId())))
+                .assertNext(planet -> assertThat(planet.getName()).isEqualTo("Hoth"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should fail when the name already exists")
+    public void insertPlanetConflict() {
+        StepVerifier.create(planetRepository.insert(new Planet(null, TATTOINE.getName(), "arid", "desert")))
+                .expectError(DataIntegrityViolationException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("should find a planet by name")
+    public void findPlanetByName() {
+        StepVerifier.create(planetRepository.findByName(TATTOINE.getName()))
+                .expectNext(TATTOINE)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should filter case-insensitively and page by id")
+    public void findFilteredSuccess() {
+        StepVerifier.create(planetRepository.findFiltered(null, " TEMPERATE ", 0L, 10))
+                .assertNext(planet -> assertThat(planet.getId()).isEqualTo(2L))
+                .verifyComplete();
+        StepVerifier.create(planetRepository.findFiltered(null, null, 1L, 1))
+                .assertNext(planet -> assertThat(planet.getId()).isEqualTo(2L))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should stream planets in id order on demand")
+    public void streamFilteredSuccess() {
+        StepVerifier.create(planetRepository.streamFiltered(null, null, 0L, 1), 1)
+                .expectNext(TATTOINE)
+                .thenRequest(2)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should delete a planet by id")
+    public void deletePlanetSuccess() {
+        StepVerifier.create(planetRepository.deleteById(1L)).expectNext(1L).verifyComplete();
+        StepVerifier.create(planetRepository.findById(1L)).verifyComplete();
+    }
+}